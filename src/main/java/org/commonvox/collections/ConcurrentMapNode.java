@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A <i>ConcurrentMapNode</i> is the thread-safe counterpart of a
+ * {@link MapNode}, providing the composite-key ordering of the elements of a
+ * {@link ConcurrentOrderedSet}. Each level is a
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ConcurrentSkipListMap.html">
+ * ConcurrentSkipListMap</a>, so entries may be put and removed by many threads
+ * at once, and ordered traversals never block and are weakly consistent.
+ * Unlike a {@link MapNode}, a <i>ConcurrentMapNode</i> maintains no entry
+ * counts. A put pins each lower ConcurrentMapNode into which it descends,
+ * and a lower ConcurrentMapNode emptied by removals is retired and dropped
+ * from its parent only while no put is pinning it; a put which encounters a
+ * retired ConcurrentMapNode retries via the parent.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of elements contained in
+ * the {@link ConcurrentOrderedSet} to which the <i>ConcurrentMapNode</i>
+ * belongs.
+ */
+class ConcurrentMapNode<V> implements Serializable {
+
+  private final KeyComponentProfile<V>[] keyComponentProfiles;
+  private final int level;
+  private volatile ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleNode = null;
+  private volatile ConcurrentNavigableMap<Object, V> bottomNode = null;
+  /** number of puts in progress beneath this node, or RETIRED */
+  private final AtomicInteger pinCount = new AtomicInteger();
+  private static final int RETIRED = -1;
+
+  /**
+   * Constructs a top-level <i>ConcurrentMapNode</i>.
+   *
+   * @param keyComponentProfiles KeyComponentProfiles establishing the
+   * ordering, as completed by
+   * {@link MapNode#completeKeyComponentProfiles(org.commonvox.collections.KeyComponentProfile[])}.
+   */
+  ConcurrentMapNode(KeyComponentProfile<V>[] keyComponentProfiles) {
+    this.keyComponentProfiles = keyComponentProfiles;
+    this.level = 0;
+  }
+
+  private ConcurrentMapNode(ConcurrentMapNode<V> parentMapNode) {
+    this.keyComponentProfiles = parentMapNode.keyComponentProfiles;
+    this.level = parentMapNode.level + 1;
+  }
+
+  List<KeyComponentProfile<V>> getKeyComponentProfileList() {
+    return Collections.unmodifiableList(Arrays.asList(keyComponentProfiles));
+  }
+
+  /**
+   * Retrieves the keyComponent-objects of the submitted value for each level,
+   * as with {@link MapNode#extractKeyComponents(java.lang.Object)}.
+   *
+   * @param value valueClass object
+   * @return keyComponent-objects of the value, indexed by level
+   */
+  Object[][] extractKeyComponents(V value) {
+    Object[][] keyComponents = new Object[keyComponentProfiles.length][];
+    for (int i = level; i < keyComponents.length; i++) {
+      keyComponents[i] = keyComponentProfiles[i].getKeyComponents(value);
+    }
+    return keyComponents;
+  }
+
+  /**
+   * Puts (or removes) an entry for every composite-key in the cartesian
+   * product of the submitted keyComponent arrays. A value with no
+   * keyComponent-objects at some level has no entries.
+   *
+   * @param keyComponents keyComponent-objects of the value, indexed by level
+   * @param value valueClass object
+   * @param removeValue if {@code true}, entries are removed rather than put
+   */
+  void putOrRemove(Object[][] keyComponents, V value, boolean removeValue) {
+    for (int i = level; i < keyComponents.length; i++) {
+      if (keyComponents[i].length == 0) {
+        return;
+      }
+    }
+    descend(keyComponents, value, removeValue);
+  }
+
+  private void descend(Object[][] keyComponents, V value, boolean removeValue) {
+    if (level == keyComponents.length - 1) {
+      ConcurrentNavigableMap<Object, V> bottomMap
+              = removeValue ? bottomNode : bottomNode(value);
+      if (bottomMap == null) {
+        return;
+      }
+      for (Object keyComponent : keyComponents[level]) {
+        if (removeValue) {
+          bottomMap.remove(keyComponent, value);
+        } else {
+          checkKeyComponentClass(keyComponent);
+          // no overwriting of bottomNode values accepted
+          bottomMap.putIfAbsent(keyComponent, value);
+        }
+      }
+    } else {
+      ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleMap
+              = removeValue ? middleNode : middleNode(keyComponents[level][0]);
+      if (middleMap == null) {
+        return;
+      }
+      for (Object keyComponent : keyComponents[level]) {
+        if (removeValue) {
+          ConcurrentMapNode<V> lowerMapNode = middleMap.get(keyComponent);
+          if (lowerMapNode != null) {
+            lowerMapNode.descend(keyComponents, value, true);
+            pruneIfEmpty(middleMap, keyComponent, lowerMapNode);
+          }
+          continue;
+        }
+        ConcurrentMapNode<V> lowerMapNode = pinLowerMapNode(middleMap, keyComponent);
+        try {
+          lowerMapNode.descend(keyComponents, value, false);
+        } finally {
+          lowerMapNode.pinCount.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets (or creates) the lower ConcurrentMapNode for the submitted
+   * keyComponent-object and pins it, so that it is not retired while a put
+   * is in progress beneath it.
+   */
+  private ConcurrentMapNode<V> pinLowerMapNode(
+          ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleMap,
+          Object keyComponent) {
+    while (true) {
+      ConcurrentMapNode<V> lowerMapNode = middleMap.get(keyComponent);
+      if (lowerMapNode == null) {
+        checkKeyComponentClass(keyComponent);
+        ConcurrentMapNode<V> newMapNode = new ConcurrentMapNode<V>(this);
+        lowerMapNode = middleMap.putIfAbsent(keyComponent, newMapNode);
+        if (lowerMapNode == null) {
+          lowerMapNode = newMapNode;
+        }
+      }
+      int pins = lowerMapNode.pinCount.get();
+      while (pins != RETIRED) {
+        if (lowerMapNode.pinCount.compareAndSet(pins, pins + 1)) {
+          return lowerMapNode;
+        }
+        pins = lowerMapNode.pinCount.get();
+      }
+      // retired by a concurrent removal; retry
+    }
+  }
+
+  /**
+   * Retires the submitted lower ConcurrentMapNode and drops it from the
+   * submitted middleNode if it is empty and no put is pinning it.
+   */
+  private static <V> void pruneIfEmpty(
+          ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleMap,
+          Object keyComponent, ConcurrentMapNode<V> lowerMapNode) {
+    if (!lowerMapNode.isEmpty()
+            || !lowerMapNode.pinCount.compareAndSet(0, RETIRED)) {
+      return;
+    }
+    // no put can populate the node once it is retired
+    if (lowerMapNode.isEmpty()) {
+      middleMap.remove(keyComponent, lowerMapNode);
+    } else {
+      lowerMapNode.pinCount.set(0); // populated before it was retired
+    }
+  }
+
+  /**
+   * Returns {@code true} if this ConcurrentMapNode contains no entries.
+   *
+   * @return {@code true} if this ConcurrentMapNode contains no entries
+   */
+  boolean isEmpty() {
+    ConcurrentNavigableMap<Object, V> bottomMap = bottomNode;
+    ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleMap = middleNode;
+    return (bottomMap == null || bottomMap.isEmpty())
+            && (middleMap == null || middleMap.isEmpty());
+  }
+
+  private ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleNode(
+          Object sampleKeyComponent) {
+    ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleMap = middleNode;
+    if (middleMap == null) {
+      synchronized (this) {
+        middleMap = middleNode;
+        if (middleMap == null) {
+          middleNode = middleMap = new ConcurrentSkipListMap<Object, ConcurrentMapNode<V>>(
+                  MapNode.nodeMapComparator(
+                          keyComponentProfiles[level], sampleKeyComponent));
+        }
+      }
+    }
+    return middleMap;
+  }
+
+  private ConcurrentNavigableMap<Object, V> bottomNode(Object sampleKeyComponent) {
+    ConcurrentNavigableMap<Object, V> bottomMap = bottomNode;
+    if (bottomMap == null) {
+      synchronized (this) {
+        bottomMap = bottomNode;
+        if (bottomMap == null) {
+          bottomNode = bottomMap = new ConcurrentSkipListMap<Object, V>(
+                  MapNode.nodeMapComparator(
+                          keyComponentProfiles[level], sampleKeyComponent));
+        }
+      }
+    }
+    return bottomMap;
+  }
+
+  void checkKeyComponentClass(Object keyComponent) {
+    KeyComponentProfile<V> keyComponentProfile = keyComponentProfiles[level];
+    if (!(keyComponentProfile.getKeyComponentBasis().
+                equals(KeyComponentProfile.KeyComponentBasis.IDENTITY)
+            || (keyComponentProfile.getKeyComponentClass().isAssignableFrom(keyComponent.getClass())))) {
+      throw new InternalError("Invalid keyComponent object "
+              + "submitted for 'put' into ConcurrentMapNode LEVEL " + level
+              + ". Requires a keyComponent object of class (or subclass of) <"
+              + keyComponentProfile.getKeyComponentClass().getSimpleName()
+              + ">. Class of the invalid submitted object is <"
+              + keyComponent.getClass().getSimpleName() + ">.");
+    }
+  }
+
+  /**
+   * Invoked to get a weakly consistent, read-only iterator over all values
+   * contained in this ConcurrentMapNode, in ordered sequence.
+   *
+   * @return iterator over values, in ordered sequence
+   */
+  Iterator<V> valueIterator() {
+    return new ConcurrentOrderedWalker<V, V>(this) {
+      @Override
+      V current() {
+        return currentValue();
+      }
+    };
+  }
+
+  /**
+   * Invoked to get a weakly consistent, read-only iterator over the
+   * composite-key/value entries contained in this ConcurrentMapNode, in
+   * ordered sequence.
+   *
+   * @return iterator over entries, in ordered sequence
+   */
+  Iterator<Map.Entry<List<Object>,V>> entryIterator() {
+    return new ConcurrentOrderedWalker<V, Map.Entry<List<Object>,V>>(this) {
+      @Override
+      Map.Entry<List<Object>,V> current() {
+        return new AbstractMap.SimpleImmutableEntry<List<Object>,V>(
+                currentKeyComponentList(), currentValue());
+      }
+    };
+  }
+
+  /**
+   * Invoked to get a weakly consistent, read-only iterator over the
+   * composite-keys of all entries contained in this ConcurrentMapNode, in
+   * ordered sequence.
+   *
+   * @return iterator over composite-keys, in ordered sequence
+   */
+  Iterator<List<Object>> keyComponentListIterator() {
+    return new ConcurrentOrderedWalker<V, List<Object>>(this) {
+      @Override
+      List<Object> current() {
+        return currentKeyComponentList();
+      }
+    };
+  }
+
+  /**
+   * Depth-first walker over the ConcurrentSkipListMaps of a ConcurrentMapNode
+   * structure (cf. the OrderedWalker of {@link MapNode}); lower
+   * ConcurrentMapNodes emptied by removals are simply passed over.
+   */
+  private abstract static class ConcurrentOrderedWalker<V, E> implements Iterator<E> {
+
+    private final Deque<Iterator<Map.Entry<Object, ConcurrentMapNode<V>>>> lowerMapNodeIteratorStack
+            = new ArrayDeque<Iterator<Map.Entry<Object, ConcurrentMapNode<V>>>>();
+    private final Object[] keyComponentPath;
+    private Iterator<Map.Entry<Object, V>> bottomNodeIterator = null;
+    private int bottomNodeLevel;
+    private V currentValue;
+
+    ConcurrentOrderedWalker(ConcurrentMapNode<V> startingMapNode) {
+      keyComponentPath = new Object[
+              startingMapNode.keyComponentProfiles.length - startingMapNode.level];
+      descendInto(startingMapNode);
+    }
+
+    private void descendInto(ConcurrentMapNode<V> mapNode) {
+      int level = lowerMapNodeIteratorStack.size();
+      ConcurrentNavigableMap<Object, V> bottomMap = mapNode.bottomNode;
+      if (bottomMap != null) {
+        bottomNodeIterator = bottomMap.entrySet().iterator();
+        bottomNodeLevel = level;
+      }
+      ConcurrentNavigableMap<Object, ConcurrentMapNode<V>> middleMap
+              = mapNode.middleNode;
+      if (middleMap != null) {
+        lowerMapNodeIteratorStack.push(middleMap.entrySet().iterator());
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (bottomNodeIterator == null || !bottomNodeIterator.hasNext()) {
+        bottomNodeIterator = null;
+        Iterator<Map.Entry<Object, ConcurrentMapNode<V>>> lowerMapNodeIterator
+                = lowerMapNodeIteratorStack.peek();
+        if (lowerMapNodeIterator == null) {
+          return false;
+        }
+        if (lowerMapNodeIterator.hasNext()) {
+          Map.Entry<Object, ConcurrentMapNode<V>> lowerEntry
+                  = lowerMapNodeIterator.next();
+          keyComponentPath[lowerMapNodeIteratorStack.size() - 1]
+                  = lowerEntry.getKey();
+          descendInto(lowerEntry.getValue());
+        } else {
+          lowerMapNodeIteratorStack.pop();
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<Object, V> bottomEntry = bottomNodeIterator.next();
+      keyComponentPath[bottomNodeLevel] = bottomEntry.getKey();
+      currentValue = bottomEntry.getValue();
+      return current();
+    }
+
+    abstract E current();
+
+    V currentValue() {
+      return currentValue;
+    }
+
+    List<Object> currentKeyComponentList() {
+      return Arrays.asList(keyComponentPath.clone());
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Entries may not be removed "
+              + "via an ordered iterator.");
+    }
+  }
+}
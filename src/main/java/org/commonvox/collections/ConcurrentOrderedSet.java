@@ -0,0 +1,491 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiFunction;
+
+/**
+ * A thread-safe counterpart of {@link OrderedSet}: a Set whose values are
+ * ordered via a composite-key, as stipulated by an array of
+ * {@link KeyComponentProfile}s, and which supports concurrent addition,
+ * removal, and retrieval of values by any number of threads.
+ * <br><br>
+ * Each level of the composite-key ordering structure is a
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ConcurrentSkipListMap.html">
+ * ConcurrentSkipListMap</a>, and set membership is maintained in a
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ConcurrentHashMap.html">
+ * ConcurrentHashMap</a>; retrievals never block. Ordered retrievals
+ * ({@link #values()}, {@link #orderedIterator()}, {@link #entrySet()},
+ * {@link #compositeKeys()}) and
+ * <a href="OrderedSet.html#keyComponentSetDescription"><i>keyComponentSet</i></a>s
+ * are <i>weakly consistent</i>: they reflect the state of the set at some
+ * point at or since their creation, and never throw
+ * ConcurrentModificationException.
+ * Additions and removals of the same value are serialized; additions and
+ * removals of distinct values proceed concurrently.
+ * <br><br>
+ * Alternatively, a <i>ConcurrentOrderedSet</i> may be constructed
+ * {@link #ConcurrentOrderedSet(boolean, org.commonvox.collections.KeyComponentProfile...)
+ * striped by top-level keyComponent}: then only the first level of the
+ * ordering structure is a ConcurrentSkipListMap, and the subtree beneath
+ * each first-level <i>keyComponentClass</i>-object is an ordinary
+ * TreeMap-based structure with a read/write lock of its own. Writes which
+ * land beneath different first-level <i>keyComponentClass</i>-objects never
+ * contend, while writes within a subtree avoid the per-level overhead of
+ * ConcurrentSkipListMaps; ordered retrievals copy one subtree at a time
+ * under its read lock.
+ * <br><br>
+ * The <i>keyComponentClass</i>-objects retrieved from a value when it is added
+ * are retained, and are used (without re-invocation of any "get" method) when
+ * the value is removed. Null values are not accepted.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of objects contained
+ * and ordered by this <i>ConcurrentOrderedSet</i>.
+ */
+public class ConcurrentOrderedSet<V> extends AbstractSet<V> implements Serializable {
+
+  private final ConcurrentMapNode<V> topMapNode;
+  private final ConcurrentHashMap<V, ValueRecord> valueRecords
+          = new ConcurrentHashMap<V, ValueRecord>();
+  private final Map<KeyComponentProfile<V>, ConcurrentKeyComponentSet> keyComponentSetMap
+          = new HashMap<KeyComponentProfile<V>, ConcurrentKeyComponentSet>();
+
+  /**
+   * Constructs an empty <i>ConcurrentOrderedSet</i> configured for
+   * composite-key based ordering of its values as specified in the
+   * submitted vararg array of {@link KeyComponentProfile} parameters.
+   *
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>ConcurrentOrderedSet</i>.
+   */
+  @SafeVarargs
+  public ConcurrentOrderedSet(KeyComponentProfile<V>... keyComponentProfiles) {
+    this(false, keyComponentProfiles);
+  }
+
+  /**
+   * Constructs an empty <i>ConcurrentOrderedSet</i> configured for
+   * composite-key based ordering of its values as specified in the
+   * submitted vararg array of {@link KeyComponentProfile} parameters,
+   * optionally striped by top-level keyComponent (i.e., with a separate lock
+   * for the values beneath each <i>keyComponentClass</i>-object of the first
+   * {@link KeyComponentProfile}).
+   *
+   * @param stripedByTopLevelKeyComponent if {@code true}, each subtree beneath
+   * a first-level <i>keyComponentClass</i>-object is guarded by its own lock;
+   * ignored if only a single level of ordering is stipulated.
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>ConcurrentOrderedSet</i>.
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs") // array is only read and copied, never exposed
+  public ConcurrentOrderedSet(boolean stripedByTopLevelKeyComponent,
+          KeyComponentProfile<V>... keyComponentProfiles) {
+    MapNode.checkVarargs(keyComponentProfiles);
+    KeyComponentProfile<V>[] completedProfiles
+            = MapNode.completeKeyComponentProfiles(keyComponentProfiles);
+    this.topMapNode = (stripedByTopLevelKeyComponent && completedProfiles.length > 1)
+            ? new StripedMapNode<V>(completedProfiles)
+            : new ConcurrentMapNode<V>(completedProfiles);
+    for (KeyComponentProfile<V> keyComponentProfile :
+            topMapNode.getKeyComponentProfileList()) {
+      if (keyComponentProfile.getKeyComponentBasis().equals(
+              KeyComponentProfile.KeyComponentBasis.IDENTITY)) {
+        continue;
+      }
+      keyComponentSetMap.put(keyComponentProfile,
+              new ConcurrentKeyComponentSet(keyComponentProfile));
+    }
+  }
+
+  /**
+   * Constructs a <i>ConcurrentOrderedSet</i> containing the values in the
+   * specified collection, with the values ordered according to the
+   * composite-key specified in the submitted vararg array of
+   * {@link KeyComponentProfile} parameters.
+   *
+   * @param collection Collection of <i>valueClass</i>-objects to be added to
+   * and ordered by the new <i>ConcurrentOrderedSet</i>
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>ConcurrentOrderedSet</i>.
+   */
+  @SafeVarargs
+  public ConcurrentOrderedSet(Collection<? extends V> collection,
+          KeyComponentProfile<V>... keyComponentProfiles) {
+    this(collection, false, keyComponentProfiles);
+  }
+
+  /**
+   * Constructs a <i>ConcurrentOrderedSet</i> containing the values in the
+   * specified collection, with the values ordered according to the
+   * composite-key specified in the submitted vararg array of
+   * {@link KeyComponentProfile} parameters, optionally striped by top-level
+   * keyComponent.
+   *
+   * @param collection Collection of <i>valueClass</i>-objects to be added to
+   * and ordered by the new <i>ConcurrentOrderedSet</i>
+   * @param stripedByTopLevelKeyComponent if {@code true}, each subtree beneath
+   * a first-level <i>keyComponentClass</i>-object is guarded by its own lock.
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>ConcurrentOrderedSet</i>.
+   */
+  @SafeVarargs
+  public ConcurrentOrderedSet(Collection<? extends V> collection,
+          boolean stripedByTopLevelKeyComponent,
+          KeyComponentProfile<V>... keyComponentProfiles) {
+    this(stripedByTopLevelKeyComponent, keyComponentProfiles);
+    addAll(collection);
+  }
+
+  /**
+   * Adds the specified value to this <i>ConcurrentOrderedSet</i> if it is not
+   * already present, and orders the value via the composite-key stipulated by
+   * the keyComponentProfiles of the set. A null value is not accepted.
+   *
+   * @param value Value to be added to and ordered by this set.
+   * @return {@code true} if this set did not already contain the specified
+   * value.
+   */
+  @Override
+  public boolean add(V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Invalid <null> value "
+              + "submitted to add method.");
+    }
+    ValueRecord valueRecord
+            = new ValueRecord(topMapNode.extractKeyComponents(value));
+    // the record is locked before it is published, so that a concurrent
+    // removal of the value waits until its entries are in place
+    synchronized (valueRecord) {
+      if (valueRecords.putIfAbsent(value, valueRecord) != null) {
+        return false;
+      }
+      topMapNode.putOrRemove(valueRecord.keyComponents, value, false);
+      updateKeyComponentSets(valueRecord.keyComponents, false);
+    }
+    return true;
+  }
+
+  /**
+   * Removes the specified object from this set if it is present, and clears
+   * any corresponding composite-key entries.
+   *
+   * @param o Object to be removed from this set, if present.
+   * @return {@code true} if the set contained the specified object.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean remove(Object o) {
+    if (o == null) {
+      return false;
+    }
+    while (true) {
+      ValueRecord valueRecord = valueRecords.get(o);
+      if (valueRecord == null) {
+        return false;
+      }
+      synchronized (valueRecord) {
+        if (valueRecords.get(o) != valueRecord) {
+          continue; // removed (and possibly re-added) by another thread
+        }
+        // entries are removed while the record is still published, so that a
+        // concurrent re-addition of the value cannot precede their removal
+        topMapNode.putOrRemove(valueRecord.keyComponents, (V)o, true);
+        updateKeyComponentSets(valueRecord.keyComponents, true);
+        valueRecords.remove(o, valueRecord);
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o != null && valueRecords.containsKey(o);
+  }
+
+  @Override
+  public int size() {
+    return valueRecords.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return valueRecords.isEmpty();
+  }
+
+  /**
+   * Removes all of the values from this set; values concurrently added may
+   * remain.
+   */
+  @Override
+  public void clear() {
+    for (V value : valueRecords.keySet()) {
+      remove(value);
+    }
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the values in this set, in no
+   * particular order; when the iterator's remove method is invoked, the
+   * value is removed from this set, along with any corresponding
+   * composite-key entries.
+   *
+   * @return an iterator over the values in this set
+   */
+  @Override
+  public Iterator<V> iterator() {
+    final Iterator<V> valueIterator = valueRecords.keySet().iterator();
+    return new Iterator<V>() {
+      V currentValue;
+
+      @Override
+      public boolean hasNext() {
+        return valueIterator.hasNext();
+      }
+
+      @Override
+      public V next() {
+        return currentValue = valueIterator.next();
+      }
+
+      @Override
+      public void remove() {
+        if (currentValue == null) {
+          throw new IllegalStateException();
+        }
+        ConcurrentOrderedSet.this.remove(currentValue);
+        currentValue = null;
+      }
+    };
+  }
+
+  /**
+   * Returns a weakly consistent, read-only iterator over the values of this
+   * set in composite-key order. A value is returned once for each of its
+   * composite-key entries.
+   *
+   * @return iterator over values in composite-key order.
+   */
+  public Iterator<V> orderedIterator() {
+    return topMapNode.valueIterator();
+  }
+
+  /**
+   * Returns a List of the values of this set in composite-key order, as
+   * assembled by a weakly consistent traversal. A value is included once for
+   * each of its composite-key entries.
+   *
+   * @return List of values in composite-key order.
+   */
+  public List<V> values() {
+    List<V> values = new ArrayList<V>(size());
+    Iterator<V> valueIterator = orderedIterator();
+    while (valueIterator.hasNext()) {
+      values.add(valueIterator.next());
+    }
+    return values;
+  }
+
+  /**
+   * Returns a read-only view of the composite-key ordered entries of this
+   * set, each pairing a composite-key (a List of
+   * <i>keyComponentClass</i>-objects) with the value to which it is mapped.
+   * The view's iterator is weakly consistent, and its size is computed by
+   * traversal.
+   *
+   * @return Entry set in composite-key order.
+   */
+  public Set<Map.Entry<List<Object>,V>> entrySet() {
+    return new AbstractSet<Map.Entry<List<Object>,V>>() {
+      @Override
+      public Iterator<Map.Entry<List<Object>,V>> iterator() {
+        return topMapNode.entryIterator();
+      }
+
+      @Override
+      public int size() {
+        return countOf(iterator());
+      }
+    };
+  }
+
+  /**
+   * Returns a read-only view of the composite-keys of this set, in
+   * composite-key order. The view's iterator is weakly consistent, and its
+   * size is computed by traversal.
+   *
+   * @return Set consisting of <i>keyComponentClass</i>-object Lists.
+   */
+  public Set<List<Object>> compositeKeys() {
+    return new AbstractSet<List<Object>>() {
+      @Override
+      public Iterator<List<Object>> iterator() {
+        return topMapNode.keyComponentListIterator();
+      }
+
+      @Override
+      public int size() {
+        return countOf(iterator());
+      }
+    };
+  }
+
+  /**
+   * Returns a weakly consistent, read-only Set view of all
+   * <i>keyComponentClass</i>-objects related to the submitted
+   * {@link KeyComponentProfile} (see
+   * {@link OrderedSet#keyComponentSet(org.commonvox.collections.KeyComponentProfile)}).
+   *
+   * @param keyComponentProfile One of the {@link KeyComponentProfile} objects
+   * that was submitted in the constructor of this <i>ConcurrentOrderedSet</i>.
+   * @return Set of <i>keyComponentClass</i>-objects related to the submitted
+   * <i>KeyComponentProfile</i>.
+   * @throws IllegalArgumentException if submitted keyComponentProfile not
+   * found in this <i>ConcurrentOrderedSet</i>.
+   */
+  public Set<Object> keyComponentSet(KeyComponentProfile<V> keyComponentProfile)
+          throws IllegalArgumentException {
+    ConcurrentKeyComponentSet keyComponentSet
+            = keyComponentSetMap.get(keyComponentProfile);
+    if (keyComponentSet == null) {
+      throw new IllegalArgumentException("Submitted KeyComponentProfile "
+              + "not found in this ConcurrentOrderedSet.");
+    }
+    return keyComponentSet.keySet();
+  }
+
+  /**
+   * Returns the read-only list of {@link KeyComponentProfile}s with which
+   * this <i>ConcurrentOrderedSet</i> was constructed.
+   *
+   * @return The list of {@link KeyComponentProfile}s with which this
+   * <i>ConcurrentOrderedSet</i> was constructed.
+   */
+  public List<KeyComponentProfile<V>> getKeyComponentProfiles() {
+    return topMapNode.getKeyComponentProfileList();
+  }
+
+  private void updateKeyComponentSets(Object[][] keyComponents,
+          boolean removeKeyComponents) {
+    List<KeyComponentProfile<V>> keyComponentProfiles
+            = topMapNode.getKeyComponentProfileList();
+    for (int i = 0; i < keyComponents.length; i++) {
+      ConcurrentKeyComponentSet keyComponentSet
+              = keyComponentSetMap.get(keyComponentProfiles.get(i));
+      if (keyComponentSet == null) {
+        continue;
+      }
+      if (removeKeyComponents) {
+        keyComponentSet.removeOccurrences(keyComponents[i]);
+      } else {
+        keyComponentSet.addOccurrences(keyComponents[i]);
+      }
+    }
+  }
+
+  private static int countOf(Iterator<?> iterator) {
+    int count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * The keyComponent-objects retrieved from a value when it was added; also
+   * serves as the monitor serializing addition and removal of the value.
+   */
+  private static final class ValueRecord implements Serializable {
+
+    private final Object[][] keyComponents;
+
+    ValueRecord(Object[][] keyComponents) {
+      this.keyComponents = keyComponents;
+    }
+  }
+
+  /**
+   * A thread-safe <i>keyComponentSet</i> which maintains, for each of its
+   * <i>keyComponentClass</i>-objects, a count of the values from which the
+   * object was retrieved; counts are updated atomically, and an object is
+   * dropped from the set only when its count reaches zero.
+   */
+  private static final class ConcurrentKeyComponentSet implements Serializable {
+
+    private static final BiFunction<Integer, Integer, Integer> INCREMENT
+            = new BiFunction<Integer, Integer, Integer>() {
+              @Override
+              public Integer apply(Integer count, Integer one) {
+                return count + one;
+              }
+            };
+    private static final BiFunction<Object, Integer, Integer> DECREMENT
+            = new BiFunction<Object, Integer, Integer>() {
+              @Override
+              public Integer apply(Object keyComponent, Integer count) {
+                return (count == 1) ? null : count - 1;
+              }
+            };
+    private final ConcurrentSkipListMap<Object, Integer> occurrenceCounts;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentKeyComponentSet(KeyComponentProfile<?> keyComponentProfile) {
+      Comparator<Object> comparator
+              = keyComponentProfile.getKeyComponentClassComparator();
+      if (comparator == null && !Comparable.class.isAssignableFrom(
+              keyComponentProfile.getKeyComponentClass())) {
+        comparator = new MapNode.HashCodeComparator();
+      }
+      occurrenceCounts = new ConcurrentSkipListMap<Object, Integer>(comparator);
+    }
+
+    void addOccurrences(Object[] keyComponents) {
+      for (Object keyComponent : keyComponents) {
+        occurrenceCounts.merge(keyComponent, 1, INCREMENT);
+      }
+    }
+
+    void removeOccurrences(Object[] keyComponents) {
+      for (Object keyComponent : keyComponents) {
+        occurrenceCounts.computeIfPresent(keyComponent, DECREMENT);
+      }
+    }
+
+    Set<Object> keySet() {
+      return Collections.unmodifiableNavigableSet(occurrenceCounts.keySet());
+    }
+  }
+}
@@ -0,0 +1,529 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * An immutable, compactly stored copy of an {@link OrderedSet}, as returned
+ * by its {@link OrderedSet#freeze()} method, for data which is loaded once and
+ * thereafter only queried.
+ * <br><br>
+ * Rather than in a TreeMap per MapNode, the composite-key entries of a
+ * <i>FrozenOrderedSet</i> are held in a few arrays: for each level of the
+ * composite-key, a sorted array of the keyComponent-objects of all of the
+ * level's nodes (the keyComponent-objects beneath any one node at the level
+ * above being contiguous), together with an array of offsets locating the
+ * keyComponent-objects beneath each of them in the next level's array.
+ * The final level (that of the values themselves) is thus the array of all
+ * values in composite-key order. Retrievals binary-search these arrays
+ * rather than traversing TreeMap entries, positional access is a direct
+ * array access, and the heap cost of the ordering structures is a small
+ * fraction of that of an <i>OrderedSet</i>. Set membership is held in an
+ * open-addressing hash table (a single array).
+ * <br><br>
+ * All retrieval methods correspond to the like-named methods of
+ * {@link OrderedSet}; all modification methods throw
+ * UnsupportedOperationException.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of objects contained
+ * and ordered by this <i>FrozenOrderedSet</i>.
+ */
+public final class FrozenOrderedSet<V> extends AbstractSet<V> implements Serializable {
+
+  private final KeyComponentProfile<V>[] keyComponentProfiles;
+  /** keyComponent-objects, indexed by level; the final level holds the values */
+  private final Object[][] keyComponentsByLevel;
+  /**
+   * for each level above the final one: the offsets (in the next level's
+   * array) of the keyComponent-objects beneath each keyComponent-object, plus
+   * a final offset equal to the length of the next level's array
+   */
+  private final int[][] lowerLevelOffsets;
+  private final Comparator<Object>[] comparators;
+  private final Map<KeyComponentProfile<V>, NavigableSet<Object>> keyComponentSetMap;
+  private final Object[] memberTable;
+  private final int memberCount;
+  private static final int MAXIMUM_MEMBER_TABLE_LENGTH = 1 << 30;
+
+  @SuppressWarnings("unchecked")
+  FrozenOrderedSet(OrderedSet<V> orderedSet) {
+    List<KeyComponentProfile<V>> keyComponentProfileList
+            = orderedSet.getKeyComponentProfiles();
+    int levelCount = keyComponentProfileList.size();
+    keyComponentProfiles = keyComponentProfileList.toArray(
+            (KeyComponentProfile<V>[])new KeyComponentProfile<?>[levelCount]);
+
+    List<List<Object>> levelLists = new ArrayList<List<Object>>(levelCount);
+    List<List<Integer>> offsetLists = new ArrayList<List<Integer>>(levelCount);
+    for (int i = 0; i < levelCount; i++) {
+      levelLists.add(new ArrayList<Object>());
+      offsetLists.add(new ArrayList<Integer>());
+    }
+    // entries arrive in composite-key order; a new node begins at the first
+    // level at which an entry's path departs from that of its predecessor
+    // (the walker yields the very keyComponent-objects of the MapNodes, so
+    // identity comparison suffices)
+    List<Object> previousPath = null;
+    for (Map.Entry<List<Object>, V> entry : orderedSet.entrySet()) {
+      List<Object> path = entry.getKey();
+      int divergenceLevel = 0;
+      if (previousPath != null) {
+        while (path.get(divergenceLevel) == previousPath.get(divergenceLevel)) {
+          divergenceLevel++;
+        }
+      }
+      for (int i = divergenceLevel; i < levelCount; i++) {
+        if (i < levelCount - 1) {
+          offsetLists.get(i).add(levelLists.get(i + 1).size());
+        }
+        levelLists.get(i).add(i < levelCount - 1 ? path.get(i) : entry.getValue());
+      }
+      previousPath = path;
+    }
+    keyComponentsByLevel = new Object[levelCount][];
+    lowerLevelOffsets = new int[levelCount - 1][];
+    comparators = (Comparator<Object>[])new Comparator<?>[levelCount];
+    for (int i = 0; i < levelCount; i++) {
+      keyComponentsByLevel[i] = levelLists.get(i).toArray();
+      if (keyComponentsByLevel[i].length > 0) {
+        comparators[i] = MapNode.nodeMapComparator(
+                keyComponentProfiles[i], keyComponentsByLevel[i][0]);
+      }
+      if (i < levelCount - 1) {
+        List<Integer> offsetList = offsetLists.get(i);
+        int[] offsets = new int[offsetList.size() + 1];
+        for (int k = 0; k < offsetList.size(); k++) {
+          offsets[k] = offsetList.get(k);
+        }
+        offsets[offsetList.size()] = levelLists.get(i + 1).size();
+        lowerLevelOffsets[i] = offsets;
+      }
+    }
+
+    keyComponentSetMap = new HashMap<KeyComponentProfile<V>, NavigableSet<Object>>();
+    for (KeyComponentProfile<V> keyComponentProfile : keyComponentProfileList) {
+      if (keyComponentProfile.getKeyComponentBasis().equals(
+              KeyComponentProfile.KeyComponentBasis.IDENTITY)) {
+        continue;
+      }
+      keyComponentSetMap.put(keyComponentProfile,
+              Collections.unmodifiableNavigableSet(new TreeSet<Object>(
+                      (SortedSet<Object>)orderedSet.keyComponentSet(keyComponentProfile))));
+    }
+
+    memberTable = new Object[memberTableLength(orderedSet.size())];
+    for (V value : orderedSet) {
+      int slot = memberSlot(value);
+      memberTable[slot] = value;
+    }
+    memberCount = orderedSet.size();
+  }
+
+  /**
+   * Returns the length of a member table for the submitted number of values:
+   * the least power of two which is at least twice that number (keeping the
+   * load factor at most one half), capped at the largest power of two which
+   * is a valid array length. At least one slot always remains vacant, so
+   * that every probe sequence ends.
+   *
+   * @throws IllegalStateException if the values cannot fit in a member table
+   */
+  private static int memberTableLength(int size) throws IllegalStateException {
+    if (size >= MAXIMUM_MEMBER_TABLE_LENGTH) {
+      throw new IllegalStateException("Unable to freeze an OrderedSet of "
+              + size + " values; at most " + (MAXIMUM_MEMBER_TABLE_LENGTH - 1)
+              + " are supported.");
+    }
+    if (size > MAXIMUM_MEMBER_TABLE_LENGTH / 2) {
+      return MAXIMUM_MEMBER_TABLE_LENGTH;
+    }
+    // size <= 2^29, so (4 * size - 1) does not overflow
+    return Integer.highestOneBit(Math.max(size, 1) * 4 - 1);
+  }
+
+  /**
+   * Returns the slot of the member table holding the submitted object, or
+   * (if it is not a member) the vacant slot at which its probe sequence ends.
+   */
+  private int memberSlot(Object o) {
+    int mask = memberTable.length - 1;
+    int hash = o.hashCode();
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    while (memberTable[slot] != null && !memberTable[slot].equals(o)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o != null && memberTable[memberSlot(o)] != null;
+  }
+
+  @Override
+  public int size() {
+    return memberCount;
+  }
+
+  /**
+   * Returns a read-only iterator over the values in this set, in no
+   * particular order.
+   *
+   * @return an iterator over the values in this set
+   */
+  @Override
+  public Iterator<V> iterator() {
+    return new Iterator<V>() {
+      int slot = advance(0);
+
+      private int advance(int fromSlot) {
+        while (fromSlot < memberTable.length && memberTable[fromSlot] == null) {
+          fromSlot++;
+        }
+        return fromSlot;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return slot < memberTable.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public V next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        V value = (V)memberTable[slot];
+        slot = advance(slot + 1);
+        return value;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException(
+                "A FrozenOrderedSet may not be modified.");
+      }
+    };
+  }
+
+  private Object[] valueArray() {
+    return keyComponentsByLevel[keyComponentsByLevel.length - 1];
+  }
+
+  /**
+   * Returns the position (in the final level, i.e. in the array of values)
+   * of the first entry beneath the keyComponent-object at the submitted
+   * index of the submitted level; an index equal to the length of the level's
+   * array yields the end of the array of values.
+   */
+  private int entryOffset(int level, int index) {
+    for (int i = level; i < lowerLevelOffsets.length; i++) {
+      index = lowerLevelOffsets[i][index];
+    }
+    return index;
+  }
+
+  private int search(int level, int fromIndex, int toIndex, Object keyComponent) {
+    if (fromIndex >= toIndex) {
+      return -1;
+    }
+    return Arrays.binarySearch(keyComponentsByLevel[level], fromIndex, toIndex,
+            keyComponent, comparators[level]);
+  }
+
+  /**
+   * Returns a read-only view of the composite-key ordered entries of this set
+   * (see {@link OrderedSet#entrySet()}).
+   *
+   * @return Entry set in composite-key order.
+   */
+  public Set<Map.Entry<List<Object>,V>> entrySet() {
+    return new AbstractSet<Map.Entry<List<Object>,V>>() {
+      @Override
+      public Iterator<Map.Entry<List<Object>,V>> iterator() {
+        return new FrozenWalker<Map.Entry<List<Object>,V>>() {
+          @Override
+          Map.Entry<List<Object>,V> current() {
+            return new AbstractMap.SimpleImmutableEntry<List<Object>,V>(
+                    currentKeyComponentList(), currentValue());
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return valueArray().length;
+      }
+    };
+  }
+
+  /**
+   * Returns a read-only view of the composite-keys of this set, in
+   * composite-key order (see {@link OrderedSet#compositeKeys()}).
+   *
+   * @return Set consisting of <i>keyComponentClass</i>-object Lists.
+   */
+  public Set<List<Object>> compositeKeys() {
+    return new AbstractSet<List<Object>>() {
+      @Override
+      public Iterator<List<Object>> iterator() {
+        return new FrozenWalker<List<Object>>() {
+          @Override
+          List<Object> current() {
+            return currentKeyComponentList();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return valueArray().length;
+      }
+    };
+  }
+
+  /**
+   * Returns a List of the values of this set in composite-key order (see
+   * {@link OrderedSet#values()}).
+   *
+   * @return values in composite-key order
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> values() {
+    return new ArrayList<V>((List<V>)Arrays.asList(valueArray()));
+  }
+
+  /**
+   * Returns a List of the values of this set in composite-key order,
+   * optionally with consecutive duplicates suppressed (see
+   * {@link OrderedSet#values(boolean)}).
+   *
+   * @param suppressConsecutiveDuplicates if {@code true}, consecutive
+   * duplicates are removed from the List before it is returned.
+   * @return values in composite-key order
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> values(boolean suppressConsecutiveDuplicates) {
+    if (!suppressConsecutiveDuplicates) {
+      return values();
+    }
+    return OrderedSet.suppressConsecutiveDuplicates(
+            ((List<V>)Arrays.asList(valueArray())).iterator());
+  }
+
+  /**
+   * Returns a List of the values of this set which share the submitted
+   * first-level <i>keyComponent</i>-object (see
+   * {@link OrderedSet#values(java.lang.Object)}).
+   *
+   * @param keyComponentObject Object of class equal to the
+   * <i>keyComponentClass</i> stipulated in the first
+   * {@link KeyComponentProfile}.
+   * @return A List of the values which share the submitted
+   * <i>keyComponent</i>-object as a common attribute.
+   * @throws IllegalArgumentException if keyComponentObject is not of the
+   * first <i>keyComponentClass</i>.
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> values(Object keyComponentObject)
+          throws IllegalArgumentException {
+    Class<?> keyComponentClass = keyComponentProfiles[0].getKeyComponentClass();
+    if (!keyComponentClass.isAssignableFrom(keyComponentObject.getClass())) {
+      throw new IllegalArgumentException("First KeyComponentProfile "
+              + "of this FrozenOrderedSet is based on Class : <"
+              + keyComponentClass
+              + ">. It is NOT based on Class of submitted keyComponentObject: <"
+              + keyComponentObject.getClass().getName() + ">.");
+    }
+    int index = search(0, 0, keyComponentsByLevel[0].length, keyComponentObject);
+    if (index < 0) {
+      return new ArrayList<V>();
+    }
+    List<Object> entryValues = Arrays.asList(valueArray()).subList(
+            entryOffset(0, index), entryOffset(0, index + 1));
+    return new ArrayList<V>((Set<V>)new LinkedHashSet<Object>(entryValues));
+  }
+
+  /**
+   * Returns a read-only iterator over the values of this set, in
+   * composite-key order (see {@link OrderedSet#orderedIterator()}).
+   *
+   * @return iterator over values in composite-key order
+   */
+  @SuppressWarnings("unchecked")
+  public Iterator<V> orderedIterator() {
+    return Collections.unmodifiableList((List<V>)Arrays.asList(valueArray())).iterator();
+  }
+
+  /**
+   * Returns the value at the specified position in composite-key order (see
+   * {@link OrderedSet#get(int)}).
+   *
+   * @param index position of the value in composite-key order.
+   * @return the value at the specified position in composite-key order.
+   * @throws IndexOutOfBoundsException if index is out of range.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int index) {
+    if (index < 0 || index >= valueArray().length) {
+      throw new IndexOutOfBoundsException("Index: " + index
+              + ", Size: " + valueArray().length);
+    }
+    return (V)valueArray()[index];
+  }
+
+  /**
+   * Returns the position of the first occurrence of the specified value in
+   * composite-key order (see {@link OrderedSet#rank(java.lang.Object)}).
+   *
+   * @param value Value to be located in composite-key order.
+   * @return the position of the first occurrence of the value in
+   * composite-key order, or -1 if this set does not contain the value.
+   */
+  public int rank(V value) {
+    if (value == null || !contains(value)) {
+      return -1;
+    }
+    Object[][] keyComponents = new Object[keyComponentProfiles.length][];
+    for (int i = 0; i < keyComponents.length; i++) {
+      keyComponents[i] = keyComponentProfiles[i].getKeyComponents(value);
+    }
+    return firstPosition(keyComponents, 0, 0, keyComponentsByLevel[0].length);
+  }
+
+  private int firstPosition(Object[][] keyComponents, int level,
+          int fromIndex, int toIndex) {
+    int firstPosition = -1;
+    for (Object keyComponent : keyComponents[level]) {
+      int index = search(level, fromIndex, toIndex, keyComponent);
+      if (index < 0) {
+        continue;
+      }
+      int position = (level == keyComponents.length - 1) ? index
+              : firstPosition(keyComponents, level + 1,
+                      lowerLevelOffsets[level][index],
+                      lowerLevelOffsets[level][index + 1]);
+      if (position >= 0 && (firstPosition < 0 || position < firstPosition)) {
+        firstPosition = position;
+      }
+    }
+    return firstPosition;
+  }
+
+  /**
+   * Returns a read-only copy of the
+   * <a href="OrderedSet.html#keyComponentSetDescription"><i>keyComponentSet</i></a>
+   * related to the submitted {@link KeyComponentProfile} (see
+   * {@link OrderedSet#keyComponentSet(org.commonvox.collections.KeyComponentProfile)}).
+   *
+   * @param keyComponentProfile One of the {@link KeyComponentProfile} objects
+   * that was submitted in the constructor of the original <i>OrderedSet</i>.
+   * @return Set of <i>keyComponentClass</i>-objects related to the submitted
+   * <i>KeyComponentProfile</i>.
+   * @throws IllegalArgumentException if submitted keyComponentProfile not
+   * found in this <i>FrozenOrderedSet</i>.
+   */
+  public Set<Object> keyComponentSet(KeyComponentProfile<V> keyComponentProfile)
+          throws IllegalArgumentException {
+    Set<Object> keyComponentSet = keyComponentSetMap.get(keyComponentProfile);
+    if (keyComponentSet == null) {
+      throw new IllegalArgumentException("Submitted KeyComponentProfile "
+              + "not found in this FrozenOrderedSet.");
+    }
+    return keyComponentSet;
+  }
+
+  /**
+   * Returns the read-only list of {@link KeyComponentProfile}s of the
+   * <i>OrderedSet</i> from which this <i>FrozenOrderedSet</i> was made.
+   *
+   * @return The list of {@link KeyComponentProfile}s.
+   */
+  public List<KeyComponentProfile<V>> getKeyComponentProfiles() {
+    return Collections.unmodifiableList(Arrays.asList(keyComponentProfiles));
+  }
+
+  /**
+   * Walks the entries in composite-key order, maintaining (per level) the
+   * index of the keyComponent-object above the current entry.
+   */
+  private abstract class FrozenWalker<E> implements Iterator<E> {
+
+    private final int[] cursor = new int[keyComponentsByLevel.length];
+    private int nextEntryIndex = 0;
+
+    @Override
+    public boolean hasNext() {
+      return nextEntryIndex < valueArray().length;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int bottomLevel = cursor.length - 1;
+      cursor[bottomLevel] = nextEntryIndex++;
+      for (int i = bottomLevel - 1; i >= 0; i--) {
+        while (lowerLevelOffsets[i][cursor[i] + 1] <= cursor[i + 1]) {
+          cursor[i]++;
+        }
+      }
+      return current();
+    }
+
+    abstract E current();
+
+    @SuppressWarnings("unchecked")
+    V currentValue() {
+      return (V)valueArray()[cursor[cursor.length - 1]];
+    }
+
+    List<Object> currentKeyComponentList() {
+      Object[] keyComponentPath = new Object[cursor.length];
+      for (int i = 0; i < cursor.length; i++) {
+        keyComponentPath[i] = keyComponentsByLevel[i][cursor[i]];
+      }
+      return Arrays.asList(keyComponentPath);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException(
+              "A FrozenOrderedSet may not be modified.");
+    }
+  }
+}
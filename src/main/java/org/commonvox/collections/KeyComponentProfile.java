@@ -16,7 +16,16 @@
  */
 package org.commonvox.collections;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -25,10 +34,13 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * An array of <i>KeyComponentProfile</i> objects specifies the composite-key
@@ -55,11 +67,14 @@ public class KeyComponentProfile<V> implements Serializable {
 
   private final Class<V> valueClass;
   private final Class<?> keyComponentClass;
-  private final List<Method> valueClassMethodsThatReturnKeyComponents;
+  private transient List<Method> valueClassMethodsThatReturnKeyComponents;
   private final KeyComponentBasis indexComponentBasis;
   private final String indexComponentName;
   private final Comparator<?> keyComponentClassComparator;
+  private transient Function<?, ?> keyComponentFunction;
+  private final boolean keyComponentFunctionReturnsCollection;
   private final int immutableHashCode;
+  private transient KeyComponentExtractor keyComponentExtractor;
   static final Method IDENTITY_METHOD;
   static final String INVALID_METHOD_MESSAGE_OPENER =
           "Invalid method(s) submitted in the KeyComponentProfile's "
@@ -67,7 +82,7 @@ public class KeyComponentProfile<V> implements Serializable {
 
   static enum KeyComponentBasis {
 
-    CLASS, METHOD, IDENTITY // , FIELD
+    CLASS, METHOD, IDENTITY, FUNCTION // , FIELD
 
   };
 
@@ -100,7 +115,10 @@ public class KeyComponentProfile<V> implements Serializable {
     this.valueClassMethodsThatReturnKeyComponents = new ArrayList<Method>();
     this.valueClassMethodsThatReturnKeyComponents.add(IDENTITY_METHOD);
     this.keyComponentClassComparator = null;
+    this.keyComponentFunction = null;
+    this.keyComponentFunctionReturnsCollection = false;
     this.immutableHashCode = computeImmutableHashCode();
+    this.keyComponentExtractor = compileKeyComponentExtractor();
   }
 
   /**
@@ -255,6 +273,8 @@ public class KeyComponentProfile<V> implements Serializable {
     this.valueClass = valueClass;
     this.keyComponentClass = keyComponentClass;
     this.keyComponentClassComparator = keyComponentClassComparator;
+    this.keyComponentFunction = null;
+    this.keyComponentFunctionReturnsCollection = false;
     StringBuilder nameBuilder = new StringBuilder();
     nameBuilder.append(this.keyComponentClass.getSimpleName());
     if (this.valueClass.equals(this.keyComponentClass)) {
@@ -294,6 +314,152 @@ public class KeyComponentProfile<V> implements Serializable {
     }
     this.indexComponentName = nameBuilder.toString();
     this.immutableHashCode = computeImmutableHashCode();
+    this.keyComponentExtractor = compileKeyComponentExtractor();
+  }
+
+  private KeyComponentProfile(Class<V> valueClass, Class<?> keyComponentClass,
+          Comparator<?> keyComponentClassComparator,
+          Function<?, ?> keyComponentFunction, boolean functionReturnsCollection) {
+    if (valueClass == null || keyComponentClass == null
+            || keyComponentFunction == null) {
+      throw new IllegalArgumentException("Invalid <null> parameter submitted "
+              + "for construction of function-based KeyComponentProfile.");
+    }
+    this.valueClass = valueClass;
+    this.keyComponentClass = keyComponentClass;
+    this.keyComponentClassComparator = keyComponentClassComparator;
+    this.keyComponentFunction = keyComponentFunction;
+    this.keyComponentFunctionReturnsCollection = functionReturnsCollection;
+    this.indexComponentBasis = KeyComponentBasis.FUNCTION;
+    this.valueClassMethodsThatReturnKeyComponents = Collections.emptyList();
+    this.indexComponentName = keyComponentClass.getSimpleName()
+            + (functionReturnsCollection ? ";collectionFunction" : ";function");
+    this.immutableHashCode = computeImmutableHashCode();
+    this.keyComponentExtractor = compileKeyComponentExtractor();
+  }
+
+  /**
+   * Returns a <i>KeyComponentProfile</i> belonging to an
+   * {@link OrderedSet} containing elements of class <i>valueClass</i>, whose
+   * <i>keyComponentClass</i>-object is retrieved from each element by the
+   * submitted <i>keyComponentFunction</i> (e.g., a method reference, a field
+   * accessor, or a function computing a derived key). No reflection is
+   * involved in either construction of the <i>KeyComponentProfile</i> or
+   * retrieval of its <i>keyComponentClass</i>-objects.
+   * A <i>keyComponentFunction</i> returning {@code null} leaves the
+   * element without a composite-key in the {@link OrderedSet}.
+   * Retrieved <i>keyComponentClass</i>-objects are ordered in natural order
+   * if the <i>keyComponentClass</i> implements Comparable; otherwise they are
+   * ordered in hashCode order.
+   * <br><br>
+   * A function-based <i>KeyComponentProfile</i> (and any {@link OrderedSet}
+   * to which it belongs) is serializable only if its
+   * <i>keyComponentFunction</i> is itself Serializable, e.g. a lambda
+   * expression or method reference cast to an intersection type such as
+   * {@code (Function<Book, Genre> & Serializable)}; otherwise its
+   * serialization throws a {@link NotSerializableException}.
+   *
+   * @param <V> valueClass
+   * @param <K> keyComponentClass
+   * @param valueClass The class of elements contained in the
+   * {@link OrderedSet} to which the <i>KeyComponentProfile</i> belongs.
+   * @param keyComponentClass The class of the objects returned by the
+   * <i>keyComponentFunction</i>.
+   * @param keyComponentFunction Function which returns the single
+   * <i>keyComponentClass</i>-object of a <i>valueClass</i>-element.
+   * @return function-based <i>KeyComponentProfile</i>
+   */
+  public static <V, K> KeyComponentProfile<V> fromFunction(
+          Class<V> valueClass, Class<K> keyComponentClass,
+          Function<? super V, ? extends K> keyComponentFunction) {
+    return fromFunction(valueClass, keyComponentClass, null, keyComponentFunction);
+  }
+
+  /**
+   * Returns a <i>KeyComponentProfile</i> belonging to an
+   * {@link OrderedSet} containing elements of class <i>valueClass</i>, whose
+   * <i>keyComponentClass</i>-object is retrieved from each element by the
+   * submitted <i>keyComponentFunction</i>, and ordered by the submitted
+   * <i>keyComponentClassComparator</i>. See
+   * {@link #fromFunction(java.lang.Class, java.lang.Class, java.util.function.Function)}.
+   *
+   * @param <V> valueClass
+   * @param <K> keyComponentClass
+   * @param valueClass The class of elements contained in the
+   * {@link OrderedSet} to which the <i>KeyComponentProfile</i> belongs.
+   * @param keyComponentClass The class of the objects returned by the
+   * <i>keyComponentFunction</i>.
+   * @param keyComponentClassComparator Comparator to be used for ordering
+   * retrieved <i>keyComponentClass</i>-objects.
+   * @param keyComponentFunction Function which returns the single
+   * <i>keyComponentClass</i>-object of a <i>valueClass</i>-element.
+   * @return function-based <i>KeyComponentProfile</i>
+   */
+  public static <V, K> KeyComponentProfile<V> fromFunction(
+          Class<V> valueClass, Class<K> keyComponentClass,
+          Comparator<? super K> keyComponentClassComparator,
+          Function<? super V, ? extends K> keyComponentFunction) {
+    return new KeyComponentProfile<V>(valueClass, keyComponentClass,
+            keyComponentClassComparator, keyComponentFunction, false);
+  }
+
+  /**
+   * Returns a <i>KeyComponentProfile</i> belonging to an
+   * {@link OrderedSet} containing elements of class <i>valueClass</i>, whose
+   * <i>keyComponentClass</i>-objects are retrieved from each element by the
+   * submitted <i>keyComponentFunction</i> as a Collection; an element is
+   * mapped under each distinct, non-null object in the returned Collection.
+   * See
+   * {@link #fromFunction(java.lang.Class, java.lang.Class, java.util.function.Function)}.
+   *
+   * @param <V> valueClass
+   * @param <K> keyComponentClass
+   * @param valueClass The class of elements contained in the
+   * {@link OrderedSet} to which the <i>KeyComponentProfile</i> belongs.
+   * @param keyComponentClass The class of the objects contained in the
+   * Collections returned by the <i>keyComponentFunction</i>.
+   * @param keyComponentFunction Function which returns a Collection of
+   * <i>keyComponentClass</i>-objects of a <i>valueClass</i>-element.
+   * @return function-based <i>KeyComponentProfile</i>
+   */
+  public static <V, K> KeyComponentProfile<V> fromCollectionFunction(
+          Class<V> valueClass, Class<K> keyComponentClass,
+          Function<? super V, ? extends Collection<? extends K>> keyComponentFunction) {
+    return fromCollectionFunction(
+            valueClass, keyComponentClass, null, keyComponentFunction);
+  }
+
+  /**
+   * Returns a <i>KeyComponentProfile</i> belonging to an
+   * {@link OrderedSet} containing elements of class <i>valueClass</i>, whose
+   * <i>keyComponentClass</i>-objects are retrieved from each element by the
+   * submitted <i>keyComponentFunction</i> as a Collection, and ordered by the
+   * submitted <i>keyComponentClassComparator</i>. See
+   * {@link #fromCollectionFunction(java.lang.Class, java.lang.Class, java.util.function.Function)}.
+   *
+   * @param <V> valueClass
+   * @param <K> keyComponentClass
+   * @param valueClass The class of elements contained in the
+   * {@link OrderedSet} to which the <i>KeyComponentProfile</i> belongs.
+   * @param keyComponentClass The class of the objects contained in the
+   * Collections returned by the <i>keyComponentFunction</i>.
+   * @param keyComponentClassComparator Comparator to be used for ordering
+   * retrieved <i>keyComponentClass</i>-objects.
+   * @param keyComponentFunction Function which returns a Collection of
+   * <i>keyComponentClass</i>-objects of a <i>valueClass</i>-element.
+   * @return function-based <i>KeyComponentProfile</i>
+   */
+  public static <V, K> KeyComponentProfile<V> fromCollectionFunction(
+          Class<V> valueClass, Class<K> keyComponentClass,
+          Comparator<? super K> keyComponentClassComparator,
+          Function<? super V, ? extends Collection<? extends K>> keyComponentFunction) {
+    return new KeyComponentProfile<V>(valueClass, keyComponentClass,
+            keyComponentClassComparator, keyComponentFunction, true);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> castFunction(Function<?, ?> function) {
+    return (Function<Object, Object>) function;
   }
 
   private List<Method> getMethodsThatReturnObjectsOfKeyComponentClass() {
@@ -429,6 +595,8 @@ public class KeyComponentProfile<V> implements Serializable {
             this.indexComponentBasis.hashCode() : 0);
     hash = 13 * hash + (this.keyComponentClassComparator != null ?
             this.keyComponentClassComparator.hashCode() : 0);
+    hash = 13 * hash + (this.keyComponentFunction != null ?
+            this.keyComponentFunction.hashCode() : 0);
     return hash;
   }
 
@@ -455,8 +623,8 @@ public class KeyComponentProfile<V> implements Serializable {
 
   /**
    * Returns a String representation of this object. The String representation
-   * consists of the <i>KeyComponentProfile</i>'s basis (either CLASS, METHOD, or
-   * IDENTITY) and the name of its basis entity.
+   * consists of the <i>KeyComponentProfile</i>'s basis (either CLASS, METHOD,
+   * FUNCTION, or IDENTITY) and the name of its basis entity.
    * @return a String representation of this object
    */
   @Override
@@ -465,54 +633,293 @@ public class KeyComponentProfile<V> implements Serializable {
             + " name==[" + this.indexComponentName + "]>";
   }
 
-  Set<Object> getKeyComponentSet(V masterObject) {
-    Set<Object> keyComponentSet = new HashSet<Object>();
-
-    for (Method currentGetMethod : getKeyComponentGetMethods()) {
-      if (Collection.class.isAssignableFrom(currentGetMethod.getReturnType())) {
-        try {
-          @SuppressWarnings("unchecked")
-          Collection<Object> retrievedKeyCollection
-                  = (Collection<Object>) currentGetMethod.invoke(masterObject);
-          if (retrievedKeyCollection != null) {
-            keyComponentSet.addAll(retrievedKeyCollection);
-          }
-        }
-        catch (InvocationTargetException e) {
-            throwMapNodePopulationInternalError(e);
-        }
-        catch (IllegalAccessException e) {
-            throwMapNodePopulationInternalError(e);
-        }
+  /**
+   * Retrieves the distinct, non-null keyComponent-objects of the submitted
+   * value via the accessor(s) compiled at construction of this
+   * <i>KeyComponentProfile</i>.
+   *
+   * @param masterObject valueClass object
+   * @return array of keyComponent-objects (zero-length if none retrieved)
+   */
+  Object[] getKeyComponents(V masterObject) {
+    return keyComponentExtractor.extract(masterObject);
+  }
 
+  /**
+   * Compiles the "get" methods of this <i>KeyComponentProfile</i> into a
+   * single {@link KeyComponentExtractor}. Wherever the JVM permits, each
+   * method is bound to a generated Function (via LambdaMetafactory), which
+   * the JIT compiler may inline like any direct call; otherwise the method is
+   * invoked reflectively, with access checks suppressed. A single method
+   * returning a single object is given a fast path which builds no
+   * intermediate Set. A FUNCTION-based profile uses its keyComponentFunction
+   * directly.
+   */
+  private KeyComponentExtractor compileKeyComponentExtractor() {
+    if (indexComponentBasis.equals(KeyComponentBasis.IDENTITY)) {
+      return new IdentityExtractor();
+    }
+    if (indexComponentBasis.equals(KeyComponentBasis.FUNCTION)) {
+      return keyComponentFunctionReturnsCollection
+              ? new CollectionValuedExtractor(castFunction(keyComponentFunction))
+              : new SingleValuedExtractor(castFunction(keyComponentFunction));
+    }
+    List<KeyComponentExtractor> methodExtractors
+            = new ArrayList<KeyComponentExtractor>();
+    for (Method method : valueClassMethodsThatReturnKeyComponents) {
+      Function<Object, Object> getter = compileGetter(method);
+      if (Collection.class.isAssignableFrom(method.getReturnType())) {
+        methodExtractors.add(new CollectionValuedExtractor(getter));
       } else {
-        Object retrievedKey = null;
-        if (getKeyComponentBasis().
-                          equals(KeyComponentProfile.KeyComponentBasis.IDENTITY)) {
-          retrievedKey = masterObject;
-        } else {
+        methodExtractors.add(new SingleValuedExtractor(getter));
+      }
+    }
+    if (methodExtractors.size() == 1) {
+      return methodExtractors.get(0);
+    }
+    return new MultipleMethodExtractor(methodExtractors.toArray(
+            new KeyComponentExtractor[methodExtractors.size()]));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Function<Object, Object> compileGetter(Method method) {
+    if (isAccessibleFromThisPackage(method.getDeclaringClass())
+            && isAccessibleFromThisPackage(valueClass)
+            && (Modifier.isPublic(method.getModifiers())
+                || (!Modifier.isPrivate(method.getModifiers())
+                    && !Modifier.isProtected(method.getModifiers())
+                    && isInThisPackage(method.getDeclaringClass())))) {
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                lookup.unreflect(method),
+                MethodType.methodType(method.getReturnType(), valueClass).wrap());
+        return (Function<Object, Object>) callSite.getTarget().invokeWithArguments();
+      }
+      catch (Throwable t) {
+        // fall through to reflective invocation
+      }
+    }
+    try {
+      method.setAccessible(true);
+    }
+    catch (RuntimeException e) {
+      // access checks remain in effect
+    }
+    return new ReflectiveGetter(method);
+  }
+
+  private static boolean isInThisPackage(Class<?> clazz) {
+    return clazz.getPackage() != null && clazz.getPackage().getName().equals(
+            KeyComponentProfile.class.getPackage().getName());
+  }
+
+  private static boolean isAccessibleFromThisPackage(Class<?> clazz) {
+    boolean inThisPackage = isInThisPackage(clazz);
+    for (Class<?> currentClass = clazz; currentClass != null;
+            currentClass = currentClass.getEnclosingClass()) {
+      int modifiers = currentClass.getModifiers();
+      if (Modifier.isPrivate(modifiers)
+              || (!Modifier.isPublic(modifiers) && !inThisPackage)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static InternalError populationInternalError(Exception e) {
+    return new InternalError("Unanticipated " + e.getClass().getSimpleName()
+            + " encountered while populating internal "
+            + MapNode.class.getSimpleName() + ".", e);
+  }
+
+  /**
+   * Special "override" of readObject required to enable deserialization; the
+   * compiled {@link KeyComponentExtractor} is not serializable and must be
+   * recompiled (and the keyComponentFunction of a function-based
+   * <i>KeyComponentProfile</i>, or the methods of a class- or method-based
+   * <i>KeyComponentProfile</i>, are read separately; see {@link #writeObject}).
+   *
+   * @param in ObjectInputStream object.
+   * @throws java.io.IOException from defaultReadObject
+   * @throws java.io.InvalidObjectException if a method of a class- or
+   * method-based <i>KeyComponentProfile</i> is no longer declared
+   * @throws java.lang.ClassNotFoundException from defaultReadObject
+   */
+  private void readObject(ObjectInputStream in)
+          throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    switch (indexComponentBasis) {
+      case IDENTITY:
+        this.valueClassMethodsThatReturnKeyComponents = new ArrayList<Method>();
+        this.valueClassMethodsThatReturnKeyComponents.add(IDENTITY_METHOD);
+        break;
+      case FUNCTION:
+        this.valueClassMethodsThatReturnKeyComponents = Collections.emptyList();
+        this.keyComponentFunction = (Function<?, ?>)in.readObject();
+        break;
+      default:
+        int methodCount = in.readInt();
+        List<Method> methods = new ArrayList<Method>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+          Class<?> declaringClass = (Class<?>)in.readObject();
+          String methodName = (String)in.readObject();
           try {
-            retrievedKey = currentGetMethod.invoke(masterObject);
+            methods.add(declaringClass.getDeclaredMethod(methodName));
           }
-          catch (InvocationTargetException e) {
-            throwMapNodePopulationInternalError(e);
-          }
-          catch (IllegalAccessException e) {
-            throwMapNodePopulationInternalError(e);
+          catch (NoSuchMethodException e) {
+            throw new InvalidObjectException("Parameterless method <"
+                    + methodName + "> no longer declared by class <"
+                    + declaringClass.getSimpleName() + ">.");
           }
         }
-        if (retrievedKey != null) {
-          keyComponentSet.add(retrievedKey);
+        this.valueClassMethodsThatReturnKeyComponents = methods;
+    }
+    this.keyComponentExtractor = compileKeyComponentExtractor();
+  }
+
+  /**
+   * Special "override" of writeObject: the keyComponentFunction of a
+   * function-based <i>KeyComponentProfile</i> is written only if it is
+   * Serializable; the methods of a class- or method-based
+   * <i>KeyComponentProfile</i> (which are not Serializable) are written as
+   * declaring-class and method-name pairs.
+   *
+   * @param out ObjectOutputStream object.
+   * @throws java.io.NotSerializableException if the keyComponentFunction is
+   * not Serializable
+   * @throws java.io.IOException from defaultWriteObject
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    if (indexComponentBasis.equals(KeyComponentBasis.FUNCTION)) {
+      if (!(keyComponentFunction instanceof Serializable)) {
+        throw new NotSerializableException(this.toString()
+                + " is based on a keyComponentFunction which is not Serializable: "
+                + keyComponentFunction.getClass().getName());
+      }
+      out.writeObject(keyComponentFunction);
+    } else if (!indexComponentBasis.equals(KeyComponentBasis.IDENTITY)) {
+      out.writeInt(valueClassMethodsThatReturnKeyComponents.size());
+      for (Method method : valueClassMethodsThatReturnKeyComponents) {
+        out.writeObject(method.getDeclaringClass());
+        out.writeObject(method.getName());
+      }
+    }
+  }
+
+  /**
+   * A compiled accessor which retrieves the distinct, non-null
+   * keyComponent-objects of a value.
+   */
+  private interface KeyComponentExtractor {
+
+    static final Object[] NO_KEY_COMPONENTS = new Object[0];
+
+    Object[] extract(Object value);
+  }
+
+  private static final class IdentityExtractor implements KeyComponentExtractor {
+
+    @Override
+    public Object[] extract(Object value) {
+      return new Object[]{value};
+    }
+  }
+
+  private static final class SingleValuedExtractor implements KeyComponentExtractor {
+
+    private final Function<Object, Object> getter;
+
+    SingleValuedExtractor(Function<Object, Object> getter) {
+      this.getter = getter;
+    }
+
+    @Override
+    public Object[] extract(Object value) {
+      Object keyComponent = getter.apply(value);
+      if (keyComponent == null) {
+        return NO_KEY_COMPONENTS;
+      }
+      return new Object[]{keyComponent};
+    }
+  }
+
+  private static final class CollectionValuedExtractor implements KeyComponentExtractor {
+
+    private final Function<Object, Object> getter;
+
+    CollectionValuedExtractor(Function<Object, Object> getter) {
+      this.getter = getter;
+    }
+
+    @Override
+    public Object[] extract(Object value) {
+      Collection<?> keyComponentCollection = (Collection<?>) getter.apply(value);
+      if (keyComponentCollection == null || keyComponentCollection.isEmpty()) {
+        return NO_KEY_COMPONENTS;
+      }
+      return removeNulls((keyComponentCollection instanceof Set)
+              ? keyComponentCollection.toArray()
+              : new LinkedHashSet<Object>(keyComponentCollection).toArray());
+    }
+
+    private static Object[] removeNulls(Object[] keyComponents) {
+      int nonNullCount = 0;
+      for (Object keyComponent : keyComponents) {
+        if (keyComponent != null) {
+          keyComponents[nonNullCount++] = keyComponent;
         }
       }
+      return (nonNullCount == keyComponents.length)
+              ? keyComponents : Arrays.copyOf(keyComponents, nonNullCount);
     }
-    return keyComponentSet;
   }
 
-  private void throwMapNodePopulationInternalError(Exception e) {
-    throw new InternalError("Unanticipated " + e.getClass().getSimpleName()
-            + " encountered while populating internal "
-            + MapNode.class.getSimpleName() + ".", e);
+  private static final class MultipleMethodExtractor implements KeyComponentExtractor {
+
+    private final KeyComponentExtractor[] methodExtractors;
+
+    MultipleMethodExtractor(KeyComponentExtractor[] methodExtractors) {
+      this.methodExtractors = methodExtractors;
+    }
+
+    @Override
+    public Object[] extract(Object value) {
+      Set<Object> keyComponentSet = new HashSet<Object>();
+      for (KeyComponentExtractor methodExtractor : methodExtractors) {
+        keyComponentSet.addAll(Arrays.asList(methodExtractor.extract(value)));
+      }
+      return keyComponentSet.toArray();
+    }
+  }
+
+  /**
+   * Fallback getter for methods which cannot be bound to a generated
+   * Function (e.g., non-public methods of classes in other packages).
+   */
+  private static final class ReflectiveGetter implements Function<Object, Object> {
+
+    private final Method method;
+
+    ReflectiveGetter(Method method) {
+      this.method = method;
+    }
+
+    @Override
+    public Object apply(Object value) {
+      try {
+        return method.invoke(value);
+      }
+      catch (InvocationTargetException e) {
+        throw populationInternalError(e);
+      }
+      catch (IllegalAccessException e) {
+        throw populationInternalError(e);
+      }
+    }
   }
 
   /**
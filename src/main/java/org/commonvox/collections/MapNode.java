@@ -18,18 +18,30 @@ package org.commonvox.collections;
 
 import java.io.Serializable;
 import java.sql.Timestamp;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * A <i>MapNode</i> provides for programmer-stipulated ordering of
@@ -48,13 +60,13 @@ import java.util.TreeMap;
  */
 class MapNode<V> implements Serializable, Cloneable {
 
-  private static long nodeCount = 0;
-  private final String mapNodeTitle;
-  private final boolean topLevelNode;
-  private Map<Object, MapNode<V>> middleNode = null;
-  private Map<Object, V> bottomNode = null;
-  private final LinkedList<KeyComponentProfile<V>> keyComponentProfileList;
-  private final int immutableHashCode;
+  private static final AtomicLong nodeCount = new AtomicLong();
+  private final LevelPlan<V> levelPlan;
+  private final int level;
+  private NavigableMap<Object, MapNode<V>> middleNode = null;
+  private NavigableMap<Object, V> bottomNode = null;
+  private int entryCount = 0;
+  private EditToken editToken;
 
   /**
    * Constructs a <i>MapNode</i> for ordering of objects belonging to the
@@ -68,45 +80,47 @@ class MapNode<V> implements Serializable, Cloneable {
   @SafeVarargs
   public MapNode(String title, KeyComponentProfile<V>... keyComponentProfiles) {
     MapNode.checkVarargs(keyComponentProfiles);
-    this.mapNodeTitle = title;
-    this.topLevelNode = true;
-    this.keyComponentProfileList
-            = new LinkedList<KeyComponentProfile<V>>(
-                    Arrays.asList(keyComponentProfiles));
-    // To assure composite-key completeness, final KeyComponentProfile must
-    // be IDENTITY - i.e., based on the valueClass itself.
-    if (!keyComponentProfiles[keyComponentProfiles.length - 1].getKeyComponentBasis().
-            equals(KeyComponentProfile.KeyComponentBasis.IDENTITY)) {
-      keyComponentProfileList.add(new KeyComponentProfile<V>());
-    }
-    immutableHashCode = computeImmutableHashCode();
-    nodeCount++;
+    this.levelPlan = new LevelPlan<V>(title, keyComponentProfiles);
+    this.level = 0;
+    this.editToken = new EditToken();
+    nodeCount.incrementAndGet();
   }
 
   /**
    * This private constructor only usable by a MapNode instance to create
-   * other (lower level) MapNode nodes (instances).
+   * other (lower level) MapNode nodes (instances). The new MapNode shares
+   * the {@link LevelPlan} of its parent, and is placed one level below it.
    *
-   * @param title Title of the <i>MapNode</i>.
-   * @param keyComponentProfiles Array of {@link KeyComponentProfile}
-   * objects establishing the ordering of the <i>MapNode</i>.
-   * @param multiKeyEntries one or more {@link MultiKeyComponentEntry} objects to be
-   * submitted to #putOrRemove in the newly created MapNode.
+   * @param parentMapNode MapNode directly above the new <i>MapNode</i>.
    */
-  @SafeVarargs
-  private MapNode(String title,
-          LinkedList<KeyComponentProfile<V>> keyComponentProfiles,
-          MultiKeyComponentEntry<V>... multiKeyEntries) {
+  private MapNode(MapNode<V> parentMapNode) {
+    this.levelPlan = parentMapNode.levelPlan;
+    this.level = parentMapNode.level + 1;
+    this.editToken = parentMapNode.editToken;
+    nodeCount.incrementAndGet();
+  }
 
-    MapNode.checkVarargs(multiKeyEntries);
-    this.topLevelNode = false;
-    this.keyComponentProfileList = keyComponentProfiles;
-    this.mapNodeTitle = null;
-    this.immutableHashCode = computeImmutableHashCode();
-    nodeCount++;
-    for (MultiKeyComponentEntry<V> multiKeyComponentEntry : multiKeyEntries) {
-      putOrRemove(multiKeyComponentEntry, false);
+  /**
+   * This private constructor makes a modifiable copy of a MapNode whose
+   * structures are shared with a snapshot. The copy's TreeMaps are shallow
+   * copies: lower MapNodes remain shared until they, in turn, are modified.
+   *
+   * @param sharedMapNode MapNode to be copied
+   * @param editToken EditToken of the MapNode structures to which the copy
+   * belongs
+   */
+  private MapNode(MapNode<V> sharedMapNode, EditToken editToken) {
+    this.levelPlan = sharedMapNode.levelPlan;
+    this.level = sharedMapNode.level;
+    if (sharedMapNode.middleNode != null) {
+      this.middleNode = new TreeMap<Object, MapNode<V>>(sharedMapNode.middleNode);
+    }
+    if (sharedMapNode.bottomNode != null) {
+      this.bottomNode = new TreeMap<Object, V>(sharedMapNode.bottomNode);
     }
+    this.entryCount = sharedMapNode.entryCount;
+    this.editToken = editToken;
+    nodeCount.incrementAndGet();
   }
 
   /**
@@ -115,7 +129,7 @@ class MapNode<V> implements Serializable, Cloneable {
    * @return Total node count
    */
   static long getNodeCount() {
-    return nodeCount;
+    return nodeCount.get();
   }
 
   /**
@@ -141,98 +155,131 @@ class MapNode<V> implements Serializable, Cloneable {
   }
 
   /**
-   * Add an entry to this MapNode. (Analogous to put method of a Map,
-   * except that in this case there are multiple [composite] keys.)
+   * Returns a copy of the submitted KeyComponentProfile array, completed (to
+   * assure composite-key completeness) by an IDENTITY KeyComponentProfile
+   * - i.e., one based on the valueClass itself - if the final submitted
+   * KeyComponentProfile is not already IDENTITY.
    *
-   * @param multiKeyComponentEntry containing value and an array of
-   * <a href="https://docs.oracle.com/javase/8/docs/api/java/lang/Comparable.html">
-   * Comparable</a>s
-   * @return <code>true</code> if putOrRemove succeeds <code>false</code> if
-   * putOrRemove fails
+   * @param submittedProfiles KeyComponentProfiles as submitted by the user
+   * @return completed copy of the KeyComponentProfile array
    */
-  private boolean putOrRemove(MultiKeyComponentEntry<V> multiKeyComponentEntry,
-          boolean removeValue) {
-    if (multiKeyComponentEntry.containsNulls()
-            || multiKeyComponentEntry.getKeyComponentArrayLength() == 0) {
-      throw new InternalError("Invalid MultiKeyComponentEntry "
-              + "submitted for 'put' into MapNode <" + getTitle()
-              + " LEVEL " + this.keyComponentProfileList.size() + ">. "
-              + "MultiKeyComponentEntry "
-              + (multiKeyComponentEntry.containsNulls() ? "contains null(s)." : "")
-              + (multiKeyComponentEntry.getKeyComponentArrayLength() == 0 ?
-                      "has zero length key array." : ""));
-    }
-    KeyComponentProfile topKeyComponentProfile
-            = keyComponentProfileList.get(0);
-    if (!(topKeyComponentProfile.getKeyComponentBasis().
-                equals(KeyComponentProfile.KeyComponentBasis.IDENTITY)
-            || (topKeyComponentProfile.getKeyComponentClass().isAssignableFrom(multiKeyComponentEntry.getTopKeyComponent().getClass())))) {
-      throw new InternalError("Invalid keyComponent object "
-              + "submitted for 'put' into MapNode <" + getTitle()
-              + " LEVEL " + this.keyComponentProfileList.size()
-              + ">. Requires a keyComponent object of class (or subclass of) <"
-              + topKeyComponentProfile.getKeyComponentClass().getSimpleName()
-              + ">. Class of the invalid submitted object is <"
-              + multiKeyComponentEntry.getTopKeyComponent().getClass().getSimpleName() + ">.");
+  static <V> KeyComponentProfile<V>[] completeKeyComponentProfiles(
+          KeyComponentProfile<V>[] submittedProfiles) {
+    boolean identityAppended
+            = !submittedProfiles[submittedProfiles.length - 1].getKeyComponentBasis().
+                    equals(KeyComponentProfile.KeyComponentBasis.IDENTITY);
+    KeyComponentProfile<V>[] completedProfiles = Arrays.copyOf(submittedProfiles,
+            submittedProfiles.length + (identityAppended ? 1 : 0));
+    if (identityAppended) {
+      completedProfiles[submittedProfiles.length] = new KeyComponentProfile<V>();
     }
-    if (multiKeyComponentEntry.getKeyComponentArrayLength() == 1) {
+    return completedProfiles;
+  }
+
+  /**
+   * Adds (or removes) entries to (or from) this MapNode for every composite-key
+   * in the cartesian product of the submitted keyComponent arrays. (Analogous
+   * to the put/remove methods of a Map, except that in this case there are
+   * multiple [composite] keys.)
+   * The MapNode structures are descended directly: each lower MapNode on a
+   * shared composite-key prefix is visited once, and the recursion itself
+   * serves as the cursor over the cartesian product, so no per-level key
+   * arrays or entry objects are allocated.
+   *
+   * @param keyComponents keyComponent-objects of the value, indexed by level
+   * (the array for the bottom level contains the value itself).
+   * @param value valueClass object
+   * @param removeValue if {@code true}, entries are removed rather than added
+   * @return number of entries actually added (or removed)
+   */
+  private int putOrRemove(Object[][] keyComponents, V value,
+          boolean removeValue) {
+    KeyComponentProfile<V> keyComponentProfile
+            = levelPlan.keyComponentProfiles[level];
+    Object[] levelKeyComponents = keyComponents[level];
+    int changeCount = 0;
+    if (level == keyComponents.length - 1) {
       if (this.bottomNode == null) {
-        if (topKeyComponentProfile.getKeyComponentClassComparator() != null) {
-          bottomNode = new TreeMap<Object, V>(
-                          topKeyComponentProfile.getKeyComponentClassComparator());
-        } else if (Comparable.class.isAssignableFrom(
-                      multiKeyComponentEntry.getValue().getClass())) {
-          bottomNode = new TreeMap<Object, V>();
-        } else {
-          bottomNode = new TreeMap<Object, V>(new HashCodeComparator());
+        if (removeValue) {
+          return 0;
         }
+        bottomNode = newNodeMap(keyComponentProfile, value);
       }
-      V selectValue = this.bottomNode.get(multiKeyComponentEntry.getTopKeyComponent());
-      if (selectValue == null && !removeValue) {
-        this.bottomNode.put(multiKeyComponentEntry.getTopKeyComponent(), multiKeyComponentEntry.getValue());
-        return true;
-      } else {
+      for (Object keyComponent : levelKeyComponents) {
+        checkKeyComponentClass(keyComponentProfile, keyComponent);
         if (removeValue) {
-          return this.bottomNode.remove(multiKeyComponentEntry.getTopKeyComponent(),
-                  multiKeyComponentEntry.getValue());
-        } else {
-          return false; // no overwriting of bottomNode values accepted
+          if (this.bottomNode.remove(keyComponent, value)) {
+            changeCount++;
+          }
+        } else if (!this.bottomNode.containsKey(keyComponent)) {
+          // no overwriting of bottomNode values accepted
+          this.bottomNode.put(keyComponent, value);
+          changeCount++;
         }
       }
     } else {
       if (this.middleNode == null) {
-        if (topKeyComponentProfile.getKeyComponentClassComparator() != null) {
-          middleNode = new TreeMap<Object, MapNode<V>>(
-                          topKeyComponentProfile.getKeyComponentClassComparator());
-        } else if (Comparable.class.isAssignableFrom(multiKeyComponentEntry.getTopKeyComponent().getClass())) {
-          middleNode = new TreeMap<Object, MapNode<V>>();
-        } else {
-          middleNode = new TreeMap<Object, MapNode<V>>(new HashCodeComparator());
+        if (removeValue) {
+          return 0;
         }
+        middleNode = newNodeMap(keyComponentProfile, levelKeyComponents[0]);
       }
-      MapNode<V> lowerMapNode
-              = this.middleNode.get(multiKeyComponentEntry.getTopKeyComponent());
-      MultiKeyComponentEntry<V> lowerMultiKeyComponentEntry
-              = multiKeyComponentEntry.getLowerEntry();
-      if (lowerMapNode == null) {
-        this.middleNode.put(multiKeyComponentEntry.getTopKeyComponent(),
-                new MapNode<V>(
-                        this.mapNodeTitle,
-                        this.getLowerKeyComponentProfileList(),
-                        lowerMultiKeyComponentEntry));
-        return true;
-      } else {
-        return lowerMapNode.putOrRemove(lowerMultiKeyComponentEntry, removeValue);
+      for (Object keyComponent : levelKeyComponents) {
+        checkKeyComponentClass(keyComponentProfile, keyComponent);
+        MapNode<V> lowerMapNode = this.middleNode.get(keyComponent);
+        if (lowerMapNode == null) {
+          if (removeValue) {
+            continue;
+          }
+          lowerMapNode = new MapNode<V>(this);
+          this.middleNode.put(keyComponent, lowerMapNode);
+        } else {
+          lowerMapNode = editableLowerMapNode(keyComponent, lowerMapNode);
+        }
+        changeCount
+                += lowerMapNode.putOrRemove(keyComponents, value, removeValue);
+        // prune emptied branches so that cached counts and ordered
+        // traversals never encounter vacant lower MapNodes
+        if (lowerMapNode.entryCount == 0) {
+          this.middleNode.remove(keyComponent);
+        }
       }
     }
+    entryCount += (removeValue ? -changeCount : changeCount);
+    return changeCount;
+  }
+
+  private void checkKeyComponentClass(KeyComponentProfile<V> keyComponentProfile,
+          Object keyComponent) {
+    if (!(keyComponentProfile.getKeyComponentBasis().
+                equals(KeyComponentProfile.KeyComponentBasis.IDENTITY)
+            || (keyComponentProfile.getKeyComponentClass().isAssignableFrom(keyComponent.getClass())))) {
+      throw new InternalError("Invalid keyComponent object "
+              + "submitted for 'put' into MapNode <" + getTitle()
+              + " LEVEL " + getDepth()
+              + ">. Requires a keyComponent object of class (or subclass of) <"
+              + keyComponentProfile.getKeyComponentClass().getSimpleName()
+              + ">. Class of the invalid submitted object is <"
+              + keyComponent.getClass().getSimpleName() + ">.");
+    }
   }
 
-  private LinkedList<KeyComponentProfile<V>> getLowerKeyComponentProfileList() {
-    if (keyComponentProfileList.isEmpty()) {
-      return keyComponentProfileList;
+  /**
+   * Constructs the TreeMap for one level of MapNode structures, ordered by the
+   * Comparator of the KeyComponentProfile (if one was stipulated), otherwise in
+   * natural order (if the keyComponent-objects are Comparable), otherwise in
+   * hashCode order.
+   */
+  private static <T> NavigableMap<Object, T> newNodeMap(
+          KeyComponentProfile<?> keyComponentProfile, Object sampleKeyComponent) {
+    if (keyComponentProfile.getKeyComponentClassComparator() != null) {
+      return new TreeMap<Object, T>(
+              keyComponentProfile.getKeyComponentClassComparator());
+    } else if (Comparable.class.isAssignableFrom(sampleKeyComponent.getClass())) {
+      return new TreeMap<Object, T>();
+    } else {
+      return new TreeMap<Object, T>(new HashCodeComparator());
     }
-    return new LinkedList<KeyComponentProfile<V>>(
-            keyComponentProfileList.subList(1, keyComponentProfileList.size()));
   }
 
   /**
@@ -243,20 +290,28 @@ class MapNode<V> implements Serializable, Cloneable {
    * KeyComponentProfile list.
    */
   int getDepth() {
-      return this.keyComponentProfileList.size();
+      return levelPlan.keyComponentProfiles.length - level;
   }
 
   /**
    * Get MapNode title for audit purposes
    *
-   * @return mapNodeTitle
+   * @return title of the LevelPlan shared by this MapNode
    */
   String getTitle() {
-    return this.mapNodeTitle;
+    return levelPlan.title;
   }
 
+  /**
+   * Get the KeyComponentProfiles governing this MapNode and the MapNodes
+   * below it, as a read-only view of the shared {@link LevelPlan}.
+   *
+   * @return read-only List of KeyComponentProfiles, starting with the
+   * KeyComponentProfile of this MapNode's level.
+   */
   List<KeyComponentProfile<V>> getKeyComponentProfileList() {
-    return this.keyComponentProfileList;
+    return levelPlan.keyComponentProfileList.subList(
+            level, levelPlan.keyComponentProfiles.length);
   }
 
   /**
@@ -266,16 +321,627 @@ class MapNode<V> implements Serializable, Cloneable {
    * @return All values contained in this MapNode, in ordered sequence.
    */
   final List<V> selectAll() {
-    List<V> vList = new ArrayList<V>();
-    if (bottomNode != null && !bottomNode.isEmpty()) {
-      vList.addAll(this.bottomNode.values());
+    List<V> vList = new ArrayList<V>(entryCount);
+    Iterator<V> valueIterator = valueIterator();
+    while (valueIterator.hasNext()) {
+      vList.add(valueIterator.next());
     }
-    if (middleNode != null && !middleNode.isEmpty()) {
-      for (MapNode<V> lowerMapNode : this.middleNode.values()) {
-        vList.addAll(lowerMapNode.selectAll());
+    return vList;
+  }
+
+  /**
+   * Invoked to get a read-only iterator over all values contained in this
+   * MapNode, in ordered sequence. Values are produced on demand via a
+   * depth-first walk of the MapNode structures; no list of values is built.
+   *
+   * @return iterator over all values contained in this MapNode, in ordered
+   * sequence.
+   */
+  final Iterator<V> valueIterator() {
+    return new OrderedWalker<V, V>(this) {
+      @Override
+      V current() {
+        return currentValue();
+      }
+    };
+  }
+
+  /**
+   * Invoked to get an ORDERED, SIZED and SUBSIZED Spliterator over all values
+   * contained in this MapNode, in ordered sequence (i.e., the sequence
+   * returned by {@link #selectAll()}). Splits are made along the boundaries of
+   * lower MapNodes (and, at the bottom level, by halving bottomNode ranges),
+   * and the size of each split-off portion is known exactly from cached entry
+   * counts; no list of values is built.
+   *
+   * @return Spliterator over all values contained in this MapNode, in ordered
+   * sequence.
+   */
+  final Spliterator<V> valueSpliterator() {
+    return new ValueSpliterator<V>(Collections.<Object>singletonList(this),
+            entryCount);
+  }
+
+  /**
+   * Invoked to get the lower MapNode reached by descending from this MapNode
+   * along the submitted keyComponent-objects (one per level, beginning with
+   * the level of this MapNode).
+   *
+   * @param keyPrefix keyComponent-objects of a composite-key prefix
+   * @return the lower MapNode beneath the composite-key prefix (this MapNode
+   * if the prefix is empty), or null if no entries have the prefix
+   * @throws IllegalArgumentException if the prefix is as long as the
+   * composite-key, or if any of its keyComponent-objects is null or not of
+   * the keyComponentClass of its level
+   */
+  final MapNode<V> lowerMapNode(Object... keyPrefix)
+          throws IllegalArgumentException {
+    checkKeyPattern(keyPrefix, false);
+    MapNode<V> currentMapNode = this;
+    for (int i = 0; i < keyPrefix.length; i++) {
+      if (currentMapNode.middleNode == null) {
+        return null;
+      }
+      currentMapNode = currentMapNode.middleNode.get(keyPrefix[i]);
+      if (currentMapNode == null) {
+        return null;
       }
     }
-    return vList;
+    return currentMapNode;
+  }
+
+  /**
+   * Invoked to get the entries of this MapNode whose composite-keys lie
+   * between the submitted composite-key prefixes, in lexicographic order of
+   * keyComponent-objects (a composite-key lies above a prefix if its leading
+   * keyComponent-objects lie above it, and beneath an inclusive upper prefix if
+   * they lie beneath or match it). The range is assembled by descending the
+   * lower MapNodes along each bound, the lower MapNodes strictly between the
+   * bounds being taken whole from TreeMap head/tail maps, so its cost is
+   * logarithmic in the size of this MapNode plus linear in the number of
+   * whole lower MapNodes.
+   *
+   * @param fromKeyPrefix lower bound, or null if unbounded below
+   * @param fromInclusive whether entries matching the lower bound are included
+   * @param toKeyPrefix upper bound, or null if unbounded above
+   * @param toInclusive whether entries matching the upper bound are included
+   * @return the entries between the bounds
+   * @throws IllegalArgumentException if either bound is not a valid
+   * composite-key prefix
+   */
+  final Range<V> range(Object[] fromKeyPrefix, boolean fromInclusive,
+          Object[] toKeyPrefix, boolean toInclusive)
+          throws IllegalArgumentException {
+    if (fromKeyPrefix != null) {
+      checkKeyPattern(fromKeyPrefix, false);
+    }
+    if (toKeyPrefix != null) {
+      checkKeyPattern(toKeyPrefix, false);
+    }
+    Range<V> range = new Range<V>();
+    collectRange(fromKeyPrefix, fromInclusive, toKeyPrefix, toInclusive,
+            new Object[getDepth()], 0, range);
+    return range;
+  }
+
+  private void collectRange(Object[] fromKeyPrefix, boolean fromInclusive,
+          Object[] toKeyPrefix, boolean toInclusive, Object[] keyPath,
+          int keyPathLength, Range<V> range) {
+    // a bound whose every keyComponent-object has been matched either admits
+    // everything beneath this MapNode or nothing
+    if (fromKeyPrefix != null && keyPathLength == fromKeyPrefix.length) {
+      if (!fromInclusive) {
+        return;
+      }
+      fromKeyPrefix = null;
+    }
+    if (toKeyPrefix != null && keyPathLength == toKeyPrefix.length) {
+      if (!toInclusive) {
+        return;
+      }
+      toKeyPrefix = null;
+    }
+    if (fromKeyPrefix == null && toKeyPrefix == null) {
+      range.add(keyPath, keyPathLength, this);
+      return;
+    }
+    if (middleNode == null) {
+      return;
+    }
+    Object fromKey = (fromKeyPrefix == null) ? null : fromKeyPrefix[keyPathLength];
+    Object toKey = (toKeyPrefix == null) ? null : toKeyPrefix[keyPathLength];
+    if (fromKey != null && toKey != null) {
+      int comparison = nodeMapComparison(middleNode, fromKey, toKey);
+      if (comparison > 0) {
+        return;
+      }
+      if (comparison == 0) {
+        collectLowerRange(fromKey, fromKeyPrefix, fromInclusive,
+                toKeyPrefix, toInclusive, keyPath, keyPathLength, range);
+        return;
+      }
+    }
+    NavigableMap<Object, MapNode<V>> innerMiddleNode = middleNode;
+    if (fromKey != null) {
+      collectLowerRange(fromKey, fromKeyPrefix, fromInclusive, null, false,
+              keyPath, keyPathLength, range);
+      innerMiddleNode = innerMiddleNode.tailMap(fromKey, false);
+    }
+    if (toKey != null) {
+      innerMiddleNode = innerMiddleNode.headMap(toKey, false);
+    }
+    for (Map.Entry<Object, MapNode<V>> lowerEntry : innerMiddleNode.entrySet()) {
+      keyPath[keyPathLength] = lowerEntry.getKey();
+      range.add(keyPath, keyPathLength + 1, lowerEntry.getValue());
+    }
+    if (toKey != null) {
+      collectLowerRange(toKey, null, false, toKeyPrefix, toInclusive,
+              keyPath, keyPathLength, range);
+    }
+  }
+
+  private void collectLowerRange(Object key, Object[] fromKeyPrefix,
+          boolean fromInclusive, Object[] toKeyPrefix, boolean toInclusive,
+          Object[] keyPath, int keyPathLength, Range<V> range) {
+    Map.Entry<Object, MapNode<V>> lowerEntry = middleNode.ceilingEntry(key);
+    if (lowerEntry == null
+            || nodeMapComparison(middleNode, lowerEntry.getKey(), key) != 0) {
+      return;
+    }
+    keyPath[keyPathLength] = lowerEntry.getKey();
+    lowerEntry.getValue().collectRange(fromKeyPrefix, fromInclusive,
+            toKeyPrefix, toInclusive, keyPath, keyPathLength + 1, range);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int nodeMapComparison(NavigableMap<Object, ?> nodeMap,
+          Object keyComponent, Object otherKeyComponent) {
+    Comparator<Object> comparator = (Comparator<Object>)nodeMap.comparator();
+    return (comparator == null)
+            ? NaturalOrderComparator.INSTANCE.compare(keyComponent, otherKeyComponent)
+            : comparator.compare(keyComponent, otherKeyComponent);
+  }
+
+  /**
+   * Invoked to get the entry of this MapNode nearest to the submitted
+   * (complete or partial) composite-key in the submitted direction: the
+   * first entry at or after it (ceiling), the first entry after it (higher),
+   * the last entry at or before it (floor) or the last entry before it
+   * (lower). An entry is "at" a partial composite-key if its composite-key
+   * begins with it; the empty composite-key thus yields the first or last
+   * entry. The MapNodes are descended along the composite-key via
+   * ceiling/floor lookups, falling back at most once per level to the next
+   * higher (or lower) keyComponent-object, so the cost is proportional to
+   * the depth of this MapNode times the logarithm of its fanout.
+   *
+   * @param keyPrefix keyComponent-objects of a complete or partial
+   * composite-key (the last of a complete composite-key being a value)
+   * @param ascending {@code true} for ceiling/higher, {@code false} for
+   * floor/lower
+   * @param inclusive {@code true} for ceiling/floor, {@code false} for
+   * higher/lower
+   * @return the nearest entry, or null if there is none
+   * @throws IllegalArgumentException if the composite-key is longer than
+   * that of this MapNode, or if any of its keyComponent-objects is null or
+   * not of the keyComponentClass of its level
+   */
+  final Map.Entry<List<Object>,V> nearestEntry(Object[] keyPrefix,
+          boolean ascending, boolean inclusive) throws IllegalArgumentException {
+    checkKeyPattern(keyPrefix, getDepth(), false);
+    Object[] keyPath = new Object[getDepth()];
+    V value = nearestValue(keyPrefix, keyPath, 0, ascending, inclusive);
+    if (value == null) {
+      return null;
+    }
+    return new AbstractMap.SimpleImmutableEntry<List<Object>,V>(
+            Arrays.asList(keyPath), value);
+  }
+
+  private V nearestValue(Object[] keyPrefix, Object[] keyPath,
+          int keyPathLength, boolean ascending, boolean inclusive) {
+    if (keyPathLength == keyPrefix.length) {
+      // every entry beneath this MapNode begins with the composite-key
+      return inclusive ? extremeValue(keyPath, keyPathLength, ascending) : null;
+    }
+    Object key = keyPrefix[keyPathLength];
+    if (bottomNode != null) {
+      Map.Entry<Object, V> bottomEntry = ascending
+              ? (inclusive ? bottomNode.ceilingEntry(key) : bottomNode.higherEntry(key))
+              : (inclusive ? bottomNode.floorEntry(key) : bottomNode.lowerEntry(key));
+      if (bottomEntry == null) {
+        return null;
+      }
+      keyPath[keyPathLength] = bottomEntry.getKey();
+      return bottomEntry.getValue();
+    }
+    if (middleNode == null) {
+      return null;
+    }
+    Map.Entry<Object, MapNode<V>> lowerEntry = ascending
+            ? middleNode.ceilingEntry(key) : middleNode.floorEntry(key);
+    if (lowerEntry != null
+            && nodeMapComparison(middleNode, lowerEntry.getKey(), key) == 0) {
+      keyPath[keyPathLength] = lowerEntry.getKey();
+      V value = lowerEntry.getValue().nearestValue(keyPrefix, keyPath,
+              keyPathLength + 1, ascending, inclusive);
+      if (value != null) {
+        return value;
+      }
+      lowerEntry = ascending
+              ? middleNode.higherEntry(key) : middleNode.lowerEntry(key);
+    }
+    if (lowerEntry == null) {
+      return null;
+    }
+    keyPath[keyPathLength] = lowerEntry.getKey();
+    return lowerEntry.getValue().extremeValue(keyPath, keyPathLength + 1,
+            ascending);
+  }
+
+  /**
+   * Invoked to collect a page of (at most <i>limit</i>) values of the
+   * entries following the submitted composite-key, in ordered sequence. The
+   * MapNodes are descended along the composite-key once, and the following
+   * entries are then visited in place, so the cost is proportional to the
+   * depth of this MapNode times the logarithm of its fanout, plus the size of
+   * the page.
+   *
+   * @param afterCompositeKey keyComponent-objects of the composite-key which
+   * the page follows (the last being a value), or null for the first page
+   * @param limit maximum number of values to be collected
+   * @param pageValues List to which the values of the page are added
+   * @return composite-key of the last entry of the page if an entry follows
+   * it, otherwise null
+   * @throws IllegalArgumentException if the composite-key is longer than
+   * that of this MapNode, or if any of its keyComponent-objects is null or
+   * not of the keyComponentClass of its level
+   */
+  final Object[] collectPage(Object[] afterCompositeKey, int limit,
+          List<V> pageValues) throws IllegalArgumentException {
+    if (afterCompositeKey != null) {
+      checkKeyPattern(afterCompositeKey, getDepth(), false);
+    }
+    PageCollector<V> collector = new PageCollector<V>(limit, pageValues);
+    collectFollowing(afterCompositeKey, new Object[getDepth()], 0, collector);
+    return collector.hasNext ? collector.lastCompositeKey : null;
+  }
+
+  /**
+   * Presents to the collector the entries beneath this MapNode which follow
+   * the submitted composite-key (or all of them, if it is null), returning
+   * {@code true} once the collector is full.
+   */
+  private boolean collectFollowing(Object[] afterCompositeKey, Object[] keyPath,
+          int keyPathLength, PageCollector<V> collector) {
+    if (afterCompositeKey != null && keyPathLength == afterCompositeKey.length) {
+      // every entry beneath this MapNode begins with the composite-key
+      return false;
+    }
+    Object afterKey = (afterCompositeKey == null)
+            ? null : afterCompositeKey[keyPathLength];
+    if (bottomNode != null) {
+      NavigableMap<Object, V> followingBottomNode = (afterKey == null)
+              ? bottomNode : bottomNode.tailMap(afterKey, false);
+      for (Map.Entry<Object, V> bottomEntry : followingBottomNode.entrySet()) {
+        keyPath[keyPathLength] = bottomEntry.getKey();
+        if (collector.isFull(bottomEntry.getValue(), keyPath)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (middleNode == null) {
+      return false;
+    }
+    NavigableMap<Object, MapNode<V>> followingMiddleNode = (afterKey == null)
+            ? middleNode : middleNode.tailMap(afterKey, true);
+    for (Map.Entry<Object, MapNode<V>> lowerEntry
+            : followingMiddleNode.entrySet()) {
+      keyPath[keyPathLength] = lowerEntry.getKey();
+      // only a lower MapNode matching the composite-key is bounded by it
+      Object[] lowerAfterCompositeKey = (afterKey != null && nodeMapComparison(
+              middleNode, lowerEntry.getKey(), afterKey) == 0)
+              ? afterCompositeKey : null;
+      if (lowerEntry.getValue().collectFollowing(lowerAfterCompositeKey,
+              keyPath, keyPathLength + 1, collector)) {
+        return true;
+      }
+      afterKey = null;
+    }
+    return false;
+  }
+
+  private V extremeValue(Object[] keyPath, int keyPathLength, boolean ascending) {
+    MapNode<V> currentMapNode = this;
+    while (currentMapNode.middleNode != null) {
+      Map.Entry<Object, MapNode<V>> lowerEntry = ascending
+              ? currentMapNode.middleNode.firstEntry()
+              : currentMapNode.middleNode.lastEntry();
+      if (lowerEntry == null) {
+        return null;
+      }
+      keyPath[keyPathLength++] = lowerEntry.getKey();
+      currentMapNode = lowerEntry.getValue();
+    }
+    if (currentMapNode.bottomNode == null) {
+      return null;
+    }
+    Map.Entry<Object, V> bottomEntry = ascending
+            ? currentMapNode.bottomNode.firstEntry()
+            : currentMapNode.bottomNode.lastEntry();
+    if (bottomEntry == null) {
+      return null;
+    }
+    keyPath[keyPathLength] = bottomEntry.getKey();
+    return bottomEntry.getValue();
+  }
+
+  /**
+   * Invoked to get the distinct values whose composite-keys match the
+   * submitted pattern of keyComponent-objects (one per level, beginning with
+   * the level of this MapNode), in ordered sequence; a null element of the
+   * pattern matches any keyComponent-object, as do all levels beyond the end
+   * of the pattern. Levels with a keyComponent-object are descended
+   * directly, and wildcard levels by scanning their lower MapNodes.
+   * <br><br>
+   * A value occurs at every composite-key in the cartesian product of its
+   * indexed keyComponent-objects, so its first occurrence in ordered sequence
+   * is the one at which, on every wildcard level, its keyComponent-object is
+   * its lowest. Where the indexed keyComponent-objects of a value are
+   * retained, only that occurrence is selected, with no set of
+   * already-selected values being built; otherwise each value is selected at
+   * the first occurrence not already held in an identity-based set.
+   * keyComponent-objects are never re-extracted from the values, so values
+   * modified since they were indexed are selected exactly once.
+   *
+   * @param retainedKeyComponents the indexed keyComponent-objects of each
+   * value (indexed by level), or null if they are not retained
+   * @param keyPattern keyComponent-objects (or nulls) of a composite-key
+   * pattern
+   * @return distinct values matching the pattern, in order of first occurrence
+   * @throws IllegalArgumentException if the pattern is as long as the
+   * composite-key, or if any of its keyComponent-objects is not of the
+   * keyComponentClass of its level
+   */
+  final List<V> selectDistinctMatching(
+          Map<V, Object[][]> retainedKeyComponents, Object... keyPattern)
+          throws IllegalArgumentException {
+    checkKeyPattern(keyPattern, true);
+    DistinctMatchCollector<V> collector = new DistinctMatchCollector<V>(
+            retainedKeyComponents, keyPattern, level, new ArrayList<V>());
+    visitMatching(keyPattern, level, collector);
+    return collector.matchingValues;
+  }
+
+  /**
+   * Invoked to count the distinct values whose composite-keys match the
+   * submitted pattern (see {@link #selectDistinctMatching}), without
+   * collecting them.
+   *
+   * @param retainedKeyComponents the indexed keyComponent-objects of each
+   * value (indexed by level), or null if they are not retained
+   * @param keyPattern keyComponent-objects (or nulls) of a composite-key
+   * pattern
+   * @return number of distinct values matching the pattern
+   * @throws IllegalArgumentException if the pattern is not valid
+   */
+  final int countDistinctMatching(
+          Map<V, Object[][]> retainedKeyComponents, Object... keyPattern)
+          throws IllegalArgumentException {
+    checkKeyPattern(keyPattern, true);
+    DistinctMatchCollector<V> collector = new DistinctMatchCollector<V>(
+            retainedKeyComponents, keyPattern, level, null);
+    visitMatching(keyPattern, level, collector);
+    return collector.matchingCount;
+  }
+
+  /**
+   * Invoked to get, for each keyComponent-object of the submitted level
+   * under which any value whose composite-keys match the submitted pattern
+   * (see {@link #selectDistinctMatching}) is indexed, the distinct such
+   * values indexed under it. The keyComponent-objects are those under which
+   * the values are indexed (never re-extracted from the values), so values
+   * modified since they were indexed are attributed consistently with the
+   * ordering. The level is scanned as a wildcard, and a keyComponent-object
+   * which the pattern stipulates for it is then applied as a restriction to
+   * the values indexed under it, so that all keyComponent-objects of the
+   * matching values are included.
+   *
+   * @param keyComponentLevel level (relative to that of this MapNode) of the
+   * keyComponent-objects
+   * @param comparator Comparator by which the keyComponent-objects are to
+   * be ordered
+   * @param keyPattern keyComponent-objects (or nulls) of a composite-key
+   * pattern
+   * @return identity-based Sets of the matching values, by keyComponent-object
+   * @throws IllegalArgumentException if the pattern is not valid
+   */
+  final NavigableMap<Object, Set<V>> selectDistinctMatchingByKeyComponent(
+          int keyComponentLevel, Comparator<? super Object> comparator,
+          Object... keyPattern)
+          throws IllegalArgumentException {
+    checkKeyPattern(keyPattern, true);
+    Object restrictingKey = null;
+    if (keyComponentLevel < keyPattern.length
+            && keyPattern[keyComponentLevel] != null) {
+      restrictingKey = keyPattern[keyComponentLevel];
+      keyPattern = keyPattern.clone();
+      keyPattern[keyComponentLevel] = null;
+    }
+    KeyComponentOccurrenceCollector<V> collector
+            = new KeyComponentOccurrenceCollector<V>(keyComponentLevel,
+                    new TreeMap<Object, Set<V>>(comparator));
+    visitMatching(keyPattern, level, collector);
+    NavigableMap<Object, Set<V>> valuesByKeyComponent
+            = collector.valuesByKeyComponent;
+    if (restrictingKey != null) {
+      Set<V> restrictingValues = valuesByKeyComponent.get(restrictingKey);
+      if (restrictingValues == null) {
+        valuesByKeyComponent.clear();
+        return valuesByKeyComponent;
+      }
+      Iterator<Set<V>> valueSetIterator
+              = valuesByKeyComponent.values().iterator();
+      while (valueSetIterator.hasNext()) {
+        Set<V> values = valueSetIterator.next();
+        if (values != restrictingValues) {
+          values.retainAll(restrictingValues);
+          if (values.isEmpty()) {
+            valueSetIterator.remove();
+          }
+        }
+      }
+    }
+    return valuesByKeyComponent;
+  }
+
+  /**
+   * Invoked to count the entries (composite-keys) matching the submitted
+   * pattern of keyComponent-objects, in which a null element matches any
+   * keyComponent-object. Subtrees beneath the last non-null element of the
+   * pattern are not visited, their cached entry counts being read instead;
+   * only the levels with wildcards above that element are scanned.
+   *
+   * @param keyPattern keyComponent-objects (or nulls) of a composite-key
+   * pattern
+   * @param stopAtFirstMatch if {@code true}, the count stops at the first
+   * MapNode with matching entries (so the result is zero only if there are
+   * no matching entries)
+   * @return number of matching entries
+   * @throws IllegalArgumentException if the pattern is not valid
+   */
+  final int countMatching(Object[] keyPattern, boolean stopAtFirstMatch)
+          throws IllegalArgumentException {
+    checkKeyPattern(keyPattern, true);
+    int patternLength = keyPattern.length;
+    while (patternLength > 0 && keyPattern[patternLength - 1] == null) {
+      patternLength--;
+    }
+    return countMatching(keyPattern, patternLength, 0, stopAtFirstMatch);
+  }
+
+  private int countMatching(Object[] keyPattern, int patternLength,
+          int patternIndex, boolean stopAtFirstMatch) {
+    if (patternIndex == patternLength) {
+      return entryCount;
+    }
+    if (middleNode == null) {
+      return 0;
+    }
+    if (keyPattern[patternIndex] != null) {
+      MapNode<V> lowerMapNode = middleNode.get(keyPattern[patternIndex]);
+      return (lowerMapNode == null) ? 0 : lowerMapNode.countMatching(
+              keyPattern, patternLength, patternIndex + 1, stopAtFirstMatch);
+    }
+    int matchingCount = 0;
+    for (MapNode<V> lowerMapNode : middleNode.values()) {
+      matchingCount += lowerMapNode.countMatching(
+              keyPattern, patternLength, patternIndex + 1, stopAtFirstMatch);
+      if (stopAtFirstMatch && matchingCount > 0) {
+        break;
+      }
+    }
+    return matchingCount;
+  }
+
+  /**
+   * Descends (or, at wildcard levels, scans) the lower MapNodes matching the
+   * submitted pattern, presenting each matching entry to the visitor in
+   * ordered sequence.
+   */
+  @SuppressWarnings("unchecked")
+  private void visitMatching(Object[] keyPattern, int patternLevel,
+          MatchVisitor<V> visitor) {
+    visitMatching(keyPattern, patternLevel, new Object[getDepth()],
+            new Comparator[getDepth()], visitor);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void visitMatching(Object[] keyPattern, int patternLevel,
+          Object[] keyPath, Comparator<Object>[] levelComparators,
+          MatchVisitor<V> visitor) {
+    if (bottomNode != null) {
+      for (V value : bottomNode.values()) {
+        visitor.visit(value, keyPath, levelComparators);
+      }
+    }
+    if (middleNode == null) {
+      return;
+    }
+    int patternIndex = level - patternLevel;
+    levelComparators[patternIndex] = (middleNode.comparator() == null)
+            ? NaturalOrderComparator.INSTANCE
+            : (Comparator<Object>)middleNode.comparator();
+    Object patternKey
+            = (patternIndex < keyPattern.length) ? keyPattern[patternIndex] : null;
+    if (patternKey != null) {
+      MapNode<V> lowerMapNode = middleNode.get(patternKey);
+      if (lowerMapNode != null) {
+        keyPath[patternIndex] = patternKey;
+        lowerMapNode.visitMatching(keyPattern, patternLevel, keyPath,
+                levelComparators, visitor);
+      }
+      return;
+    }
+    for (Map.Entry<Object, MapNode<V>> lowerEntry : middleNode.entrySet()) {
+      keyPath[patternIndex] = lowerEntry.getKey();
+      lowerEntry.getValue().visitMatching(keyPattern, patternLevel, keyPath,
+              levelComparators, visitor);
+    }
+  }
+
+  void checkKeyPattern(Object[] keyPattern, boolean wildcardsAllowed)
+          throws IllegalArgumentException {
+    checkKeyPattern(keyPattern, getDepth() - 1, wildcardsAllowed);
+  }
+
+  private void checkKeyPattern(Object[] keyPattern, int maximumLength,
+          boolean wildcardsAllowed) throws IllegalArgumentException {
+    if (keyPattern.length > maximumLength) {
+      throw new IllegalArgumentException("A composite-key prefix of MapNode <"
+              + getTitle() + "> may comprise at most " + maximumLength
+              + " keyComponent-objects; " + keyPattern.length
+              + " were submitted.");
+    }
+    for (int i = 0; i < keyPattern.length; i++) {
+      if (keyPattern[i] == null && wildcardsAllowed) {
+        continue;
+      }
+      Class<?> keyComponentClass
+              = levelPlan.keyComponentProfiles[level + i].getKeyComponentClass();
+      if (keyPattern[i] == null
+              || !keyComponentClass.isAssignableFrom(keyPattern[i].getClass())) {
+        throw new IllegalArgumentException("KeyComponentProfile " + (i + 1)
+                + " of MapNode <" + getTitle() + "> requires a keyComponent "
+                + "object of class (or subclass of) <"
+                + keyComponentClass.getSimpleName() + ">; submitted object is <"
+                + keyPattern[i] + ">.");
+      }
+    }
+  }
+
+  /**
+   * Invoked to get the distinct values beneath the submitted top-level
+   * keyComponent-object, in ordered sequence (the first occurrence of each
+   * value being retained).
+   *
+   * @param keyComponentObject object of the first keyComponentClass
+   * @return distinct values beneath the submitted keyComponent-object
+   * @throws IllegalArgumentException if keyComponentObject is not of the first
+   * keyComponentClass
+   */
+  final List<V> selectDistinct(Object keyComponentObject)
+          throws IllegalArgumentException {
+    Class<?> keyComponentClass
+            = levelPlan.keyComponentProfiles[level].getKeyComponentClass();
+    if (!keyComponentClass.isAssignableFrom(keyComponentObject.getClass())) {
+      throw new IllegalArgumentException("First KeyComponentProfile "
+              + "of this OrderedSet is based on Class : <"
+              + keyComponentClass
+              + ">. It is NOT based on Class of submitted keyComponentObject: <"
+              + keyComponentObject.getClass().getName() + ">.");
+    }
+    return new ArrayList<V>(new LinkedHashSet<V>(get(keyComponentObject)));
   }
 
   /**
@@ -334,139 +1000,630 @@ class MapNode<V> implements Serializable, Cloneable {
    * that it and its children MapNodes contain.
    */
   int size() {
-    int size = 0;
-    if (bottomNode != null && !bottomNode.isEmpty()) {
-      size += this.bottomNode.size();
+    return entryCount;
+  }
+
+  /**
+   * Invoked to get the value at the submitted position in the ordered
+   * sequence of all values contained in this MapNode (i.e., the
+   * sequence returned by {@link #selectAll()}). Descent through the MapNode
+   * structures is guided by the cached entry counts of lower MapNodes, so
+   * no intermediate list of values is built.
+   *
+   * @param index position of the value in composite-key order
+   * @return the value at the submitted position
+   * @throws IndexOutOfBoundsException if index is out of range
+   */
+  final V get(int index) {
+    if (index < 0 || index >= entryCount) {
+      throw new IndexOutOfBoundsException("Index: " + index
+              + ", Size: " + entryCount);
     }
-    if (middleNode != null && !middleNode.isEmpty()) {
-      for (MapNode<V> lowerMapNode : this.middleNode.values()) {
-        size += lowerMapNode.size();
+    MapNode<V> currentMapNode = this;
+    int remainingIndex = index;
+    descent:
+    while (true) {
+      if (currentMapNode.bottomNode != null) {
+        if (remainingIndex < currentMapNode.bottomNode.size()) {
+          for (V value : currentMapNode.bottomNode.values()) {
+            if (remainingIndex-- == 0) {
+              return value;
+            }
+          }
+        }
+        remainingIndex -= currentMapNode.bottomNode.size();
+      }
+      if (currentMapNode.middleNode != null) {
+        for (MapNode<V> lowerMapNode : currentMapNode.middleNode.values()) {
+          if (remainingIndex < lowerMapNode.entryCount) {
+            currentMapNode = lowerMapNode;
+            continue descent;
+          }
+          remainingIndex -= lowerMapNode.entryCount;
+        }
       }
+      throw new InternalError("Cached entry counts of MapNode <"
+              + getTitle() + "> are inconsistent with its contents.");
     }
-    return size;
   }
 
-  private Set<MultiKeyComponentEntry<V>> getMultiKeyComponentEntries() {
-    Set<MultiKeyComponentEntry<V>> multiKeyComponentEntries
-            = new LinkedHashSet<MultiKeyComponentEntry<V>>();
-    if (bottomNode != null && !bottomNode.isEmpty()) {
-      for (Entry<Object, V> entry : bottomNode.entrySet()) {
-        multiKeyComponentEntries.add(
-                new MultiKeyComponentEntry<V>(entry.getValue(), entry.getKey()));
+  /**
+   * Invoked to get the position of the first occurrence of the submitted
+   * value in the ordered sequence of all values contained in this MapNode
+   * (i.e., the sequence returned by {@link #selectAll()}). Only the branches
+   * keyed by the value's own key components are visited; the entries
+   * preceding each of them are tallied from cached entry counts.
+   *
+   * @param value valueClass object
+   * @param keyComponentsByLevel keyComponent-objects under which the value is
+   * indexed, by level (as returned by
+   * {@link #extractKeyComponents(java.lang.Object)}, or as retained when the
+   * value was indexed)
+   * @return position of the first occurrence of the value, or -1 if the
+   * value is not contained in this MapNode
+   */
+  final int indexOf(V value, Object[][] keyComponentsByLevel) {
+    int lowestIndex = -1;
+    Object[] keyComponents = keyComponentsByLevel[level];
+    if (bottomNode != null) {
+      for (Object keyComponent : keyComponents) {
+        V bottomNodeValue = bottomNode.get(keyComponent);
+        if (bottomNodeValue != null && bottomNodeValue.equals(value)) {
+          int index = bottomNode.headMap(keyComponent, false).size();
+          if (lowestIndex < 0 || index < lowestIndex) {
+            lowestIndex = index;
+          }
+        }
       }
     }
-    if (middleNode != null && !middleNode.isEmpty()) {
-      for (Entry<Object, MapNode<V>> entry
-              : this.middleNode.entrySet()) {
-        Set<MultiKeyComponentEntry<V>> lowerMultiKeyComponentEntries
-                = entry.getValue().getMultiKeyComponentEntries();
-        for (MultiKeyComponentEntry<V> lowerMultiKeyComponentEntry
-                : lowerMultiKeyComponentEntries) {
-          lowerMultiKeyComponentEntry.putTopKeyComponent(entry.getKey());
-          multiKeyComponentEntries.add(lowerMultiKeyComponentEntry);
+    if (middleNode != null) {
+      int bottomNodeSize = (bottomNode == null) ? 0 : bottomNode.size();
+      for (Object keyComponent : keyComponents) {
+        MapNode<V> lowerMapNode = middleNode.get(keyComponent);
+        if (lowerMapNode == null) {
+          continue;
+        }
+        int lowerIndex = lowerMapNode.indexOf(value, keyComponentsByLevel);
+        if (lowerIndex < 0) {
+          continue;
+        }
+        int index = bottomNodeSize + lowerIndex;
+        for (MapNode<V> precedingMapNode
+                : middleNode.headMap(keyComponent, false).values()) {
+          index += precedingMapNode.entryCount;
+        }
+        if (lowestIndex < 0 || index < lowestIndex) {
+          lowestIndex = index;
         }
       }
     }
-    return multiKeyComponentEntries;
+    return lowestIndex;
   }
 
-  final Set<Map.Entry<List<Object>,V>> getEntrySet() {
-    Map<List<Object>,V> keyListToValueMap = new LinkedHashMap<List<Object>,V>();
-    for (MultiKeyComponentEntry<V> multiKeyComponentEntry :
-            getMultiKeyComponentEntries()) {
-      keyListToValueMap.put(
-              multiKeyComponentEntry.getKeyComponentList(),
-              multiKeyComponentEntry.getValue());
-    }
-    return keyListToValueMap.entrySet();
+  /**
+   * Invoked to get a read-only iterator over all entries contained in this
+   * MapNode, in ordered sequence. Each entry pairs a composite-key (a List of
+   * keyComponent-objects) with the value to which it is mapped. Composite-keys
+   * are assembled incrementally in a single path buffer during a depth-first
+   * walk of the MapNode structures; each entry receives its own copy of the
+   * buffer.
+   *
+   * @return iterator over all entries contained in this MapNode, in ordered
+   * sequence.
+   */
+  final Iterator<Map.Entry<List<Object>,V>> entryIterator() {
+    return new OrderedWalker<V, Map.Entry<List<Object>,V>>(this) {
+      @Override
+      Map.Entry<List<Object>,V> current() {
+        return new AbstractMap.SimpleImmutableEntry<List<Object>,V>(
+                currentKeyComponentList(), currentValue());
+      }
+    };
   }
 
-  final Set<List<Object>> getKeyComponentLists() {
-    Set<List<Object>> keyComponentLists = new LinkedHashSet<List<Object>>();
-    for (MultiKeyComponentEntry<V> multiKeyComponentEntry :
-            getMultiKeyComponentEntries()) {
-      keyComponentLists.add(multiKeyComponentEntry.getKeyComponentList());
+  /**
+   * Invoked to get a read-only iterator over the composite-keys of all entries
+   * contained in this MapNode, in ordered sequence.
+   *
+   * @return iterator over composite-keys (Lists of keyComponent-objects), in
+   * ordered sequence.
+   */
+  final Iterator<List<Object>> keyComponentListIterator() {
+    return new OrderedWalker<V, List<Object>>(this) {
+      @Override
+      List<Object> current() {
+        return currentKeyComponentList();
+      }
+    };
+  }
+
+  /**
+   * Retrieves the keyComponent-objects of the submitted value for each level
+   * of this MapNode (and its descendants) in a single pass; the resulting
+   * array is indexed by absolute level, and any level with no
+   * keyComponent-objects is represented by a zero-length array.
+   *
+   * @param value valueClass object
+   * @return keyComponent-objects of the value, indexed by level
+   */
+  final Object[][] extractKeyComponents(V value) {
+    KeyComponentProfile<V>[] keyComponentProfiles = levelPlan.keyComponentProfiles;
+    Object[][] keyComponents = new Object[keyComponentProfiles.length][];
+    for (int i = level; i < keyComponents.length; i++) {
+      keyComponents[i] = keyComponentProfiles[i].getKeyComponents(value);
     }
-    return keyComponentLists;
+    return keyComponents;
   }
 
   /**
    * Automap adds or removes the submitted value object to the MapNode structures.
+   * The keyComponent-objects of the value are retrieved once per level, after
+   * which every resulting composite-key entry is put (or removed) in a single
+   * descent of the MapNode structures.
    *
    * @param value valueClass object
-   * @return {@code true} if value successfully added
+   * @param removeValue if {@code true}, the value is removed rather than added
+   * @return number of composite-key entries actually added (or removed)
    */
-  final boolean autoMap(V value, boolean removeValue) {
-    LinkedList<KeyComponentProfile> keyComponentProfileLinkedList
-            = new LinkedList<KeyComponentProfile>(keyComponentProfileList);
-    return buildAndPutEntry(value, keyComponentProfileLinkedList,
-            new LinkedList<Object>(), removeValue);
+  final int autoMap(V value, boolean removeValue) {
+    return autoMap(value, extractKeyComponents(value), removeValue);
   }
 
   /**
-   * This method is invoked recursively to build one or multiple sets of (value,
-   * keyComponentList) combinations, and ultimately to submit each completed set
-   * to the MapNode's #putOrRemove method.
+   * Adds or removes the submitted value object to the MapNode structures,
+   * using keyComponent-objects previously retrieved via
+   * {@link #extractKeyComponents(java.lang.Object)}.
    *
-   * @param value The Object (of class {@literal <V>}) which is being ordered.
-   * @param keyComponentProfileLinkedList With each recursive invocation, the
-   * top getMethod is "popped" off of the top of this list, and the getMethod
-   * invoke. A final recursion is identified by the fact that the list is empty;
-   * at that point, a (value, keyComponentList) combination is submitted to the
-   * #putOrRemove method.
-   * @param keyComponentList List of keyComponent-objects assembled in the
-   * recursive invocations of this method.
-   * @return {@code true} if final puts are all successful
+   * @param value valueClass object
+   * @param keyComponents keyComponent-objects of the value, indexed by level
+   * @param removeValue if {@code true}, the value is removed rather than added
+   * @return number of composite-key entries actually added (or removed)
    */
-  private boolean buildAndPutEntry(V value,
-          LinkedList<KeyComponentProfile> keyComponentProfileLinkedList,
-          LinkedList<Object> keyComponentList, boolean removeValue) {
-
-    if (keyComponentProfileLinkedList.isEmpty()) {
-      return putOrRemove(new MultiKeyComponentEntry<V>(keyComponentList, value), removeValue);
-    }
-
-    boolean allPutsSuccessful = true;
-
-    Set<Object> keyComponentSet
-            = keyComponentProfileLinkedList.removeFirst().getKeyComponentSet(value);
-    for (Object keyComponent : keyComponentSet) {
-      LinkedList<KeyComponentProfile> copyOfKeyComponentProfileLinkedList
-              = new LinkedList<KeyComponentProfile>(keyComponentProfileLinkedList);
-      LinkedList<Object> copyOfKeyComponentList
-              = new LinkedList<Object>(keyComponentList);
-      copyOfKeyComponentList.add(keyComponent);
-      boolean putsSuccessful
-              = buildAndPutEntry(value,
-                      copyOfKeyComponentProfileLinkedList,
-                      copyOfKeyComponentList, removeValue);
-      if (!putsSuccessful) {
-        allPutsSuccessful = false;
+  final int autoMap(V value, Object[][] keyComponents, boolean removeValue) {
+    for (int i = level; i < keyComponents.length; i++) {
+      if (keyComponents[i].length == 0) {
+        return 0; // no composite-key can be formed for this value
       }
     }
-    return allPutsSuccessful;
+    return putOrRemove(keyComponents, value, removeValue);
   }
 
-  MapNode<V> cloneWithoutValues() {
-    return new MapNode<V>(mapNodeTitle,
-            keyComponentProfileList.toArray(
-                    new KeyComponentProfile[keyComponentProfileList.size()]));
+  /**
+   * Re-indexes the submitted value, whose keyComponent-objects have changed
+   * from <i>oldKeyComponents</i> to <i>newKeyComponents</i>. Only the branches
+   * keyed by keyComponent-objects which were added or dropped (at the level
+   * at which they changed) are visited; entries whose composite-keys are
+   * unchanged are left in place.
+   *
+   * @param value valueClass object
+   * @param oldKeyComponents keyComponent-objects with which the value was
+   * mapped, indexed by level
+   * @param newKeyComponents keyComponent-objects with which the value is to be
+   * mapped, indexed by level
+   * @return net change in the number of composite-key entries
+   */
+  final int reindex(V value, Object[][] oldKeyComponents,
+          Object[][] newKeyComponents) {
+    boolean oldKeysMapped = true;
+    boolean newKeysMapped = true;
+    int lastChangedLevel = -1;
+    for (int i = level; i < oldKeyComponents.length; i++) {
+      oldKeysMapped &= (oldKeyComponents[i].length > 0);
+      newKeysMapped &= (newKeyComponents[i].length > 0);
+      if (keyComponentsMissingFrom(oldKeyComponents[i], newKeyComponents[i]).length > 0
+              || keyComponentsMissingFrom(
+                      newKeyComponents[i], oldKeyComponents[i]).length > 0) {
+        lastChangedLevel = i;
+      }
+    }
+    if (!oldKeysMapped) {
+      return newKeysMapped ? putOrRemove(newKeyComponents, value, false) : 0;
+    }
+    if (!newKeysMapped) {
+      return -putOrRemove(oldKeyComponents, value, true);
+    }
+    if (lastChangedLevel < 0) {
+      return 0;
+    }
+    return reindex(value, oldKeyComponents, newKeyComponents, lastChangedLevel);
   }
 
-  boolean isTopLevelNode() {
-    return topLevelNode;
+  private int reindex(V value, Object[][] oldKeyComponents,
+          Object[][] newKeyComponents, int lastChangedLevel) {
+    if (level > lastChangedLevel) {
+      return 0;
+    }
+    KeyComponentProfile<V> keyComponentProfile
+            = levelPlan.keyComponentProfiles[level];
+    Object[] droppedKeyComponents = keyComponentsMissingFrom(
+            oldKeyComponents[level], newKeyComponents[level]);
+    Object[] addedKeyComponents = keyComponentsMissingFrom(
+            newKeyComponents[level], oldKeyComponents[level]);
+    int netChangeCount = 0;
+    if (level == oldKeyComponents.length - 1) {
+      for (Object keyComponent : droppedKeyComponents) {
+        if (bottomNode != null && bottomNode.remove(keyComponent, value)) {
+          netChangeCount--;
+        }
+      }
+      for (Object keyComponent : addedKeyComponents) {
+        checkKeyComponentClass(keyComponentProfile, keyComponent);
+        if (bottomNode == null) {
+          bottomNode = newNodeMap(keyComponentProfile, keyComponent);
+        }
+        if (!bottomNode.containsKey(keyComponent)) {
+          bottomNode.put(keyComponent, value);
+          netChangeCount++;
+        }
+      }
+    } else {
+      for (Object keyComponent : droppedKeyComponents) {
+        MapNode<V> lowerMapNode
+                = (middleNode == null) ? null : middleNode.get(keyComponent);
+        if (lowerMapNode != null) {
+          lowerMapNode = editableLowerMapNode(keyComponent, lowerMapNode);
+          netChangeCount
+                  -= lowerMapNode.putOrRemove(oldKeyComponents, value, true);
+          if (lowerMapNode.entryCount == 0) {
+            middleNode.remove(keyComponent);
+          }
+        }
+      }
+      for (Object keyComponent : newKeyComponents[level]) {
+        checkKeyComponentClass(keyComponentProfile, keyComponent);
+        if (middleNode == null) {
+          middleNode = newNodeMap(keyComponentProfile, keyComponent);
+        }
+        MapNode<V> lowerMapNode = middleNode.get(keyComponent);
+        boolean keyComponentAdded
+                = containsKeyComponent(addedKeyComponents, keyComponent);
+        if (lowerMapNode == null) {
+          lowerMapNode = new MapNode<V>(this);
+          middleNode.put(keyComponent, lowerMapNode);
+          keyComponentAdded = true;
+        } else {
+          lowerMapNode = editableLowerMapNode(keyComponent, lowerMapNode);
+        }
+        netChangeCount += keyComponentAdded
+                ? lowerMapNode.putOrRemove(newKeyComponents, value, false)
+                : lowerMapNode.reindex(value, oldKeyComponents,
+                        newKeyComponents, lastChangedLevel);
+        if (lowerMapNode.entryCount == 0) {
+          middleNode.remove(keyComponent);
+        }
+      }
+    }
+    entryCount += netChangeCount;
+    return netChangeCount;
   }
 
-  private int computeImmutableHashCode() {
-    int hash = 5;
-    hash = 23 * hash + (this.topLevelNode ? 1 : 0);
-    hash = 23 * hash + (this.keyComponentProfileList != null ? this.keyComponentProfileList.hashCode() : 0);
-    return hash;
+  /**
+   * Loads the submitted values into this (empty) MapNode by sorting rather
+   * than by repeated insertion: the composite-keys of all values are
+   * expanded into paths, sorted once (in parallel where possible) level by
+   * level, and the MapNode structures are then built bottom-up from the
+   * sorted runs, each TreeMap being filled in linear time from presorted
+   * entries. Where two values share a composite-key, the value submitted
+   * first is retained, as with sequential insertion. If this MapNode is not
+   * empty, the values are inserted sequentially.
+   *
+   * @param values valueClass objects, in order of submission
+   * @param keyComponentsList keyComponent-objects of each value, indexed by
+   * level (as returned by {@link #extractKeyComponents(java.lang.Object)})
+   * @return number of composite-key entries added
+   */
+  final int bulkLoad(List<V> values, List<Object[][]> keyComponentsList) {
+    long pathCount = 0;
+    for (Object[][] keyComponents : keyComponentsList) {
+      long valuePathCount = 1;
+      for (int i = level; i < keyComponents.length; i++) {
+        valuePathCount *= keyComponents[i].length;
+      }
+      pathCount += valuePathCount;
+    }
+    if (entryCount > 0 || pathCount >= Integer.MAX_VALUE) {
+      int changeCount = 0;
+      for (int i = 0; i < values.size(); i++) {
+        changeCount += autoMap(values.get(i), keyComponentsList.get(i), false);
+      }
+      return changeCount;
+    }
+    if (pathCount == 0) {
+      return 0;
+    }
+    int planLength = levelPlan.keyComponentProfiles.length;
+    Object[][] paths = new Object[(int)pathCount][];
+    int pathIndex = 0;
+    for (int v = 0; v < values.size(); v++) {
+      Object[][] keyComponents = keyComponentsList.get(v);
+      pathIndex = expandPaths(
+              keyComponents, values.get(v), new Object[planLength + 1],
+              level, paths, pathIndex);
+    }
+    @SuppressWarnings("unchecked")
+    Comparator<Object>[] nodeMapComparators = new Comparator[planLength];
+    @SuppressWarnings("unchecked")
+    Comparator<Object>[] sortComparators = new Comparator[planLength];
+    for (int i = level; i < planLength; i++) {
+      nodeMapComparators[i] = nodeMapComparator(
+              levelPlan.keyComponentProfiles[i], paths[0][i]);
+      sortComparators[i] = (nodeMapComparators[i] == null)
+              ? NaturalOrderComparator.INSTANCE : nodeMapComparators[i];
+    }
+    Arrays.parallelSort(paths, new PathComparator(sortComparators, level));
+    return build(paths, 0, paths.length, nodeMapComparators, sortComparators);
+  }
+
+  /**
+   * Retrieves the keyComponent-objects of each of the submitted values (as
+   * with {@link #extractKeyComponents(java.lang.Object)}), dividing the work
+   * among the threads of the common ForkJoinPool.
+   *
+   * @param values valueClass objects
+   * @return keyComponent-objects of each value, in the order of the values
+   */
+  final List<Object[][]> parallelExtractKeyComponents(List<V> values) {
+    Object[][][] keyComponentsArray = new Object[values.size()][][];
+    ForkJoinPool.commonPool().invoke(
+            new ExtractionTask<V>(this, values, keyComponentsArray,
+                    0, keyComponentsArray.length));
+    return Arrays.asList(keyComponentsArray);
+  }
+
+  /**
+   * Loads the submitted values into this MapNode in parallel: the values'
+   * composite-key entries are partitioned by the keyComponent-objects of this
+   * MapNode's level, and each lower MapNode (i.e., each subtree) is loaded
+   * (via {@link #bulkLoad(java.util.List, java.util.List)}) by a separate
+   * ForkJoinPool task before the results are tallied here.
+   *
+   * @param values valueClass objects, in order of submission
+   * @param keyComponentsList keyComponent-objects of each value, indexed by
+   * level
+   * @return number of composite-key entries added
+   */
+  final int parallelLoad(List<V> values, List<Object[][]> keyComponentsList) {
+    if (level == levelPlan.keyComponentProfiles.length - 1) {
+      return bulkLoad(values, keyComponentsList);
+    }
+    KeyComponentProfile<V> keyComponentProfile
+            = levelPlan.keyComponentProfiles[level];
+    NavigableMap<Object, List<Integer>> partitions = null;
+    for (int i = 0; i < values.size(); i++) {
+      Object[][] keyComponents = keyComponentsList.get(i);
+      boolean mappable = true;
+      for (int j = level; j < keyComponents.length; j++) {
+        mappable &= (keyComponents[j].length > 0);
+      }
+      if (!mappable) {
+        continue;
+      }
+      for (Object keyComponent : keyComponents[level]) {
+        checkKeyComponentClass(keyComponentProfile, keyComponent);
+        if (middleNode == null) {
+          middleNode = newNodeMap(keyComponentProfile, keyComponent);
+        }
+        if (partitions == null) {
+          partitions = new TreeMap<Object, List<Integer>>(middleNode.comparator());
+        }
+        List<Integer> partition = partitions.get(keyComponent);
+        if (partition == null) {
+          partition = new ArrayList<Integer>();
+          partitions.put(keyComponent, partition);
+        }
+        partition.add(i);
+      }
+    }
+    if (partitions == null) {
+      return 0;
+    }
+    final List<SubtreeLoadTask<V>> subtreeLoadTasks
+            = new ArrayList<SubtreeLoadTask<V>>(partitions.size());
+    for (Map.Entry<Object, List<Integer>> partition : partitions.entrySet()) {
+      MapNode<V> lowerMapNode = middleNode.get(partition.getKey());
+      if (lowerMapNode == null) {
+        lowerMapNode = new MapNode<V>(this);
+        middleNode.put(partition.getKey(), lowerMapNode);
+      } else {
+        lowerMapNode = editableLowerMapNode(partition.getKey(), lowerMapNode);
+      }
+      subtreeLoadTasks.add(new SubtreeLoadTask<V>(
+              lowerMapNode, values, keyComponentsList, partition.getValue()));
+    }
+    ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        invokeAll(subtreeLoadTasks);
+      }
+    });
+    int changeCount = 0;
+    for (SubtreeLoadTask<V> subtreeLoadTask : subtreeLoadTasks) {
+      changeCount += subtreeLoadTask.getRawResult();
+    }
+    entryCount += changeCount;
+    return changeCount;
+  }
+
+  private int expandPaths(Object[][] keyComponents, V value, Object[] path,
+          int pathLevel, Object[][] paths, int pathIndex) {
+    if (pathLevel == keyComponents.length) {
+      path[pathLevel] = value;
+      paths[pathIndex] = path.clone();
+      return pathIndex + 1;
+    }
+    KeyComponentProfile<V> keyComponentProfile
+            = levelPlan.keyComponentProfiles[pathLevel];
+    for (Object keyComponent : keyComponents[pathLevel]) {
+      checkKeyComponentClass(keyComponentProfile, keyComponent);
+      path[pathLevel] = keyComponent;
+      pathIndex = expandPaths(
+              keyComponents, value, path, pathLevel + 1, paths, pathIndex);
+    }
+    return pathIndex;
+  }
+
+  /**
+   * Builds this MapNode from the sorted paths in the range
+   * [fromIndex, toIndex), all of which share the same keyComponents above
+   * this MapNode's level.
+   */
+  private int build(Object[][] paths, int fromIndex, int toIndex,
+          Comparator<Object>[] nodeMapComparators,
+          Comparator<Object>[] sortComparators) {
+    Comparator<Object> sortComparator = sortComparators[level];
+    Object[] keys = new Object[toIndex - fromIndex];
+    Object[] nodes = new Object[toIndex - fromIndex];
+    int runCount = 0;
+    int runStart = fromIndex;
+    while (runStart < toIndex) {
+      Object keyComponent = paths[runStart][level];
+      int runEnd = runStart + 1;
+      while (runEnd < toIndex
+              && sortComparator.compare(keyComponent, paths[runEnd][level]) == 0) {
+        runEnd++;
+      }
+      keys[runCount] = keyComponent;
+      if (level == levelPlan.keyComponentProfiles.length - 1) {
+        // first-submitted value is retained, as in sequential insertion
+        nodes[runCount] = paths[runStart][level + 1];
+        entryCount++;
+      } else {
+        MapNode<V> lowerMapNode = new MapNode<V>(this);
+        entryCount += lowerMapNode.build(paths, runStart, runEnd,
+                nodeMapComparators, sortComparators);
+        nodes[runCount] = lowerMapNode;
+      }
+      runCount++;
+      runStart = runEnd;
+    }
+    if (level == levelPlan.keyComponentProfiles.length - 1) {
+      bottomNode = new TreeMap<Object, V>(new SortedRun<V>(
+              nodeMapComparators[level], keys, nodes, runCount));
+    } else {
+      middleNode = new TreeMap<Object, MapNode<V>>(new SortedRun<MapNode<V>>(
+              nodeMapComparators[level], keys, nodes, runCount));
+    }
+    return entryCount;
+  }
+
+  /**
+   * Returns the Comparator with which {@link #newNodeMap} would construct
+   * the TreeMaps of the submitted profile's level ({@code null} denoting
+   * natural order).
+   */
+  @SuppressWarnings("unchecked")
+  static Comparator<Object> nodeMapComparator(
+          KeyComponentProfile<?> keyComponentProfile, Object sampleKeyComponent) {
+    if (keyComponentProfile.getKeyComponentClassComparator() != null) {
+      return keyComponentProfile.getKeyComponentClassComparator();
+    } else if (Comparable.class.isAssignableFrom(sampleKeyComponent.getClass())) {
+      return null;
+    } else {
+      return new HashCodeComparator();
+    }
+  }
+
+  /**
+   * Returns those of the submitted keyComponent-objects which are not
+   * {@link Object#equals(java.lang.Object) equal} to any of the
+   * <i>otherKeyComponents</i>.
+   *
+   * @param keyComponents keyComponent-objects to be checked
+   * @param otherKeyComponents keyComponent-objects to be checked against
+   * @return keyComponent-objects absent from <i>otherKeyComponents</i>
+   */
+  static Object[] keyComponentsMissingFrom(Object[] keyComponents,
+          Object[] otherKeyComponents) {
+    Object[] missingKeyComponents = new Object[keyComponents.length];
+    int missingCount = 0;
+    for (Object keyComponent : keyComponents) {
+      if (!containsKeyComponent(otherKeyComponents, keyComponent)) {
+        missingKeyComponents[missingCount++] = keyComponent;
+      }
+    }
+    return (missingCount == keyComponents.length)
+            ? keyComponents : Arrays.copyOf(missingKeyComponents, missingCount);
+  }
+
+  private static boolean containsKeyComponent(Object[] keyComponents,
+          Object keyComponent) {
+    for (Object currentKeyComponent : keyComponents) {
+      if (currentKeyComponent.equals(keyComponent)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  MapNode<V> cloneWithoutValues() {
+    return new MapNode<V>(levelPlan.title, levelPlan.keyComponentProfiles);
+  }
+
+  /**
+   * Creates an empty MapNode one level below this one (sharing its
+   * {@link LevelPlan}), which is not linked into this MapNode's structures;
+   * used where the subtrees beneath a level are held elsewhere.
+   *
+   * @return empty, unlinked MapNode one level below this one
+   */
+  MapNode<V> newDetachedLowerMapNode() {
+    return new MapNode<V>(this);
+  }
+
+  /**
+   * Freezes the current state of this (top-level) MapNode and all MapNodes
+   * beneath it, in constant time, so that it may be shared with a snapshot:
+   * the EditToken shared by these MapNodes is retired, and none of them will
+   * subsequently be modified. Modifications must instead be made via the
+   * MapNode returned by {@link #editableTopMapNode()}.
+   */
+  void freezeForSnapshot() {
+    editToken.retired = true;
+  }
+
+  /**
+   * Returns this top-level MapNode if it may be modified in place; otherwise
+   * (i.e., if it has been {@link #freezeForSnapshot() frozen}) a modifiable
+   * copy of it, with a new EditToken. Beneath the copy, each frozen lower
+   * MapNode is copied in turn only when a modification reaches it (i.e.,
+   * the path to each modification is copied, and all unmodified subtrees
+   * remain shared with the snapshot).
+   *
+   * @return a modifiable top-level MapNode with the contents of this one
+   */
+  MapNode<V> editableTopMapNode() {
+    if (!editToken.retired) {
+      return this;
+    }
+    return new MapNode<V>(this, new EditToken());
+  }
+
+  /**
+   * Returns the submitted lower MapNode (mapped in this MapNode's middleNode
+   * by the submitted keyComponent), first replacing it with a modifiable copy
+   * if it is shared with a snapshot.
+   */
+  private MapNode<V> editableLowerMapNode(Object keyComponent,
+          MapNode<V> lowerMapNode) {
+    if (lowerMapNode.editToken == editToken) {
+      return lowerMapNode;
+    }
+    MapNode<V> lowerMapNodeCopy = new MapNode<V>(lowerMapNode, editToken);
+    middleNode.put(keyComponent, lowerMapNodeCopy);
+    return lowerMapNodeCopy;
+  }
+
+  boolean isTopLevelNode() {
+    return level == 0;
   }
 
   @Override
   public int hashCode() {
-    return immutableHashCode;
+    int hash = 5;
+    hash = 23 * hash + (isTopLevelNode() ? 1 : 0);
+    hash = 23 * hash + levelPlan.hashCode();
+    hash = 23 * hash + level;
+    return hash;
   }
 
   @Override
@@ -478,15 +1635,10 @@ class MapNode<V> implements Serializable, Cloneable {
       return false;
     }
     final MapNode other = (MapNode) obj;
-    if (this.topLevelNode != other.topLevelNode) {
+    if (this.level != other.level) {
       return false;
     }
-    if (this.keyComponentProfileList != other.keyComponentProfileList &&
-            (this.keyComponentProfileList == null ||
-            !this.keyComponentProfileList.equals(other.keyComponentProfileList))) {
-      return false;
-    }
-    return true;
+    return this.levelPlan.equals(other.levelPlan);
   }
 
   /**
@@ -497,11 +1649,11 @@ class MapNode<V> implements Serializable, Cloneable {
  this MapNode.
    */
   String getInternalsReport() {
-    return "<" + this.mapNodeTitle + "> MapNode -- \n"
+    return "<" + getTitle() + "> MapNode -- \n"
             + "     " + keyComponentClassListToString() + ".\n"
             + "     NUMBER OF MapNode ENTRIES = " + this.size()
             + " ; DEPTH OF MapNode = "
-            + keyComponentProfileList.size();
+            + getDepth();
   }
 
   /**
@@ -514,12 +1666,13 @@ class MapNode<V> implements Serializable, Cloneable {
             + "> MapNode structures & content", this.size());
     System.out.println(keyComponentClassListToString());
     printHeading("<VALUE toString> : {KEY1; KEY2; KEY3...}");
-    for (MultiKeyComponentEntry<V> multiKeyComponentEntry :
-            getMultiKeyComponentEntries()) {
+    Iterator<Map.Entry<List<Object>,V>> entryIterator = entryIterator();
+    while (entryIterator.hasNext()) {
+      Map.Entry<List<Object>,V> entry = entryIterator.next();
       output = new StringBuilder();
-      output.append(multiKeyComponentEntry.getValue()).append(" : {");
+      output.append(entry.getValue()).append(" : {");
       firstItemPrinted = false;
-      for (Object key : multiKeyComponentEntry.getKeyComponentArray()) {
+      for (Object key : entry.getKey()) {
         if (firstItemPrinted) {
           output.append("; ");
         } else {
@@ -536,7 +1689,7 @@ class MapNode<V> implements Serializable, Cloneable {
     StringBuilder output = new StringBuilder();
     output.append("Key-component classes for this MapNode are: {");
     boolean firstItemPrinted = false;
-    for (KeyComponentProfile keyComponentProfile : keyComponentProfileList) {
+    for (KeyComponentProfile keyComponentProfile : getKeyComponentProfileList()) {
       if (firstItemPrinted) {
         output.append("; ");
       } else {
@@ -571,57 +1724,39 @@ class MapNode<V> implements Serializable, Cloneable {
     System.out.println(headingBorder);
   }
 
-  private class MultiKeyComponentEntry<V> {
-
-    private KeyComponentArray keyComponentArray;
-    private V value;
-
-    public MultiKeyComponentEntry(KeyComponentArray keyComponentArray, V value) {
-      this.keyComponentArray = keyComponentArray;
-      this.value = value;
-    }
-
-    @SafeVarargs
-    public MultiKeyComponentEntry(V value, Object... keyComponentArray) {
-      this(new KeyComponentArray(keyComponentArray), value);
-    }
-
-    public MultiKeyComponentEntry(List<Object> keyComponentList, V value) {
-      this(new KeyComponentArray(
-              keyComponentList.toArray(new Object[keyComponentList.size()])), value);
-    }
-
-    public int getKeyComponentArrayLength() {
-      return keyComponentArray.getLength();
-    }
-
-    protected void putTopKeyComponent(Object newTopKey) {
-      keyComponentArray.putTopKeyComponent(newTopKey);
-    }
-
-    public Object getTopKeyComponent() {
-      return keyComponentArray.getTopKeyComponent();
-    }
-
-    public KeyComponentArray getKeyComponentArray() {
-      return this.keyComponentArray;
-    }
+  /**
+   * The composite-key structure shared by a top-level MapNode and all of the
+   * MapNodes below it: the KeyComponentProfiles are compiled once into an
+   * immutable array indexed by level, so that each lower MapNode need only
+   * hold a reference to the plan and its own level.
+   */
+  private static final class LevelPlan<V> implements Serializable {
 
-    public List<Object> getKeyComponentList() {
-      return Arrays.asList(this.keyComponentArray.arrayOfKeyComponents);
-    }
+    private final String title;
+    private final KeyComponentProfile<V>[] keyComponentProfiles;
+    private final List<KeyComponentProfile<V>> keyComponentProfileList;
+    private final int immutableHashCode;
 
-    public V getValue() {
-      return value;
+    LevelPlan(String title, KeyComponentProfile<V>[] submittedProfiles) {
+      this.title = title;
+      this.keyComponentProfiles = completeKeyComponentProfiles(submittedProfiles);
+      this.keyComponentProfileList = Collections.unmodifiableList(
+              Arrays.asList(keyComponentProfiles));
+      this.immutableHashCode = Arrays.hashCode(keyComponentProfiles);
     }
 
-    public boolean containsNulls() {
-      return (keyComponentArray.containsNulls() || value == null);
+    @Override
+    public int hashCode() {
+      return immutableHashCode;
     }
 
-    public MultiKeyComponentEntry<V> getLowerEntry() {
-      return new MultiKeyComponentEntry<V>(
-              keyComponentArray.getLowerKeyComponentArray(), value);
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      return Arrays.equals(this.keyComponentProfiles,
+              ((LevelPlan) obj).keyComponentProfiles);
     }
   }
 
@@ -638,15 +1773,6 @@ class MapNode<V> implements Serializable, Cloneable {
       return arrayOfKeyComponents.length;
     }
 
-    protected void putTopKeyComponent(Object newTopKeyComponent) {
-      Object[] newArray = new Object[arrayOfKeyComponents.length + 1];
-      newArray[0] = newTopKeyComponent;
-      for (int i = 1; i < newArray.length; i++) {
-        newArray[i] = arrayOfKeyComponents[i - 1];
-      }
-      arrayOfKeyComponents = newArray;
-    }
-
     public Object getTopKeyComponent() {
       if (arrayOfKeyComponents.length == 0) {
         return null;
@@ -679,11 +1805,742 @@ class MapNode<V> implements Serializable, Cloneable {
     }
   }
 
-  private class HashCodeComparator implements Comparator<Object> {
+  /**
+   * Depth-first walk over the entries of a MapNode. The stack holds one
+   * iterator per level currently being traversed, so its size never exceeds
+   * the depth of the MapNode; the keyComponents of the path currently being
+   * traversed are held in a single buffer of the same length.
+   * Subclasses determine what is produced for each entry.
+   */
+  private abstract static class OrderedWalker<V, E> implements Iterator<E> {
+
+    private final Deque<Iterator<Map.Entry<Object, MapNode<V>>>> lowerMapNodeIteratorStack
+            = new ArrayDeque<Iterator<Map.Entry<Object, MapNode<V>>>>();
+    private final Object[] keyComponentPath;
+    private Iterator<Map.Entry<Object, V>> bottomNodeIterator = null;
+    private int bottomNodeLevel;
+    private V currentValue;
+
+    OrderedWalker(MapNode<V> startingMapNode) {
+      keyComponentPath = new Object[startingMapNode.getDepth()];
+      descendInto(startingMapNode);
+    }
+
+    private void descendInto(MapNode<V> mapNode) {
+      int level = lowerMapNodeIteratorStack.size();
+      if (mapNode.bottomNode != null) {
+        bottomNodeIterator = mapNode.bottomNode.entrySet().iterator();
+        bottomNodeLevel = level;
+      }
+      if (mapNode.middleNode != null) {
+        lowerMapNodeIteratorStack.push(mapNode.middleNode.entrySet().iterator());
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (bottomNodeIterator == null || !bottomNodeIterator.hasNext()) {
+        bottomNodeIterator = null;
+        Iterator<Map.Entry<Object, MapNode<V>>> lowerMapNodeIterator
+                = lowerMapNodeIteratorStack.peek();
+        if (lowerMapNodeIterator == null) {
+          return false;
+        }
+        if (lowerMapNodeIterator.hasNext()) {
+          Map.Entry<Object, MapNode<V>> lowerEntry = lowerMapNodeIterator.next();
+          keyComponentPath[lowerMapNodeIteratorStack.size() - 1]
+                  = lowerEntry.getKey();
+          descendInto(lowerEntry.getValue());
+        } else {
+          lowerMapNodeIteratorStack.pop();
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<Object, V> bottomEntry = bottomNodeIterator.next();
+      keyComponentPath[bottomNodeLevel] = bottomEntry.getKey();
+      currentValue = bottomEntry.getValue();
+      return current();
+    }
+
+    /**
+     * Produces the element to be returned for the entry most recently
+     * reached by {@link #next()}.
+     *
+     * @return element for the current entry
+     */
+    abstract E current();
+
+    V currentValue() {
+      return currentValue;
+    }
+
+    List<Object> currentKeyComponentList() {
+      return Arrays.asList(keyComponentPath.clone());
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Entries may not be removed "
+              + "via an ordered iterator.");
+    }
+  }
+
+  /**
+   * Receives the entries matching a composite-key pattern; see
+   * {@link #visitMatching}. The key path and comparators are indexed by level
+   * relative to the level at which the pattern begins, and are valid only
+   * for the duration of the call.
+   */
+  private abstract static class MatchVisitor<V> {
+
+    abstract void visit(V value, Object[] keyPath,
+            Comparator<Object>[] levelComparators);
+  }
+
+  /**
+   * Collects (if <i>matchingValues</i> is non-null) and counts the distinct
+   * values among the entries matching a pattern, each at its first
+   * occurrence; see {@link #selectDistinctMatching}.
+   */
+  private static final class DistinctMatchCollector<V> extends MatchVisitor<V> {
+
+    private final Map<V, Object[][]> retainedKeyComponents;
+    private final Object[] keyPattern;
+    private final int patternLevel;
+    private final List<V> matchingValues;
+    private Set<V> selectedValues = null;
+    private int matchingCount = 0;
+
+    DistinctMatchCollector(Map<V, Object[][]> retainedKeyComponents,
+            Object[] keyPattern, int patternLevel, List<V> matchingValues) {
+      this.retainedKeyComponents = retainedKeyComponents;
+      this.keyPattern = keyPattern;
+      this.patternLevel = patternLevel;
+      this.matchingValues = matchingValues;
+    }
+
+    @Override
+    void visit(V value, Object[] keyPath, Comparator<Object>[] levelComparators) {
+      if (!isFirstOccurrence(value, keyPath, levelComparators)) {
+        return;
+      }
+      if (matchingValues != null) {
+        matchingValues.add(value);
+      }
+      matchingCount++;
+    }
+
+    private boolean isFirstOccurrence(V value, Object[] keyPath,
+            Comparator<Object>[] levelComparators) {
+      Object[][] keyComponents = (retainedKeyComponents == null)
+              ? null : retainedKeyComponents.get(value);
+      if (keyComponents == null) {
+        if (selectedValues == null) {
+          selectedValues
+                  = Collections.newSetFromMap(new IdentityHashMap<V, Boolean>());
+        }
+        return selectedValues.add(value);
+      }
+      // the final level is that of the value itself
+      for (int i = 0; i < keyPath.length - 1; i++) {
+        if (i < keyPattern.length && keyPattern[i] != null) {
+          continue;
+        }
+        Object[] levelKeyComponents = keyComponents[patternLevel + i];
+        if (levelKeyComponents.length < 2) {
+          continue;
+        }
+        for (Object keyComponent : levelKeyComponents) {
+          if (levelComparators[i].compare(keyComponent, keyPath[i]) < 0) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Collects the distinct values among the entries matching a pattern by the
+   * keyComponent-object under which each entry is indexed at a given level;
+   * see {@link #selectDistinctMatchingByKeyComponent}.
+   */
+  private static final class KeyComponentOccurrenceCollector<V>
+          extends MatchVisitor<V> {
+
+    private final int keyComponentLevel;
+    private final NavigableMap<Object, Set<V>> valuesByKeyComponent;
+
+    KeyComponentOccurrenceCollector(int keyComponentLevel,
+            NavigableMap<Object, Set<V>> valuesByKeyComponent) {
+      this.keyComponentLevel = keyComponentLevel;
+      this.valuesByKeyComponent = valuesByKeyComponent;
+    }
+
+    @Override
+    void visit(V value, Object[] keyPath, Comparator<Object>[] levelComparators) {
+      Object keyComponent = keyPath[keyComponentLevel];
+      Set<V> values = valuesByKeyComponent.get(keyComponent);
+      if (values == null) {
+        values = Collections.newSetFromMap(new IdentityHashMap<V, Boolean>());
+        valuesByKeyComponent.put(keyComponent, values);
+      }
+      values.add(value);
+    }
+  }
+
+  /**
+   * Collects the values of a page (see {@link #collectPage}), copying the
+   * composite-key only of the last entry of the page, and noting whether
+   * another entry follows it.
+   */
+  private static final class PageCollector<V> {
+
+    private final int limit;
+    private final List<V> pageValues;
+    private Object[] lastCompositeKey = null;
+    private boolean hasNext = false;
+
+    PageCollector(int limit, List<V> pageValues) {
+      this.limit = limit;
+      this.pageValues = pageValues;
+    }
+
+    boolean isFull(V value, Object[] keyPath) {
+      if (pageValues.size() == limit) {
+        hasNext = true;
+        return true;
+      }
+      pageValues.add(value);
+      if (pageValues.size() == limit) {
+        lastCompositeKey = keyPath.clone();
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The entries of a MapNode between two composite-key bounds, held as the
+   * sequence of whole lower MapNodes which contain them, each together with
+   * its composite-key prefix.
+   */
+  static final class Range<V> {
+
+    private final List<Object[]> keyPrefixes = new ArrayList<Object[]>();
+    private final List<Object> lowerMapNodes = new ArrayList<Object>();
+    private int entryCount = 0;
+
+    private void add(Object[] keyPath, int keyPathLength, MapNode<V> lowerMapNode) {
+      keyPrefixes.add(Arrays.copyOf(keyPath, keyPathLength));
+      lowerMapNodes.add(lowerMapNode);
+      entryCount += lowerMapNode.entryCount;
+    }
+
+    int size() {
+      return entryCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MapNode<V> lowerMapNode(int index) {
+      return (MapNode<V>)lowerMapNodes.get(index);
+    }
+
+    Iterator<V> valueIterator() {
+      return new SegmentChain<V>(lowerMapNodes.size()) {
+        @Override
+        Iterator<V> segmentIterator(int index) {
+          return lowerMapNode(index).valueIterator();
+        }
+      };
+    }
+
+    Iterator<Map.Entry<List<Object>,V>> entryIterator() {
+      return new SegmentChain<Map.Entry<List<Object>,V>>(lowerMapNodes.size()) {
+        @Override
+        Iterator<Map.Entry<List<Object>,V>> segmentIterator(int index) {
+          final Object[] keyPrefix = keyPrefixes.get(index);
+          final Iterator<Map.Entry<List<Object>,V>> lowerEntryIterator
+                  = lowerMapNode(index).entryIterator();
+          return new Iterator<Map.Entry<List<Object>,V>>() {
+            @Override
+            public boolean hasNext() {
+              return lowerEntryIterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<List<Object>,V> next() {
+              Map.Entry<List<Object>,V> lowerEntry = lowerEntryIterator.next();
+              List<Object> lowerKey = lowerEntry.getKey();
+              Object[] keyComponentPath
+                      = Arrays.copyOf(keyPrefix, keyPrefix.length + lowerKey.size());
+              for (int i = 0; i < lowerKey.size(); i++) {
+                keyComponentPath[keyPrefix.length + i] = lowerKey.get(i);
+              }
+              return new AbstractMap.SimpleImmutableEntry<List<Object>,V>(
+                      Arrays.asList(keyComponentPath), lowerEntry.getValue());
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+
+    Spliterator<V> valueSpliterator() {
+      return new ValueSpliterator<V>(lowerMapNodes, entryCount);
+    }
+  }
+
+  /**
+   * Concatenation of the iterators of a sequence of segments.
+   */
+  private abstract static class SegmentChain<E> implements Iterator<E> {
+
+    private final int segmentCount;
+    private int segmentIndex = 0;
+    private Iterator<E> segmentIterator = null;
+
+    SegmentChain(int segmentCount) {
+      this.segmentCount = segmentCount;
+    }
+
+    abstract Iterator<E> segmentIterator(int index);
+
+    @Override
+    public boolean hasNext() {
+      while (segmentIterator == null || !segmentIterator.hasNext()) {
+        if (segmentIndex >= segmentCount) {
+          return false;
+        }
+        segmentIterator = segmentIterator(segmentIndex++);
+      }
+      return true;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return segmentIterator.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Entries may not be removed "
+              + "via an ordered iterator.");
+    }
+  }
+
+  /**
+   * Spliterator over the values of a sequence of segments, each segment being
+   * either a whole MapNode or a range of a bottomNode. A split hands the
+   * first half of the unstarted segments (together with any partially
+   * consumed segment) to the returned Spliterator; a lone remaining segment
+   * is first expanded (repeatedly, as long as it yields a lone segment) into
+   * its lower MapNodes (or its bottomNode halves).
+   */
+  private static final class ValueSpliterator<V> implements Spliterator<V> {
+
+    private List<Object> segments;
+    private int segmentIndex = 0;
+    private Iterator<V> segmentIterator = null;
+    private long remainingCount;
+
+    ValueSpliterator(List<Object> segments, long remainingCount) {
+      this.segments = segments;
+      this.remainingCount = remainingCount;
+    }
+
+    private ValueSpliterator(List<Object> segments, Iterator<V> segmentIterator,
+            long remainingCount) {
+      this(segments, remainingCount);
+      this.segmentIterator = segmentIterator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super V> action) {
+      if (action == null) {
+        throw new NullPointerException();
+      }
+      while (segmentIterator == null || !segmentIterator.hasNext()) {
+        if (segmentIndex >= segments.size()) {
+          return false;
+        }
+        segmentIterator = iteratorOf(segments.get(segmentIndex++));
+      }
+      remainingCount--;
+      action.accept(segmentIterator.next());
+      return true;
+    }
+
+    @Override
+    public Spliterator<V> trySplit() {
+      if (segmentIterator != null && !segmentIterator.hasNext()) {
+        segmentIterator = null;
+      }
+      // a lone segment is expanded until it yields more than one segment, so
+      // that a level with a single keyComponent-object does not end splitting
+      while (segmentIterator == null && segments.size() - segmentIndex == 1
+              && isExpandable(segments.get(segmentIndex))) {
+        segments = expand(segments.get(segmentIndex));
+        segmentIndex = 0;
+      }
+      int lowestSplitIndex = segmentIndex + (segmentIterator == null ? 1 : 0);
+      int highestSplitIndex = segments.size() - 1;
+      if (lowestSplitIndex > highestSplitIndex) {
+        return null;
+      }
+      // balance the halves by entry count
+      long unstartedCount = 0;
+      for (int i = segmentIndex; i < segments.size(); i++) {
+        unstartedCount += sizeOf(segments.get(i));
+      }
+      long suffixCount = unstartedCount;
+      int splitIndex = segmentIndex;
+      while (splitIndex < highestSplitIndex
+              && (splitIndex < lowestSplitIndex
+                      || (unstartedCount - suffixCount) * 2 < unstartedCount)) {
+        suffixCount -= sizeOf(segments.get(splitIndex++));
+      }
+      Spliterator<V> prefix = new ValueSpliterator<V>(
+              segments.subList(segmentIndex, splitIndex), segmentIterator,
+              remainingCount - suffixCount);
+      segments = segments.subList(splitIndex, segments.size());
+      segmentIndex = 0;
+      segmentIterator = null;
+      remainingCount = suffixCount;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return remainingCount;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<V> iteratorOf(Object segment) {
+      if (segment instanceof MapNode) {
+        return ((MapNode<V>)segment).valueIterator();
+      }
+      return ((BottomNodeRange<V>)segment).bottomNodeRange.values().iterator();
+    }
+
+    private static long sizeOf(Object segment) {
+      if (segment instanceof MapNode) {
+        return ((MapNode<?>)segment).entryCount;
+      }
+      return ((BottomNodeRange<?>)segment).size;
+    }
+
+    private static boolean isExpandable(Object segment) {
+      return segment instanceof MapNode
+              || ((BottomNodeRange<?>)segment).size >= 2;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> expand(Object segment) {
+      if (segment instanceof MapNode) {
+        MapNode<V> mapNode = (MapNode<V>)segment;
+        if (mapNode.middleNode != null) {
+          return new ArrayList<Object>(mapNode.middleNode.values());
+        }
+        if (mapNode.bottomNode == null) {
+          return Collections.emptyList();
+        }
+        segment = new BottomNodeRange<V>(mapNode.bottomNode,
+                mapNode.bottomNode.size());
+      }
+      BottomNodeRange<V> range = (BottomNodeRange<V>)segment;
+      if (range.size < 2) {
+        return Collections.singletonList(segment);
+      }
+      Iterator<Object> keyIterator = range.bottomNodeRange.keySet().iterator();
+      for (int i = 0; i < range.size / 2; i++) {
+        keyIterator.next();
+      }
+      Object splitKey = keyIterator.next();
+      List<Object> halves = new ArrayList<Object>(2);
+      halves.add(new BottomNodeRange<V>(
+              range.bottomNodeRange.headMap(splitKey, false), range.size / 2));
+      halves.add(new BottomNodeRange<V>(
+              range.bottomNodeRange.tailMap(splitKey, true),
+              range.size - range.size / 2));
+      return halves;
+    }
+  }
+
+  /**
+   * A range of a bottomNode, together with its size (which a range view of
+   * a TreeMap can only compute by iteration).
+   */
+  private static final class BottomNodeRange<V> {
+
+    private final NavigableMap<Object, V> bottomNodeRange;
+    private final int size;
+
+    BottomNodeRange(NavigableMap<Object, V> bottomNodeRange, int size) {
+      this.bottomNodeRange = bottomNodeRange;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Identifies the MapNodes which may be modified in place: those created
+   * (or copied) since the most recent snapshot. All MapNodes created under
+   * one EditToken are frozen at once when it is retired.
+   */
+  private static final class EditToken implements Serializable {
+
+    private boolean retired = false;
+  }
+
+  static class HashCodeComparator
+          implements Comparator<Object>, Serializable {
 
     @Override
     public int compare(Object o1, Object o2) {
-      return o1.hashCode() - o2.hashCode();
+      return Integer.compare(o1.hashCode(), o2.hashCode());
+    }
+  }
+
+  private static final class ExtractionTask<V> extends RecursiveAction {
+
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
+    private final MapNode<V> mapNode;
+    private final List<V> values;
+    private final Object[][][] keyComponentsArray;
+    private final int fromIndex;
+    private final int toIndex;
+
+    ExtractionTask(MapNode<V> mapNode, List<V> values,
+            Object[][][] keyComponentsArray, int fromIndex, int toIndex) {
+      this.mapNode = mapNode;
+      this.values = values;
+      this.keyComponentsArray = keyComponentsArray;
+      this.fromIndex = fromIndex;
+      this.toIndex = toIndex;
+    }
+
+    @Override
+    protected void compute() {
+      if (toIndex - fromIndex <= SEQUENTIAL_THRESHOLD) {
+        for (int i = fromIndex; i < toIndex; i++) {
+          keyComponentsArray[i] = mapNode.extractKeyComponents(values.get(i));
+        }
+      } else {
+        int midIndex = (fromIndex + toIndex) >>> 1;
+        invokeAll(new ExtractionTask<V>(
+                        mapNode, values, keyComponentsArray, fromIndex, midIndex),
+                new ExtractionTask<V>(
+                        mapNode, values, keyComponentsArray, midIndex, toIndex));
+      }
+    }
+  }
+
+  private static final class SubtreeLoadTask<V> extends RecursiveTask<Integer> {
+
+    private final MapNode<V> lowerMapNode;
+    private final List<V> values;
+    private final List<Object[][]> keyComponentsList;
+    private final List<Integer> partition;
+
+    SubtreeLoadTask(MapNode<V> lowerMapNode, List<V> values,
+            List<Object[][]> keyComponentsList, List<Integer> partition) {
+      this.lowerMapNode = lowerMapNode;
+      this.values = values;
+      this.keyComponentsList = keyComponentsList;
+      this.partition = partition;
+    }
+
+    @Override
+    protected Integer compute() {
+      List<V> partitionValues = new ArrayList<V>(partition.size());
+      List<Object[][]> partitionKeyComponents
+              = new ArrayList<Object[][]>(partition.size());
+      for (int index : partition) {
+        partitionValues.add(values.get(index));
+        partitionKeyComponents.add(keyComponentsList.get(index));
+      }
+      return lowerMapNode.bulkLoad(partitionValues, partitionKeyComponents);
+    }
+  }
+
+  private static final class NaturalOrderComparator implements Comparator<Object> {
+
+    static final NaturalOrderComparator INSTANCE = new NaturalOrderComparator();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int compare(Object o1, Object o2) {
+      return ((Comparable<Object>)o1).compareTo(o2);
+    }
+  }
+
+  /**
+   * Orders bulk-load paths by their keyComponents, level by level.
+   */
+  private static final class PathComparator implements Comparator<Object[]> {
+
+    private final Comparator<Object>[] levelComparators;
+    private final int topLevel;
+
+    PathComparator(Comparator<Object>[] levelComparators, int topLevel) {
+      this.levelComparators = levelComparators;
+      this.topLevel = topLevel;
+    }
+
+    @Override
+    public int compare(Object[] path1, Object[] path2) {
+      for (int i = topLevel; i < levelComparators.length; i++) {
+        int comparison = levelComparators[i].compare(path1[i], path2[i]);
+        if (comparison != 0) {
+          return comparison;
+        }
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * A read-only SortedMap over presorted, distinct keys; submitted to the
+   * TreeMap copy-constructor, which then builds its tree in linear time.
+   */
+  private static final class SortedRun<T> extends AbstractMap<Object, T>
+          implements SortedMap<Object, T> {
+
+    private final Comparator<Object> comparator;
+    private final Object[] keys;
+    private final Object[] values;
+    private final int fromIndex;
+    private final int toIndex;
+
+    SortedRun(Comparator<Object> comparator, Object[] keys, Object[] values,
+            int size) {
+      this(comparator, keys, values, 0, size);
+    }
+
+    private SortedRun(Comparator<Object> comparator, Object[] keys,
+            Object[] values, int fromIndex, int toIndex) {
+      this.comparator = comparator;
+      this.keys = keys;
+      this.values = values;
+      this.fromIndex = fromIndex;
+      this.toIndex = toIndex;
+    }
+
+    /**
+     * Binary search of this run for the index of the first key not less
+     * than the submitted key (or {@code toIndex} if there is none).
+     */
+    private int ceilingIndex(Object key) {
+      int low = fromIndex;
+      int high = toIndex;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (comparator.compare(keys[middle], key) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    @Override
+    public Comparator<? super Object> comparator() {
+      return comparator;
+    }
+
+    @Override
+    public Set<Map.Entry<Object, T>> entrySet() {
+      return new AbstractSet<Map.Entry<Object, T>>() {
+        @Override
+        public Iterator<Map.Entry<Object, T>> iterator() {
+          return new Iterator<Map.Entry<Object, T>>() {
+            int index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+              return index < toIndex;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map.Entry<Object, T> next() {
+              if (index >= toIndex) {
+                throw new NoSuchElementException();
+              }
+              Map.Entry<Object, T> entry = new AbstractMap.SimpleImmutableEntry<Object, T>(
+                      keys[index], (T)values[index]);
+              index++;
+              return entry;
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return toIndex - fromIndex;
+        }
+      };
+    }
+
+    @Override
+    public Object firstKey() {
+      if (fromIndex == toIndex) {
+        throw new NoSuchElementException();
+      }
+      return keys[fromIndex];
+    }
+
+    @Override
+    public Object lastKey() {
+      if (fromIndex == toIndex) {
+        throw new NoSuchElementException();
+      }
+      return keys[toIndex - 1];
+    }
+
+    @Override
+    public SortedMap<Object, T> subMap(Object fromKey, Object toKey) {
+      if (comparator.compare(fromKey, toKey) > 0) {
+        throw new IllegalArgumentException("fromKey > toKey");
+      }
+      return new SortedRun<T>(comparator, keys, values,
+              ceilingIndex(fromKey), ceilingIndex(toKey));
+    }
+
+    @Override
+    public SortedMap<Object, T> headMap(Object toKey) {
+      return new SortedRun<T>(comparator, keys, values,
+              fromIndex, ceilingIndex(toKey));
+    }
+
+    @Override
+    public SortedMap<Object, T> tailMap(Object fromKey) {
+      return new SortedRun<T>(comparator, keys, values,
+              ceilingIndex(fromKey), toIndex);
     }
   }
 }
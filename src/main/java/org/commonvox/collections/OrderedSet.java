@@ -16,22 +16,25 @@
  */
 package org.commonvox.collections;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An <i>OrderedSet</i> provides composite-key based ordering of a
@@ -169,9 +172,9 @@ import java.util.TreeSet;
  * A <i>keyComponentSet</i> may be retrieved through invocation of the
  * {@link #keyComponentSet(org.commonvox.collections.KeyComponentProfile)
  * keyComponentSet(KeyComponentProfile)} method.
- * A <i>keyComponentSet</i> is a
- * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/TreeSet.html">
- * TreeSet</a>, ordered either in
+ * A <i>keyComponentSet</i> is a read-only
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/NavigableSet.html">
+ * NavigableSet</a> view, ordered either in
  * <a href="https://docs.oracle.com/javase/8/docs/api/java/lang/Comparable.html">
  * natural order</a>,
  * <a href="https://docs.oracle.com/javase/8/docs/api/java/lang/Object.html#hashCode--">
@@ -191,7 +194,9 @@ import java.util.TreeSet;
  * synchronized.</b> For more information/advice on
  * potential concurrent usage of this class, please see
  * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/HashSet.html">
- * the HashSet documentation</a>.
+ * the HashSet documentation</a>. Thread-safe alternatives are the
+ * {@link ConcurrentOrderedSet} and, for read-mostly usage, the
+ * {@link StampedOrderedSet}.
  * <br><br>
  * <hr>
  * <b>Special note on making modifications to a mutable object that is an
@@ -211,6 +216,14 @@ import java.util.TreeSet;
  * <li>{@link #add(java.lang.Object) Add} the object-clone to the
  * <i>OrderedSet</i>.</li>
  * </ol>
+ * Alternatively, an <i>OrderedSet</i>
+ * {@link #OrderedSet(boolean, org.commonvox.collections.KeyComponentProfile...)
+ * constructed to retain keyComponents} records the
+ * <i>keyComponentClass</i>-objects retrieved from each element when it is
+ * added, and uses those recorded objects (rather than the element's current
+ * attributes) when the element is removed; an element in such an
+ * <i>OrderedSet</i> may be modified in place and then
+ * {@link #update(java.lang.Object) update}d.
  * <hr>
  * <a name="usage_examples"></a>
  * &nbsp;<br>
@@ -281,9 +294,8 @@ import java.util.TreeSet;
 public class OrderedSet<V> extends HashSet<V> {
 
   private MapNode<V> topMapNode;
-  private Map<KeyComponentProfile<V>,Set<Object>> keyComponentSetMap;
-  private transient Map<Method,List<Set<Object>>> keyComponentSetMapByMethod;
-  private boolean removeAllIsInProgress = false;
+  private Map<KeyComponentProfile<V>,CountedKeyComponentSet> keyComponentSetMap;
+  private Map<V,Object[][]> keyComponentsByValue;
 
   /**
    * Constructs an empty <i>OrderedSet</i> configured for
@@ -315,15 +327,71 @@ public class OrderedSet<V> extends HashSet<V> {
   @SafeVarargs
   public OrderedSet(Collection<? extends V> collection,
           KeyComponentProfile<V>... keyComponentProfiles) {
+    this(collection, false, keyComponentProfiles);
+  }
+
+  /**
+   * Constructs an empty <i>OrderedSet</i> configured for
+   * composite-key based ordering of its values as specified in the
+   * submitted vararg array of {@link KeyComponentProfile} parameters,
+   * optionally retaining the <i>keyComponentClass</i>-objects of each value.
+   * <br><br>
+   * If <i>retainKeyComponents</i> is {@code true}, the
+   * <i>keyComponentClass</i>-objects retrieved from each value as it is added
+   * are recorded (one array per {@link KeyComponentProfile}, rather than one
+   * entry per composite-key), and removal of the value uses the recorded
+   * objects to navigate directly to its composite-key entries, without
+   * invocation of any "get" method. Removal cost is then independent of the
+   * cost of the value's "get" methods, and remains correct even if the value's
+   * attributes have been modified since it was added.
+   *
+   * @param retainKeyComponents if {@code true}, the
+   * <i>keyComponentClass</i>-objects of each value are retained for use in
+   * its removal.
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>OrderedSet</i>.
+   */
+  @SafeVarargs
+  public OrderedSet(boolean retainKeyComponents,
+          KeyComponentProfile<V>... keyComponentProfiles) {
+    this(new HashSet<V>(), retainKeyComponents, keyComponentProfiles);
+  }
+
+  /**
+   * Constructs an <i>OrderedSet</i> containing the values in the
+   * specified collection, with the values ordered according to the
+   * composite-key specified in the submitted vararg array of
+   * {@link KeyComponentProfile} parameters, optionally retaining the
+   * <i>keyComponentClass</i>-objects of each value (see
+   * {@link #OrderedSet(boolean, org.commonvox.collections.KeyComponentProfile...)}).
+   *
+   * @param collection Collection of <i>valueClass</i>-objects to be add to
+   * and ordered by the new <i>OrderedSet</i>
+   * @param retainKeyComponents if {@code true}, the
+   * <i>keyComponentClass</i>-objects of each value are retained for use in
+   * its removal.
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>OrderedSet</i>.
+   */
+  @SafeVarargs
+  public OrderedSet(Collection<? extends V> collection,
+          boolean retainKeyComponents,
+          KeyComponentProfile<V>... keyComponentProfiles) {
     MapNode.checkVarargs(keyComponentProfiles);
     this.topMapNode = new MapNode<V>("topMapNode", keyComponentProfiles);
+    if (retainKeyComponents) {
+      this.keyComponentsByValue = new HashMap<V,Object[][]>();
+    }
     buildKeyComponentSets();
     addAll(collection);
   }
 
 
   private void buildKeyComponentSets() {
-    keyComponentSetMap = new HashMap<KeyComponentProfile<V>, Set<Object>>();
+    keyComponentSetMap
+            = new HashMap<KeyComponentProfile<V>, CountedKeyComponentSet>();
     for (KeyComponentProfile keyComponentProfile :
             topMapNode.getKeyComponentProfileList()) {
       if (keyComponentProfile.getKeyComponentBasis().equals(
@@ -332,43 +400,15 @@ public class OrderedSet<V> extends HashSet<V> {
       }
       Comparator comparator = keyComponentProfile.getKeyComponentClassComparator();
       if (comparator != null) {
-        keyComponentSetMap.put(keyComponentProfile, new TreeSet<Object>(comparator));
+        keyComponentSetMap.put(keyComponentProfile,
+                new CountedKeyComponentSet(comparator));
       } else if (Comparable.class.isAssignableFrom(
               keyComponentProfile.getKeyComponentClass())) {
-        keyComponentSetMap.put(keyComponentProfile, new TreeSet<Object>());
+        keyComponentSetMap.put(keyComponentProfile,
+                new CountedKeyComponentSet(null));
       } else {
-        keyComponentSetMap.put(
-                keyComponentProfile, new TreeSet<Object>(new HashCodeComparator()));
-      }
-    }
-    buildTransientCollections();
-  }
-
-  /**
-   * Note that the Method class is not Serializable; thus, the collections
-   * that contain Method objects are not Serializable and must be rebuilt
-   * as part of the deserialization process.
-   * This method builds keyComponentSetMapByMethod: a HashMap that maps each
-   * "get" method of the valueClass with a List of all Sets of key-component
-   * objects that the "get" method can be used to populate via reflective
-   * invocation.
-   */
-  private void buildTransientCollections() {
-    keyComponentSetMapByMethod = new HashMap<Method,List<Set<Object>>>();
-
-    for (Entry<KeyComponentProfile<V>, Set<Object>> entry :
-            keyComponentSetMap.entrySet()) {
-      for (Method methodToGetKeyComponent :
-             entry.getKey().getKeyComponentGetMethods()) {
-        List<Set<Object>> keyComponentSetList;
-        if (keyComponentSetMapByMethod.containsKey(methodToGetKeyComponent)) {
-          keyComponentSetList
-                  = keyComponentSetMapByMethod.get(methodToGetKeyComponent);
-        } else {
-          keyComponentSetList = new ArrayList<Set<Object>>();
-        }
-        keyComponentSetList.add(entry.getValue());
-        keyComponentSetMapByMethod.put(methodToGetKeyComponent, keyComponentSetList);
+        keyComponentSetMap.put(keyComponentProfile,
+                new CountedKeyComponentSet(new MapNode.HashCodeComparator()));
       }
     }
   }
@@ -389,6 +429,110 @@ public class OrderedSet<V> extends HashSet<V> {
     return addOrRemove(value, false);
   }
 
+  /**
+   * Adds all of the values in the specified collection to this
+   * <i>OrderedSet</i>, ordering each via the composite-key stipulated by the
+   * {@link #OrderedSet(org.commonvox.collections.KeyComponentProfile...)
+   * keyComponentProfiles} of the set. If this set is empty (as when it is
+   * constructed from a collection), the values are bulk-loaded: their
+   * composite-keys are sorted once and the internal ordering structures are
+   * built directly from the sorted composite-keys, which is far faster than
+   * one-at-a-time insertion for large collections. Null values are not
+   * accepted.
+   *
+   * @param collection Collection of values to be added to this set.
+   * @return {@code true} if this set changed as a result of the call.
+   */
+  @Override
+  public boolean addAll(Collection<? extends V> collection) {
+    if (!isEmpty()) {
+      checkForNullValues(collection);
+      return super.addAll(collection);
+    }
+    List<V> addedValues = addAllToHashSet(collection);
+    List<Object[][]> keyComponentsList
+            = new ArrayList<Object[][]>(addedValues.size());
+    for (V value : addedValues) {
+      keyComponentsList.add(topMapNode.extractKeyComponents(value));
+    }
+    recordKeyComponents(addedValues, keyComponentsList);
+    editableTopMapNode().bulkLoad(addedValues, keyComponentsList);
+    return !addedValues.isEmpty();
+  }
+
+  /**
+   * Adds all of the values in the specified collection to this
+   * <i>OrderedSet</i> (as with {@link #addAll(java.util.Collection)}), using
+   * the threads of the common
+   * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ForkJoinPool.html">
+   * ForkJoinPool</a>: the <i>keyComponentClass</i>-objects of the values are
+   * retrieved in parallel, the values are partitioned by the
+   * <i>keyComponentClass</i>-objects of the first {@link KeyComponentProfile},
+   * and the ordering structures beneath each first-level
+   * <i>keyComponentClass</i>-object are built by a separate task.
+   * The "get" methods of the values must therefore be safe for invocation
+   * from multiple threads. Null values are not accepted.
+   *
+   * @param collection Collection of values to be added to this set.
+   * @return {@code true} if this set changed as a result of the call.
+   */
+  public boolean parallelAddAll(Collection<? extends V> collection) {
+    List<V> addedValues = addAllToHashSet(collection);
+    List<Object[][]> keyComponentsList
+            = topMapNode.parallelExtractKeyComponents(addedValues);
+    recordKeyComponents(addedValues, keyComponentsList);
+    editableTopMapNode().parallelLoad(addedValues, keyComponentsList);
+    return !addedValues.isEmpty();
+  }
+
+  /**
+   * Adds the values of the submitted collection to the underlying HashSet
+   * (only), after first verifying that none of them is null.
+   *
+   * @return the values actually added, in order of submission
+   */
+  private List<V> addAllToHashSet(Collection<? extends V> collection) {
+    checkForNullValues(collection);
+    List<V> addedValues = new ArrayList<V>(collection.size());
+    for (V value : collection) {
+      if (super.add(value)) {
+        addedValues.add(value);
+      }
+    }
+    return addedValues;
+  }
+
+  /**
+   * Verifies that none of the values of the submitted collection is null,
+   * so that a bulk addition is rejected before this set is modified.
+   */
+  private static void checkForNullValues(Collection<?> collection) {
+    for (Object value : collection) {
+      if (value == null) {
+        throw new IllegalArgumentException("Invalid <null> value "
+                + "submitted to add/remove method.");
+      }
+    }
+  }
+
+  private void recordKeyComponents(List<V> values,
+          List<Object[][]> keyComponentsList) {
+    for (int i = 0; i < values.size(); i++) {
+      if (keyComponentsByValue != null) {
+        keyComponentsByValue.put(values.get(i), keyComponentsList.get(i));
+      }
+      updateKeyComponentSets(keyComponentsList.get(i), false);
+    }
+  }
+
+  /**
+   * Returns the top-level MapNode for modification, first replacing it with a
+   * modifiable copy if its structures are shared with a {@link #snapshot()}.
+   */
+  private MapNode<V> editableTopMapNode() {
+    return topMapNode = topMapNode.editableTopMapNode();
+  }
+
   private boolean addOrRemove(V value, boolean removeValue) {
     if (value == null) {
       throw new IllegalArgumentException("Invalid <null> value "
@@ -399,18 +543,26 @@ public class OrderedSet<V> extends HashSet<V> {
         return false;
       }
     }
-    topMapNode.autoMap(value, removeValue);
-    if (!removeValue) {
-      autoPopulateKeyComponentSets(value);
+    Object[][] keyComponents;
+    if (keyComponentsByValue == null) {
+      keyComponents = topMapNode.extractKeyComponents(value);
+    } else if (removeValue) {
+      keyComponents = keyComponentsByValue.remove(value);
+    } else {
+      keyComponents = topMapNode.extractKeyComponents(value);
+      keyComponentsByValue.put(value, keyComponents);
     }
+    editableTopMapNode().autoMap(value, keyComponents, removeValue);
+    updateKeyComponentSets(keyComponents, removeValue);
     return true;
   }
 
   /**
    * Removes the specified object from this set if it is present, and clears
-   * any corresponding composite-key entries.
-   * Note that invocation of this method will result in a rebuilding of
-   * internal <a href="#keyComponentSetDescription"><i>keyComponentSet</i>s</a>.
+   * any corresponding composite-key entries. Each
+   * <i>keyComponentClass</i>-object of the removed object is dropped from its
+   * <a href="#keyComponentSetDescription"><i>keyComponentSet</i></a> only if
+   * no remaining value of this set shares it.
    *
    * @param o Object to be removed from this set, if present.
    * @return {@code true} if the set contained the specified object.
@@ -420,9 +572,6 @@ public class OrderedSet<V> extends HashSet<V> {
     boolean removed;
     if (removed = super.remove(o)) {
       removeFromMapNodes((V)o);
-      if (!removeAllIsInProgress) {
-        repopulateKeyComponentSets();
-      }
     }
     return removed;
   }
@@ -430,28 +579,18 @@ public class OrderedSet<V> extends HashSet<V> {
   /**
    * Removes each object in the specified collection from this set if it is
    * present, and clears any corresponding composite-key entries.
-   * Note that invocation of this method will result in a
-   * rebuilding of internal
-   * <a href="#keyComponentSetDescription"><i>keyComponentSet</i>s</a>.
    *
    * @param collection Objects to be removed from this set, if present.
    * @return {@code true} if this set changed as a result of the call.
    */
   @Override
   public boolean removeAll(Collection<?> collection) {
-    removeAllIsInProgress = true;
     boolean thisCollectionChanged = false;
     for (Object o : collection) {
-      boolean objectRemoved;
-      if (objectRemoved = remove(o)) {
-        removeFromMapNodes((V)o);
+      if (remove(o)) {
         thisCollectionChanged = true;
       }
     }
-    if (thisCollectionChanged) {
-      repopulateKeyComponentSets();
-    }
-    removeAllIsInProgress = false;
     return thisCollectionChanged;
   }
 
@@ -459,6 +598,62 @@ public class OrderedSet<V> extends HashSet<V> {
     return addOrRemove(object, true);
   }
 
+  /**
+   * Re-indexes the specified value after modification of its attributes,
+   * without removing it from this set. The <i>keyComponentClass</i>-objects
+   * currently retrieved from the value are compared, level by level, with
+   * those retained when the value was added (or last updated); only
+   * composite-key entries and
+   * <a href="#keyComponentSetDescription"><i>keyComponentSet</i></a> counts
+   * affected by the differences are modified.
+   * This method is available only in an <i>OrderedSet</i>
+   * {@link #OrderedSet(boolean, org.commonvox.collections.KeyComponentProfile...)
+   * constructed to retain keyComponents}.
+   *
+   * @param value Value (i.e., object) to be re-indexed. The value may not be
+   * null.
+   * @return {@code true} if this set contains the specified value.
+   * @throws IllegalStateException if this <i>OrderedSet</i> does not retain
+   * keyComponents.
+   */
+  public final boolean update(V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Invalid <null> value "
+              + "submitted to update method.");
+    }
+    if (keyComponentsByValue == null) {
+      throw new IllegalStateException("The update method is available only "
+              + "in an OrderedSet constructed to retain keyComponents.");
+    }
+    Object[][] oldKeyComponents = keyComponentsByValue.get(value);
+    if (oldKeyComponents == null) {
+      return false;
+    }
+    Object[] identityKeyComponents = oldKeyComponents[oldKeyComponents.length - 1];
+    if (identityKeyComponents.length != 1 || identityKeyComponents[0] != value) {
+      // an equal but distinct instance is submitted: replace the retained one
+      remove(value);
+      return add(value);
+    }
+    Object[][] newKeyComponents = topMapNode.extractKeyComponents(value);
+    editableTopMapNode().reindex(value, oldKeyComponents, newKeyComponents);
+    List<KeyComponentProfile<V>> keyComponentProfiles
+            = topMapNode.getKeyComponentProfileList();
+    for (int i = 0; i < newKeyComponents.length; i++) {
+      CountedKeyComponentSet keyComponentSet
+              = keyComponentSetMap.get(keyComponentProfiles.get(i));
+      if (keyComponentSet == null) {
+        continue;
+      }
+      keyComponentSet.addOccurrences(MapNode.keyComponentsMissingFrom(
+              newKeyComponents[i], oldKeyComponents[i]));
+      keyComponentSet.removeOccurrences(MapNode.keyComponentsMissingFrom(
+              oldKeyComponents[i], newKeyComponents[i]));
+    }
+    keyComponentsByValue.put(value, newKeyComponents);
+    return true;
+  }
+
   /**
    * Removes all of the values from this set.
    * The set will be empty after this call returns.
@@ -475,8 +670,9 @@ public class OrderedSet<V> extends HashSet<V> {
     this.topMapNode = emptyCopyOfOrderedSet.topMapNode;
     this.keyComponentSetMap
             = emptyCopyOfOrderedSet.keyComponentSetMap;
-    this.keyComponentSetMapByMethod
-            = emptyCopyOfOrderedSet.keyComponentSetMapByMethod;
+    if (this.keyComponentsByValue != null) {
+      this.keyComponentsByValue.clear();
+    }
   }
 
   /**
@@ -512,90 +708,45 @@ public class OrderedSet<V> extends HashSet<V> {
         superIterator.remove();
         if (currentObject != null) {
           removeFromMapNodes(currentObject);
-          repopulateKeyComponentSets();
         }
       }
     };
   }
 
-  private void autoPopulateKeyComponentSets(V value) {
-    if (keyComponentSetMapByMethod == null) {
-      return;
-    }
-    for (Map.Entry<Method,List<Set<Object>>> entry :
-            keyComponentSetMapByMethod.entrySet()) {
-      Method currentGetMethod = entry.getKey();
-      List<Set<Object>> keyComponentSetsPopulatedByCurrentGetMethod = entry.getValue();
-
-      if (keyComponentSetsPopulatedByCurrentGetMethod == null ||
-              keyComponentSetsPopulatedByCurrentGetMethod.isEmpty()) {
+  private void updateKeyComponentSets(Object[][] keyComponents,
+          boolean removeKeyComponents) {
+    List<KeyComponentProfile<V>> keyComponentProfiles
+            = topMapNode.getKeyComponentProfileList();
+    for (int i = 0; i < keyComponents.length; i++) {
+      CountedKeyComponentSet keyComponentSet
+              = keyComponentSetMap.get(keyComponentProfiles.get(i));
+      if (keyComponentSet == null) {
         continue;
       }
-      if (Collection.class.isAssignableFrom(currentGetMethod.getReturnType())) {
-        Collection<Object> keyComponents = null;
-        try {
-          @SuppressWarnings("unchecked")
-          Collection<Object> retrievedKeyComponents
-                  = (Collection<Object>) currentGetMethod.invoke(value);
-          keyComponents = retrievedKeyComponents;
-        }
-        catch (InvocationTargetException e) {
-          throw new InternalError("Unanticipated " + e.getClass().getSimpleName()
-                  + " encountered while retrieving keyComponent(s).", e);
-        }
-        catch (IllegalAccessException e) {
-          throw new InternalError("Unanticipated " + e.getClass().getSimpleName()
-                  + " encountered while retrieving Component(s).", e);
-        }
-        if (keyComponents == null) {
-          continue;
-        }
-        for (Set<Object> keyComponentSet :
-                keyComponentSetsPopulatedByCurrentGetMethod) {
-          keyComponentSet.addAll(keyComponents);
-        }
-      } else { // get a single instance of keyComponent
-        Object keyComponent = null;
-        try {
-          keyComponent = currentGetMethod.invoke(value);
-        }
-        catch (InvocationTargetException e) {
-          throw new InternalError("Unanticipated " + e.getClass().getSimpleName()
-                  + " encountered while retrieving keyComponent.", e);
-        }
-        catch (IllegalAccessException e) {
-          throw new InternalError("Unanticipated " + e.getClass().getSimpleName()
-                  + " encountered while retrieving keyComponent.", e);
-        }
-        if (keyComponent == null) {
-          continue;
-        }
-        for (Set<Object> keyComponentSet :
-                keyComponentSetsPopulatedByCurrentGetMethod) {
-          keyComponentSet.add(keyComponent);
-        }
+      if (removeKeyComponents) {
+        keyComponentSet.removeOccurrences(keyComponents[i]);
+      } else {
+        keyComponentSet.addOccurrences(keyComponents[i]);
       }
     }
   }
 
-  private void repopulateKeyComponentSets() {
-    buildKeyComponentSets();
-    for (V object : this) {
-      autoPopulateKeyComponentSets(object);
-    }
-  }
-
   /**
    * Returns a Set of the composite-keys in this <i>OrderedSet</i>.
    * Each composite-key is in the format of a List of the
    * <i>keyComponentClass</i>-objects of which it is comprised.
    * This Set of composite-keys matches the key portion of the entries returned
    * by the {@link #entrySet()} method.
+   * The returned set is a read-only view backed by the <i>OrderedSet</i>:
+   * composite-keys are assembled in composite-key order as the view is
+   * iterated, and changes to the <i>OrderedSet</i> are reflected in the view.
+   * If the <i>OrderedSet</i> is modified while an iteration over the view is in
+   * progress, the results of the iteration are undefined.
    *
    * @return Set consisting of <i>keyComponentClass</i>-object Lists.
    */
   public final Set<List<Object>> compositeKeys() {
-    return topMapNode.getKeyComponentLists();
+    return new CompositeKeySetView();
   }
 
   /**
@@ -605,15 +756,18 @@ public class OrderedSet<V> extends HashSet<V> {
    * KeyComponentProfiles} with which the <i>OrderedSet</i> was constructed.
    * Each entry pairs a composite-key instance (comprised of a List of
    * <i>keyComponentClass</i>-objects) with the value to which it is mapped.
-   * The returned set is not backed by the <i>OrderedSet</i>, so a change
-   * to one (e.g., add, remove, etc.) is not reflected in the other.
+   * The returned set is a read-only view backed by the <i>OrderedSet</i>:
+   * entries are assembled in composite-key order as the view is iterated,
+   * and changes to the <i>OrderedSet</i> are reflected in the view.
+   * If the <i>OrderedSet</i> is modified while an iteration over the view is in
+   * progress, the results of the iteration are undefined.
    *
    * @return Entry set in composite-key order, with each entry pairing a
    * composite-key instance (comprised of a List of
    * <i>keyComponentClass</i>-objects) with the value to which it is mapped.
    */
   public final Set<Map.Entry<List<Object>,V>> entrySet() {
-    return topMapNode.getEntrySet();
+    return new EntrySetView();
   }
 
   /**
@@ -628,6 +782,91 @@ public class OrderedSet<V> extends HashSet<V> {
     return topMapNode.selectAll();
   }
 
+  /**
+   * Returns a read-only iterator over the values contained in this
+   * <i>OrderedSet</i>, in the same composite-key order as the List returned
+   * by the {@link #values()} method. Values are retrieved on demand as the
+   * iteration proceeds (no List of values is assembled), so a scan which
+   * ends early (e.g., after a first page or a first match) does only the
+   * work required to reach that point.
+   * The {@code remove} method of the returned iterator is not supported.
+   * If this <i>OrderedSet</i> is modified while an iteration is in progress,
+   * the results of the iteration are undefined.
+   *
+   * @return iterator over values in composite-key order
+   */
+  public final Iterator<V> orderedIterator() {
+    return topMapNode.valueIterator();
+  }
+
+  /**
+   * Returns a Spliterator over the values contained in this
+   * <i>OrderedSet</i>, in the same composite-key order as the List returned
+   * by the {@link #values()} method (note that, as in that List, a value may
+   * occur more than once). The Spliterator is ORDERED, SIZED and SUBSIZED:
+   * it splits along the boundaries of the internal ordering structures, the
+   * size of each split-off portion being known exactly, so that parallel
+   * processing of the ordered values requires no copying of them.
+   * (The {@link #spliterator()} method, by contrast, covers each value once,
+   * in no particular order.)
+   * If this <i>OrderedSet</i> is modified while the Spliterator is in use,
+   * the results are undefined.
+   *
+   * @return Spliterator over values in composite-key order
+   */
+  public final Spliterator<V> orderedSpliterator() {
+    return topMapNode.valueSpliterator();
+  }
+
+  /**
+   * Returns a sequential Stream of the values contained in this
+   * <i>OrderedSet</i>, in the same composite-key order as the List returned
+   * by the {@link #values()} method; see {@link #orderedSpliterator()}.
+   *
+   * @return Stream of values in composite-key order
+   */
+  public final Stream<V> orderedStream() {
+    return StreamSupport.stream(orderedSpliterator(), false);
+  }
+
+  /**
+   * Returns a parallel Stream of the values contained in this
+   * <i>OrderedSet</i>, in the same composite-key order as the List returned
+   * by the {@link #values()} method; see {@link #orderedSpliterator()}.
+   *
+   * @return parallel Stream of values in composite-key order
+   */
+  public final Stream<V> parallelOrderedStream() {
+    return StreamSupport.stream(orderedSpliterator(), true);
+  }
+
+  /**
+   * Returns a sequential Stream of the values contained in this
+   * <i>OrderedSet</i> whose composite-keys begin with the submitted
+   * keyComponent-objects, in composite-key order. The first submitted object
+   * must be of the <i>keyComponentClass</i> stipulated in the first
+   * {@link KeyComponentProfile} submitted to the constructor of this
+   * <i>OrderedSet</i>, the second of that stipulated in the second, and so on.
+   * The values beneath the prefix are reached by direct descent, and the
+   * Stream may be made parallel (via {@link Stream#parallel()}) without
+   * copying them.
+   *
+   * @param keyPrefix keyComponent-objects of a composite-key prefix (at most
+   * one per {@link KeyComponentProfile} submitted to the constructor).
+   * @return Stream of the values beneath the prefix, in composite-key order
+   * @throws IllegalArgumentException if more keyComponent-objects are
+   * submitted than there are <i>KeyComponentProfiles</i>, or if any of them
+   * is null or not of the <i>keyComponentClass</i> of its position.
+   */
+  public final Stream<V> orderedStream(Object... keyPrefix)
+      throws IllegalArgumentException {
+    MapNode<V> lowerMapNode = topMapNode.lowerMapNode(keyPrefix);
+    if (lowerMapNode == null) {
+      return StreamSupport.stream(Spliterators.<V>emptySpliterator(), false);
+    }
+    return StreamSupport.stream(lowerMapNode.valueSpliterator(), false);
+  }
+
   /**
    * Returns a List of the values contained in this <i>OrderedSet</i>, ordered
    * according to composite-key structures stipulated by the array of
@@ -642,12 +881,55 @@ public class OrderedSet<V> extends HashSet<V> {
    */
   public final List<V> values (boolean suppressConsecutiveDuplicates) {
     if (suppressConsecutiveDuplicates) {
-      return suppressConsecutiveDuplicates(values());
+      return suppressConsecutiveDuplicates(orderedIterator());
     } else {
       return values();
     }
   }
 
+  /**
+   * Returns the value at the specified position in the composite-key ordered
+   * sequence of values returned by the {@link #values()} method; i.e., the
+   * result is the same as that of {@code values().get(index)}, but no List of
+   * values is assembled. Positioning is done via entry counts which are
+   * maintained internally at each level of the composite-key structure.
+   *
+   * @param index position of the value in composite-key order.
+   * @return the value at the specified position in composite-key order.
+   * @throws IndexOutOfBoundsException if index is out of range
+   * ({@code index < 0 || index >= values().size()}).
+   */
+  public final V get(int index) {
+    return topMapNode.get(index);
+  }
+
+  /**
+   * Returns the position of the first occurrence of the specified value in the
+   * composite-key ordered sequence of values returned by the {@link #values()}
+   * method; i.e., the result is the same as that of
+   * {@code values().indexOf(value)}, but no List of values is assembled.
+   * Note that a value may occur multiple times in that sequence (e.g., once
+   * for each of a {@code Book}'s {@code Author}s). If this <i>OrderedSet</i>
+   * retains <i>keyComponent</i>-objects, a value modified since it was added
+   * is located by those under which it was added.
+   *
+   * @param value Value (i.e., object) to be located in composite-key order.
+   * @return the position of the first occurrence of the value in
+   * composite-key order, or -1 if this set does not contain the value.
+   */
+  public final int rank(V value) {
+    if (value == null || !contains(value)) {
+      return -1;
+    }
+    // a value modified since it was indexed is located by its retained keys
+    Object[][] keyComponents = (keyComponentsByValue == null)
+            ? null : keyComponentsByValue.get(value);
+    if (keyComponents == null) {
+      keyComponents = topMapNode.extractKeyComponents(value);
+    }
+    return topMapNode.indexOf(value, keyComponents);
+  }
+
   /**
    * Returns a List of the values contained in this <i>OrderedSet</i> which
    * share the submitted <i>keyComponent</i>-object as a common attribute;
@@ -678,16 +960,360 @@ public class OrderedSet<V> extends HashSet<V> {
    */
   public final List<V> values(Object keyComponentObject)
       throws IllegalArgumentException {
-    if (!topMapNode.getKeyComponentProfileList().get(0).getKeyComponentClass().
-            isAssignableFrom(keyComponentObject.getClass())) {
-      throw new IllegalArgumentException("First KeyComponentProfile "
-              + "of this OrderedSet is based on Class : <"
-              + topMapNode.getKeyComponentProfileList().get(0).getKeyComponentClass()
-              + ">. It is NOT based on Class of submitted keyComponentObject: <"
-              + keyComponentObject.getClass().getName() + ">.");
+    return topMapNode.selectDistinct(keyComponentObject);
+  }
+
+  /**
+   * Returns a List of the distinct values contained in this <i>OrderedSet</i>
+   * whose composite-keys match the submitted pattern of
+   * <i>keyComponent</i>-objects, in composite-key order (each value at its
+   * first occurrence). The first element of the pattern must be of the
+   * <i>keyComponentClass</i> stipulated in the first
+   * {@link KeyComponentProfile} submitted to the constructor of this
+   * <i>OrderedSet</i>, the second of that stipulated in the second, and so
+   * on; a {@code null} element is a wildcard matching any
+   * <i>keyComponent</i>-object, and composite-key components beyond the end
+   * of the pattern match any <i>keyComponent</i>-object.
+   * For example, with a {@code Genre|Author|Title} composite-key,
+   * {@code valuesMatching(satireGenre, null, someTitle)} returns the values of the
+   * given {@code Genre} and {@code Title} by any {@code Author}.
+   * <br><br>
+   * Components given in the pattern are located by direct descent through the
+   * internal ordering structures; only the portions beneath wildcards are
+   * scanned.
+   *
+   * @param keyPattern <i>keyComponent</i>-objects (or {@code null}
+   * wildcards), at most one per {@link KeyComponentProfile} submitted to the
+   * constructor.
+   * @return A List of the distinct values whose composite-keys match the
+   * pattern, in composite-key order.
+   * @throws IllegalArgumentException if more elements are submitted than there
+   * are <i>KeyComponentProfiles</i>, or if any non-null element is not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final List<V> valuesMatching(Object... keyPattern)
+      throws IllegalArgumentException {
+    return topMapNode.selectDistinctMatching(keyComponentsByValue, keyPattern);
+  }
+
+  /**
+   * Returns the first composite-key ordered entry of this <i>OrderedSet</i>
+   * (i.e., the first entry of its {@link #entrySet()}), or {@code null} if
+   * there is none.
+   *
+   * @return the first entry in composite-key order, or {@code null}
+   */
+  public final Map.Entry<List<Object>,V> firstEntry() {
+    return topMapNode.nearestEntry(new Object[0], true, true);
+  }
+
+  /**
+   * Returns the last composite-key ordered entry of this <i>OrderedSet</i>
+   * (i.e., the last entry of its {@link #entrySet()}), or {@code null} if
+   * there is none.
+   *
+   * @return the last entry in composite-key order, or {@code null}
+   */
+  public final Map.Entry<List<Object>,V> lastEntry() {
+    return topMapNode.nearestEntry(new Object[0], false, true);
+  }
+
+  /**
+   * Returns the first entry of this <i>OrderedSet</i> whose composite-key is
+   * at or after the submitted (complete or partial) composite-key, or
+   * {@code null} if there is none. The first submitted object must be of the
+   * <i>keyComponentClass</i> stipulated in the first
+   * {@link KeyComponentProfile} submitted to the constructor of this
+   * <i>OrderedSet</i>, the second of that stipulated in the second, and so
+   * on; a complete composite-key (such as one returned by
+   * {@link #entrySet()}) ends with a value. An entry is "at" a partial
+   * composite-key if its composite-key begins with it.
+   * <br><br>
+   * The entry is located by descending the internal ordering structures along
+   * the composite-key, at a cost proportional to the number of composite-key
+   * components times the logarithm of the number of distinct
+   * <i>keyComponent</i>-objects per component; no entries are scanned.
+   *
+   * @param keyPrefix <i>keyComponent</i>-objects of a complete or partial
+   * composite-key.
+   * @return the first entry at or after the composite-key, or {@code null}
+   * @throws IllegalArgumentException if more objects are submitted than there
+   * are composite-key components, or if any of them is null or not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final Map.Entry<List<Object>,V> ceilingEntry(Object... keyPrefix)
+      throws IllegalArgumentException {
+    return topMapNode.nearestEntry(keyPrefix, true, true);
+  }
+
+  /**
+   * Returns the first entry of this <i>OrderedSet</i> whose composite-key is
+   * after the submitted (complete or partial) composite-key (and does not
+   * begin with it), or {@code null} if there is none; submission of the
+   * composite-key of an entry returned by {@link #entrySet()} (e.g., the last
+   * entry of a page) thus yields the entry which follows it. See
+   * {@link #ceilingEntry(java.lang.Object...)}.
+   *
+   * @param keyPrefix <i>keyComponent</i>-objects of a complete or partial
+   * composite-key.
+   * @return the first entry after the composite-key, or {@code null}
+   * @throws IllegalArgumentException if more objects are submitted than there
+   * are composite-key components, or if any of them is null or not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final Map.Entry<List<Object>,V> higherEntry(Object... keyPrefix)
+      throws IllegalArgumentException {
+    return topMapNode.nearestEntry(keyPrefix, true, false);
+  }
+
+  /**
+   * Returns the last entry of this <i>OrderedSet</i> whose composite-key is
+   * at or before the submitted (complete or partial) composite-key, or
+   * {@code null} if there is none. See
+   * {@link #ceilingEntry(java.lang.Object...)}.
+   *
+   * @param keyPrefix <i>keyComponent</i>-objects of a complete or partial
+   * composite-key.
+   * @return the last entry at or before the composite-key, or {@code null}
+   * @throws IllegalArgumentException if more objects are submitted than there
+   * are composite-key components, or if any of them is null or not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final Map.Entry<List<Object>,V> floorEntry(Object... keyPrefix)
+      throws IllegalArgumentException {
+    return topMapNode.nearestEntry(keyPrefix, false, true);
+  }
+
+  /**
+   * Returns the last entry of this <i>OrderedSet</i> whose composite-key is
+   * before the submitted (complete or partial) composite-key (and does not
+   * begin with it), or {@code null} if there is none. See
+   * {@link #ceilingEntry(java.lang.Object...)}.
+   *
+   * @param keyPrefix <i>keyComponent</i>-objects of a complete or partial
+   * composite-key.
+   * @return the last entry before the composite-key, or {@code null}
+   * @throws IllegalArgumentException if more objects are submitted than there
+   * are composite-key components, or if any of them is null or not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final Map.Entry<List<Object>,V> lowerEntry(Object... keyPrefix)
+      throws IllegalArgumentException {
+    return topMapNode.nearestEntry(keyPrefix, false, false);
+  }
+
+  /**
+   * Returns a page of (at most <i>limit</i>) values of this
+   * <i>OrderedSet</i> in composite-key order, beginning with the first entry
+   * after the submitted cursor (or with the first entry, if the cursor is
+   * {@code null}), together with a cursor for the following page.
+   * <br><br>
+   * The cursor holds the composite-key of the last entry of a page, so each
+   * page is reached by a single descent to its position, from which its
+   * entries are visited in place, at a cost independent of its depth in the
+   * ordering (unlike offset-based retrieval from
+   * {@link #values()}), and paging remains consistent when values are added
+   * to or removed from this set between pages. As in {@link #values()}, a
+   * value may occur once for each of its composite-keys.
+   *
+   * @param cursor the {@link OrderedSetPage#nextCursor() nextCursor} of the
+   * preceding page, or {@code null} for the first page.
+   * @param limit maximum number of values in the page.
+   * @return the page of values following the cursor
+   * @throws IllegalArgumentException if limit is less than 1, or if the
+   * cursor was not obtained from an <i>OrderedSet</i> with the same
+   * composite-key structure.
+   */
+  public final OrderedSetPage<V> page(OrderedSetPage.Cursor cursor, int limit)
+      throws IllegalArgumentException {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Page limit must be at least 1; "
+              + limit + " was submitted.");
     }
-    return new ArrayList<V>(new LinkedHashSet<V>(
-            this.topMapNode.get(keyComponentObject)));
+    List<V> pageValues = new ArrayList<V>(Math.min(limit, topMapNode.size()));
+    Object[] lastCompositeKey = topMapNode.collectPage(
+            (cursor == null) ? null : cursor.getCompositeKey(), limit, pageValues);
+    return new OrderedSetPage<V>(pageValues, (lastCompositeKey == null) ? null
+            : new OrderedSetPage.Cursor(lastCompositeKey));
+  }
+
+  /**
+   * Returns a live, read-only view of the entries of this <i>OrderedSet</i>
+   * whose composite-keys lie between the submitted composite-key prefixes
+   * (see {@link OrderedSetRange} for the comparison of composite-keys with
+   * prefixes). Each retrieval from the view locates the range by descending
+   * the internal ordering structures along its bounds, so it costs
+   * O(log n + k) rather than the O(n) of filtering {@link #values()}.
+   * (For a view unaffected by subsequent modifications, obtain the range from
+   * a {@link #snapshot() snapshot}.)
+   *
+   * @param fromKeyPrefix lower bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix (at most one per {@link KeyComponentProfile}
+   * submitted to the constructor).
+   * @param fromInclusive {@code true} if entries beginning with the lower
+   * bound are to be included.
+   * @param toKeyPrefix upper bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix.
+   * @param toInclusive {@code true} if entries beginning with the upper bound
+   * are to be included.
+   * @return view of the entries between the bounds
+   * @throws IllegalArgumentException if either bound contains too many
+   * <i>keyComponent</i>-objects, or any which is null or not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final OrderedSetRange<V> subSet(List<?> fromKeyPrefix,
+          boolean fromInclusive, List<?> toKeyPrefix, boolean toInclusive)
+      throws IllegalArgumentException {
+    return new OrderedSetRange<V>(topMapNodeSupplier(),
+            fromKeyPrefix, fromInclusive, toKeyPrefix, toInclusive);
+  }
+
+  /**
+   * Returns a live, read-only view of the entries of this <i>OrderedSet</i>
+   * whose composite-keys lie below the submitted composite-key prefix; see
+   * {@link #subSet(java.util.List, boolean, java.util.List, boolean) subSet}.
+   *
+   * @param toKeyPrefix upper bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix.
+   * @param inclusive {@code true} if entries beginning with the bound are to
+   * be included.
+   * @return view of the entries below the bound
+   * @throws IllegalArgumentException if the bound is not a valid
+   * composite-key prefix.
+   */
+  public final OrderedSetRange<V> headSet(List<?> toKeyPrefix, boolean inclusive)
+      throws IllegalArgumentException {
+    return new OrderedSetRange<V>(topMapNodeSupplier(),
+            null, false, toKeyPrefix, inclusive);
+  }
+
+  /**
+   * Returns a live, read-only view of the entries of this <i>OrderedSet</i>
+   * whose composite-keys lie above the submitted composite-key prefix; see
+   * {@link #subSet(java.util.List, boolean, java.util.List, boolean) subSet}.
+   *
+   * @param fromKeyPrefix lower bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix.
+   * @param inclusive {@code true} if entries beginning with the bound are to
+   * be included.
+   * @return view of the entries above the bound
+   * @throws IllegalArgumentException if the bound is not a valid
+   * composite-key prefix.
+   */
+  public final OrderedSetRange<V> tailSet(List<?> fromKeyPrefix, boolean inclusive)
+      throws IllegalArgumentException {
+    return new OrderedSetRange<V>(topMapNodeSupplier(),
+            fromKeyPrefix, inclusive, null, false);
+  }
+
+  private Supplier<MapNode<V>> topMapNodeSupplier() {
+    return new Supplier<MapNode<V>>() {
+      @Override
+      public MapNode<V> get() {
+        return topMapNode;
+      }
+    };
+  }
+
+  /**
+   * Returns the number of entries of this <i>OrderedSet</i> whose
+   * composite-keys match the submitted pattern of <i>keyComponent</i>-objects
+   * (see {@link #valuesMatching(java.lang.Object...)} for the form of the pattern,
+   * in which {@code null} is a wildcard); a value is counted once for each of
+   * its matching composite-keys (e.g., once for each of a {@code Book}'s
+   * {@code Author}s). The count is read from entry counts maintained within
+   * the internal ordering structures, so no values are visited: only the
+   * portions of the structures above the last non-null element of the pattern
+   * are descended (or scanned, beneath wildcards).
+   *
+   * @param keyPattern <i>keyComponent</i>-objects (or {@code null}
+   * wildcards), at most one per {@link KeyComponentProfile} submitted to the
+   * constructor.
+   * @return number of matching entries
+   * @throws IllegalArgumentException if more elements are submitted than there
+   * are <i>KeyComponentProfiles</i>, or if any non-null element is not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final int count(Object... keyPattern)
+      throws IllegalArgumentException {
+    return topMapNode.countMatching(keyPattern, false);
+  }
+
+  /**
+   * Returns the number of distinct values of this <i>OrderedSet</i> whose
+   * composite-keys match the submitted pattern of <i>keyComponent</i>-objects;
+   * i.e., the result is the same as that of
+   * {@code valuesMatching(keyPattern).size()}, but no List of values is assembled
+   * (each value being counted only at its first matching composite-key, as
+   * described for {@link #valuesMatching(java.lang.Object...)}).
+   *
+   * @param keyPattern <i>keyComponent</i>-objects (or {@code null}
+   * wildcards), at most one per {@link KeyComponentProfile} submitted to the
+   * constructor.
+   * @return number of distinct matching values
+   * @throws IllegalArgumentException if more elements are submitted than there
+   * are <i>KeyComponentProfiles</i>, or if any non-null element is not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final int countDistinct(Object... keyPattern)
+      throws IllegalArgumentException {
+    return topMapNode.countDistinctMatching(keyComponentsByValue, keyPattern);
+  }
+
+  /**
+   * Returns {@code true} if any entry of this <i>OrderedSet</i> has a
+   * composite-key matching the submitted pattern of
+   * <i>keyComponent</i>-objects (see {@link #count(java.lang.Object...)});
+   * the search stops at the first match.
+   *
+   * @param keyPattern <i>keyComponent</i>-objects (or {@code null}
+   * wildcards), at most one per {@link KeyComponentProfile} submitted to the
+   * constructor.
+   * @return {@code true} if any entry matches the pattern
+   * @throws IllegalArgumentException if more elements are submitted than there
+   * are <i>KeyComponentProfiles</i>, or if any non-null element is not of the
+   * <i>keyComponentClass</i> of its position.
+   */
+  public final boolean exists(Object... keyPattern)
+      throws IllegalArgumentException {
+    return topMapNode.countMatching(keyPattern, true) > 0;
+  }
+
+  /**
+   * Returns an immutable snapshot of the composite-key ordered contents of
+   * this <i>OrderedSet</i>, in constant time and without copying. The
+   * snapshot shares the internal ordering structures of this set; once a
+   * snapshot has been taken, each subsequent modification of this set copies
+   * only the internal structures along the path to the modified entries
+   * (each such structure being copied at most once per snapshot), and all
+   * unmodified structures remain shared.
+   * <br><br>
+   * The snapshot is unaffected by subsequent modifications of this set, and
+   * may be read by any number of threads without locking (provided that it is
+   * safely published to them, e.g. via a volatile field or a
+   * thread-safe queue), while this set continues to be modified by its own
+   * thread.
+   *
+   * @return immutable snapshot of the ordered contents of this set
+   */
+  public final OrderedSetSnapshot<V> snapshot() {
+    topMapNode.freezeForSnapshot();
+    return new OrderedSetSnapshot<V>(topMapNode);
+  }
+
+  /**
+   * Returns an immutable, compactly stored copy of this <i>OrderedSet</i>,
+   * intended for reference data which is loaded once and thereafter only
+   * queried. Its composite-key ordering is held in sorted arrays (one per
+   * composite-key level) rather than in TreeMaps, so that retrievals
+   * binary-search arrays, and its heap cost is several times lower than that
+   * of this set; see {@link FrozenOrderedSet}. This set is not affected, and
+   * may be discarded once the copy is made.
+   *
+   * @return compact, immutable copy of this set
+   */
+  public final FrozenOrderedSet<V> freeze() {
+    return new FrozenOrderedSet<V>(this);
   }
 
   /**
@@ -696,6 +1322,8 @@ public class OrderedSet<V> extends HashSet<V> {
    * {@link #OrderedSet(org.commonvox.collections.KeyComponentProfile...)
    * constructed}.
    *
+   * The returned list is read-only.
+   *
    * @return The list of {@link KeyComponentProfile}s with which this
    * <i>OrderedSet</i> was
    * {@link #OrderedSet(org.commonvox.collections.KeyComponentProfile...)
@@ -705,10 +1333,17 @@ public class OrderedSet<V> extends HashSet<V> {
     return this.topMapNode.getKeyComponentProfileList();
   }
 
-  private List<V> suppressConsecutiveDuplicates(List<V> allValues) {
+  /**
+   * Returns a List of the submitted values, in iteration order, with any
+   * value equal to its immediate predecessor omitted; shared by the
+   * {@code values(boolean)} methods of <i>OrderedSet</i> and its snapshot
+   * and frozen counterparts.
+   */
+  static <V> List<V> suppressConsecutiveDuplicates(Iterator<V> allValues) {
     List<V> returnedValues = new ArrayList<V>();
     V previousValue = null;
-    for (V value : allValues) {
+    while (allValues.hasNext()) {
+      V value = allValues.next();
       if (!value.equals(previousValue)) {
         returnedValues.add(value);
         previousValue = value;
@@ -739,9 +1374,9 @@ public class OrderedSet<V> extends HashSet<V> {
 
   Set<Object> genreSet = booksByGenreAndAuthor.keyComponentSet(genreComponent);
   Set<Object> authorSet = booksByGenreAndAuthor.keyComponentSet(authorComponent); }</PRE>
-   * A <i>keyComponentSet</i> is a
-   * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/TreeSet.html">
-   * TreeSet</a>, ordered either in
+   * A <i>keyComponentSet</i> is a read-only
+   * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/NavigableSet.html">
+   * NavigableSet</a> view, ordered either in
    * <a href="https://docs.oracle.com/javase/8/docs/api/java/lang/Comparable.html">
    * natural order</a>,
    * <a href="https://docs.oracle.com/javase/8/docs/api/java/lang/Object.html#hashCode--">
@@ -766,32 +1401,95 @@ public class OrderedSet<V> extends HashSet<V> {
    */
   public Set<Object> keyComponentSet (KeyComponentProfile<V> keyComponentProfile)
       throws IllegalArgumentException {
-    if (!keyComponentSetMap.containsKey(keyComponentProfile)) {
-      throw new IllegalArgumentException("Submitted KeyComponentProfile "
-              + "not found in this OrderedSet.");
-    }
-    return keyComponentSetMap.get(keyComponentProfile);
+    checkKeyComponentProfile(keyComponentProfile);
+    return keyComponentSetMap.get(keyComponentProfile).keySet();
   }
 
   /**
-   * Special "override" of readObject required to enable deserialization; all
-   * index structures that contain Method objects (not serializable) must be
-   * reconstructed. For more info, see:
-   * <a href="https://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html"
-   * target="_blank">
-   * Serializable documentation</a>
+   * Returns a facet view of the
+   * <a href="#keyComponentSetDescription"><i>keyComponentSet</i></a> related
+   * to the submitted {@link KeyComponentProfile}: a read-only Map from each of
+   * its <i>keyComponentClass</i>-objects to the number of values of this
+   * <i>OrderedSet</i> which carry it (e.g., for an {@code Author} profile,
+   * the number of {@code Book}s by each {@code Author}). The Map iterates in
+   * the same order as the <i>keyComponentSet</i>, and is a live view of counts
+   * which are maintained incrementally as values are added and removed, so
+   * no counting pass over the values is made.
    *
-   * @param in ObjectInputStream object.
-   * @throws java.io.IOException from defaultReadObject
-   * @throws java.lang.ClassNotFoundException from defaultReadObject
+   * @param keyComponentProfile One of the {@link KeyComponentProfile} objects
+   * that was submitted in the constructor of this <i>OrderedSet</i>.
+   * @return read-only Map of <i>keyComponentClass</i>-objects to the numbers
+   * of values carrying them.
+   * @throws IllegalArgumentException if submitted keyComponentProfile not
+   * found in this <i>OrderedSet</i>.
    */
-  private void readObject(ObjectInputStream in)
-          throws IOException, ClassNotFoundException {
-    in.defaultReadObject();
+  public Map<Object, Integer> keyComponentCounts(
+          final KeyComponentProfile<V> keyComponentProfile)
+      throws IllegalArgumentException {
+    checkKeyComponentProfile(keyComponentProfile);
+    return new OccurrenceCountMap() {
+      @Override
+      TreeMap<Object, int[]> occurrenceCounts() {
+        // looked up on each access, as #clear replaces the counted sets
+        return keyComponentSetMap.get(keyComponentProfile).occurrenceCounts;
+      }
+    };
+  }
 
-    // rebuild structures that contain Method objects (not serializable)
-    if (keyComponentSetMap != null) {
-      buildTransientCollections();
+  /**
+   * Returns a facet view of the <i>keyComponentClass</i>-objects related to the
+   * submitted {@link KeyComponentProfile}, restricted to the values whose
+   * composite-keys match the submitted pattern of <i>keyComponent</i>-objects
+   * (see {@link #valuesMatching(java.lang.Object...)} for the form of the pattern):
+   * a read-only Map from each <i>keyComponentClass</i>-object carried by any
+   * such value to the number of such values which carry it (e.g., for an
+   * {@code Author} profile and a {@code Genre} pattern, the number of
+   * {@code Book}s by each {@code Author} within the {@code Genre}). The Map
+   * iterates in the same order as the <i>keyComponentSet</i>. Unlike the
+   * unrestricted {@link #keyComponentCounts(org.commonvox.collections.KeyComponentProfile)
+   * keyComponentCounts}, the counts are computed (in a single pass over the
+   * matching entries, from the <i>keyComponent</i>-objects under which the
+   * values are ordered) when this method is invoked, and are not affected by
+   * subsequent modification of this set.
+   *
+   * @param keyComponentProfile One of the {@link KeyComponentProfile} objects
+   * that was submitted in the constructor of this <i>OrderedSet</i>.
+   * @param keyPattern <i>keyComponent</i>-objects (or {@code null}
+   * wildcards), at most one per {@link KeyComponentProfile} submitted to the
+   * constructor.
+   * @return read-only Map of <i>keyComponentClass</i>-objects to the numbers
+   * of matching values carrying them.
+   * @throws IllegalArgumentException if submitted keyComponentProfile not
+   * found in this <i>OrderedSet</i>, or if the pattern is not valid.
+   */
+  public Map<Object, Integer> keyComponentCounts(
+          KeyComponentProfile<V> keyComponentProfile, Object... keyPattern)
+      throws IllegalArgumentException {
+    checkKeyComponentProfile(keyComponentProfile);
+    Comparator<? super Object> comparator
+            = keyComponentSetMap.get(keyComponentProfile).comparator();
+    final CountedKeyComponentSet patternCounts
+            = new CountedKeyComponentSet(comparator);
+    for (Map.Entry<Object, Set<V>> valuesEntry
+            : topMapNode.selectDistinctMatchingByKeyComponent(
+                    getKeyComponentProfiles().indexOf(keyComponentProfile),
+                    comparator, keyPattern).entrySet()) {
+      patternCounts.occurrenceCounts.put(valuesEntry.getKey(),
+              new int[]{valuesEntry.getValue().size()});
+    }
+    return new OccurrenceCountMap() {
+      @Override
+      TreeMap<Object, int[]> occurrenceCounts() {
+        return patternCounts.occurrenceCounts;
+      }
+    };
+  }
+
+  private void checkKeyComponentProfile(KeyComponentProfile<V> keyComponentProfile)
+      throws IllegalArgumentException {
+    if (!keyComponentSetMap.containsKey(keyComponentProfile)) {
+      throw new IllegalArgumentException("Submitted KeyComponentProfile "
+              + "not found in this OrderedSet.");
     }
   }
 
@@ -820,11 +1518,132 @@ public class OrderedSet<V> extends HashSet<V> {
     topMapNode.dumpContents();
   }
 
-  private class HashCodeComparator implements Comparator<Object> {
+  private class EntrySetView extends AbstractSet<Map.Entry<List<Object>,V>> {
+
+    @Override
+    public Iterator<Map.Entry<List<Object>,V>> iterator() {
+      return topMapNode.entryIterator();
+    }
+
+    @Override
+    public int size() {
+      return topMapNode.size();
+    }
+  }
+
+  private class CompositeKeySetView extends AbstractSet<List<Object>> {
+
+    @Override
+    public Iterator<List<Object>> iterator() {
+      return topMapNode.keyComponentListIterator();
+    }
+
+    @Override
+    public int size() {
+      return topMapNode.size();
+    }
+  }
+
+  /**
+   * A <i>keyComponentSet</i> which maintains, for each of its
+   * <i>keyComponentClass</i>-objects, a count of the values from which the
+   * object was retrieved; an object is dropped from the set only when its
+   * count reaches zero.
+   */
+  private static final class CountedKeyComponentSet implements Serializable {
+
+    private final TreeMap<Object, int[]> occurrenceCounts;
+
+    @SuppressWarnings("unchecked")
+    CountedKeyComponentSet(Comparator<?> comparator) {
+      occurrenceCounts = new TreeMap<Object, int[]>((Comparator<Object>)comparator);
+    }
+
+    void addOccurrences(Object[] keyComponents) {
+      for (Object keyComponent : keyComponents) {
+        int[] count = occurrenceCounts.get(keyComponent);
+        if (count == null) {
+          occurrenceCounts.put(keyComponent, new int[]{1});
+        } else {
+          count[0]++;
+        }
+      }
+    }
+
+    void removeOccurrences(Object[] keyComponents) {
+      for (Object keyComponent : keyComponents) {
+        int[] count = occurrenceCounts.get(keyComponent);
+        if (count != null && --count[0] == 0) {
+          occurrenceCounts.remove(keyComponent);
+        }
+      }
+    }
+
+    Set<Object> keySet() {
+      return Collections.unmodifiableNavigableSet(occurrenceCounts.navigableKeySet());
+    }
+
+    Comparator<? super Object> comparator() {
+      return occurrenceCounts.comparator();
+    }
+  }
+
+  /**
+   * Read-only Map view of the occurrence counts of a CountedKeyComponentSet,
+   * in the order of its keyComponent-objects.
+   */
+  private abstract static class OccurrenceCountMap extends AbstractMap<Object, Integer> {
+
+    abstract TreeMap<Object, int[]> occurrenceCounts();
 
     @Override
-    public int compare(Object o1, Object o2) {
-      return o1.hashCode() - o2.hashCode();
+    public Integer get(Object keyComponent) {
+      int[] count = occurrenceCounts().get(keyComponent);
+      return (count == null) ? null : count[0];
+    }
+
+    @Override
+    public boolean containsKey(Object keyComponent) {
+      return occurrenceCounts().containsKey(keyComponent);
+    }
+
+    @Override
+    public int size() {
+      return occurrenceCounts().size();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Integer>> entrySet() {
+      return new AbstractSet<Map.Entry<Object, Integer>>() {
+        @Override
+        public Iterator<Map.Entry<Object, Integer>> iterator() {
+          final Iterator<Map.Entry<Object, int[]>> countIterator
+                  = occurrenceCounts().entrySet().iterator();
+          return new Iterator<Map.Entry<Object, Integer>>() {
+            @Override
+            public boolean hasNext() {
+              return countIterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Object, Integer> next() {
+              Map.Entry<Object, int[]> countEntry = countIterator.next();
+              return new AbstractMap.SimpleImmutableEntry<Object, Integer>(
+                      countEntry.getKey(), countEntry.getValue()[0]);
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return occurrenceCounts().size();
+        }
+      };
     }
   }
 }
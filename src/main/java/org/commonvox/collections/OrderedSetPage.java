@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the composite-key ordered values of an {@link OrderedSet}, as
+ * returned by its {@link OrderedSet#page(OrderedSetPage.Cursor, int) page}
+ * method, together with the {@link Cursor} from which the following page
+ * is to be retrieved.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of objects ordered by the
+ * <i>OrderedSet</i> from which this page was retrieved.
+ */
+public final class OrderedSetPage<V> {
+
+  private final List<V> values;
+  private final Cursor nextCursor;
+
+  OrderedSetPage(List<V> values, Cursor nextCursor) {
+    this.values = Collections.unmodifiableList(values);
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Returns the values of this page, in composite-key order.
+   *
+   * @return read-only List of the values of this page
+   */
+  public List<V> values() {
+    return values;
+  }
+
+  /**
+   * Returns the cursor from which the page following this one is to be
+   * retrieved, or {@code null} if this is the last page.
+   *
+   * @return cursor for the following page, or {@code null}
+   */
+  public Cursor nextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Returns {@code true} if entries followed this page at the time of its
+   * retrieval.
+   *
+   * @return {@code true} if this is not the last page
+   */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  /**
+   * An opaque position in the composite-key order of an {@link OrderedSet}:
+   * the composite-key of the last entry of a page. A page retrieved from a
+   * cursor begins with the first entry whose composite-key follows that of
+   * the cursor, so the position remains valid (neither skipping nor
+   * repeating entries) when values are added to or removed from the set
+   * between the retrieval of pages, even when the entry of the cursor itself
+   * has been removed.
+   */
+  public static final class Cursor implements Serializable {
+
+    private final Object[] compositeKey;
+
+    Cursor(Object[] compositeKey) {
+      this.compositeKey = compositeKey;
+    }
+
+    Object[] getCompositeKey() {
+      return compositeKey.clone();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only view of the entries of an {@link OrderedSet} (or of an
+ * {@link OrderedSetSnapshot}) whose composite-keys lie within a range, as
+ * returned by the {@link OrderedSet#subSet subSet}, {@link OrderedSet#headSet
+ * headSet} and {@link OrderedSet#tailSet tailSet} methods.
+ * <br><br>
+ * The bounds of a range are composite-key prefixes: Lists of
+ * <i>keyComponent</i>-objects, the first of the <i>keyComponentClass</i>
+ * stipulated in the first {@link KeyComponentProfile}, the second of that
+ * stipulated in the second, and so on. Composite-keys are compared with a
+ * bound in lexicographic order of their leading <i>keyComponent</i>-objects;
+ * an inclusive bound includes every composite-key which begins with it. For
+ * example, with a {@code Genre|Author|Title} composite-key,
+ * {@code subSet(Arrays.asList(genreA), true, Arrays.asList(genreF), true)}
+ * covers all entries with a {@code Genre} from A to F inclusive.
+ * <br><br>
+ * A range obtained from an <i>OrderedSet</i> is live: each retrieval reflects
+ * the current contents of the set. A range obtained from an
+ * <i>OrderedSetSnapshot</i> reflects the contents of the snapshot. Each
+ * retrieval locates the range by descending the internal ordering structures
+ * along its bounds, at a cost logarithmic in the size of the set, and then
+ * visits only the entries within the range.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of objects ordered by the
+ * <i>OrderedSet</i> from which this range was obtained.
+ */
+public final class OrderedSetRange<V> {
+
+  private final Supplier<MapNode<V>> topMapNodeSupplier;
+  private final Object[] fromKeyPrefix;
+  private final boolean fromInclusive;
+  private final Object[] toKeyPrefix;
+  private final boolean toInclusive;
+
+  OrderedSetRange(Supplier<MapNode<V>> topMapNodeSupplier,
+          List<?> fromKeyPrefix, boolean fromInclusive,
+          List<?> toKeyPrefix, boolean toInclusive)
+          throws IllegalArgumentException {
+    this.topMapNodeSupplier = topMapNodeSupplier;
+    this.fromKeyPrefix = (fromKeyPrefix == null) ? null : fromKeyPrefix.toArray();
+    this.fromInclusive = fromInclusive;
+    this.toKeyPrefix = (toKeyPrefix == null) ? null : toKeyPrefix.toArray();
+    this.toInclusive = toInclusive;
+    MapNode<V> topMapNode = topMapNodeSupplier.get();
+    if (this.fromKeyPrefix != null) {
+      topMapNode.checkKeyPattern(this.fromKeyPrefix, false);
+    }
+    if (this.toKeyPrefix != null) {
+      topMapNode.checkKeyPattern(this.toKeyPrefix, false);
+    }
+  }
+
+  private MapNode.Range<V> range() {
+    return topMapNodeSupplier.get().range(
+            fromKeyPrefix, fromInclusive, toKeyPrefix, toInclusive);
+  }
+
+  /**
+   * Returns the composite-key ordered entries within this range (see
+   * {@link OrderedSet#entrySet()}), as a read-only Set.
+   *
+   * @return Entry set in composite-key order.
+   */
+  public Set<Map.Entry<List<Object>,V>> entrySet() {
+    return new AbstractSet<Map.Entry<List<Object>,V>>() {
+      @Override
+      public Iterator<Map.Entry<List<Object>,V>> iterator() {
+        return range().entryIterator();
+      }
+
+      @Override
+      public int size() {
+        return range().size();
+      }
+    };
+  }
+
+  /**
+   * Returns the composite-keys within this range, in composite-key order (see
+   * {@link OrderedSet#compositeKeys()}), as a read-only Set.
+   *
+   * @return Set consisting of <i>keyComponentClass</i>-object Lists.
+   */
+  public Set<List<Object>> compositeKeys() {
+    return new AbstractSet<List<Object>>() {
+      @Override
+      public Iterator<List<Object>> iterator() {
+        final Iterator<Map.Entry<List<Object>,V>> entryIterator
+                = range().entryIterator();
+        return new Iterator<List<Object>>() {
+          @Override
+          public boolean hasNext() {
+            return entryIterator.hasNext();
+          }
+
+          @Override
+          public List<Object> next() {
+            return entryIterator.next().getKey();
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return range().size();
+      }
+    };
+  }
+
+  /**
+   * Returns a List of the values within this range, in composite-key order
+   * (see {@link OrderedSet#values()}).
+   *
+   * @return values in composite-key order
+   */
+  public List<V> values() {
+    MapNode.Range<V> range = range();
+    List<V> values = new ArrayList<V>(range.size());
+    Iterator<V> valueIterator = range.valueIterator();
+    while (valueIterator.hasNext()) {
+      values.add(valueIterator.next());
+    }
+    return values;
+  }
+
+  /**
+   * Returns a read-only iterator over the values within this range, in
+   * composite-key order (see {@link OrderedSet#orderedIterator()}).
+   *
+   * @return iterator over values in composite-key order
+   */
+  public Iterator<V> orderedIterator() {
+    return range().valueIterator();
+  }
+
+  /**
+   * Returns a sequential Stream of the values within this range, in
+   * composite-key order (see {@link OrderedSet#orderedStream()}); the Stream
+   * may be made parallel (via {@link Stream#parallel()}) without copying the
+   * values.
+   *
+   * @return Stream of values in composite-key order
+   */
+  public Stream<V> orderedStream() {
+    return StreamSupport.stream(range().valueSpliterator(), false);
+  }
+}
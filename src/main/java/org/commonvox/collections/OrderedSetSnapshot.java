@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * An immutable snapshot of the composite-key ordered contents of an
+ * {@link OrderedSet}, as returned by its {@link OrderedSet#snapshot()}
+ * method. A snapshot shares the internal ordering structures of the
+ * <i>OrderedSet</i> as they stood when the snapshot was taken (subsequent
+ * modifications of the <i>OrderedSet</i> being made to copies of those
+ * structures), so it is obtained in constant time, is never affected by
+ * subsequent modifications of the <i>OrderedSet</i>, and may be read by any
+ * number of threads without locking.
+ * <br><br>
+ * All retrieval methods correspond to the like-named methods of
+ * {@link OrderedSet}.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of objects ordered by the
+ * <i>OrderedSet</i> from which this snapshot was taken.
+ */
+public final class OrderedSetSnapshot<V> implements Serializable {
+
+  private final MapNode<V> topMapNode;
+
+  OrderedSetSnapshot(MapNode<V> frozenTopMapNode) {
+    this.topMapNode = frozenTopMapNode;
+  }
+
+  /**
+   * Returns the composite-key ordered entries of this snapshot (see
+   * {@link OrderedSet#entrySet()}), as a read-only Set.
+   *
+   * @return Entry set in composite-key order.
+   */
+  public Set<Map.Entry<List<Object>,V>> entrySet() {
+    return new AbstractSet<Map.Entry<List<Object>,V>>() {
+      @Override
+      public Iterator<Map.Entry<List<Object>,V>> iterator() {
+        return topMapNode.entryIterator();
+      }
+
+      @Override
+      public int size() {
+        return topMapNode.size();
+      }
+    };
+  }
+
+  /**
+   * Returns the composite-keys of this snapshot, in composite-key order (see
+   * {@link OrderedSet#compositeKeys()}), as a read-only Set.
+   *
+   * @return Set consisting of <i>keyComponentClass</i>-object Lists.
+   */
+  public Set<List<Object>> compositeKeys() {
+    return new AbstractSet<List<Object>>() {
+      @Override
+      public Iterator<List<Object>> iterator() {
+        return topMapNode.keyComponentListIterator();
+      }
+
+      @Override
+      public int size() {
+        return topMapNode.size();
+      }
+    };
+  }
+
+  /**
+   * Returns a List of the values of this snapshot in composite-key order
+   * (see {@link OrderedSet#values()}).
+   *
+   * @return values in composite-key order
+   */
+  public List<V> values() {
+    return topMapNode.selectAll();
+  }
+
+  /**
+   * Returns a read-only view of the entries of this snapshot whose
+   * composite-keys lie between the submitted composite-key prefixes (see
+   * {@link OrderedSet#subSet(java.util.List, boolean, java.util.List, boolean)}).
+   *
+   * @param fromKeyPrefix lower bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix.
+   * @param fromInclusive {@code true} if entries beginning with the lower
+   * bound are to be included.
+   * @param toKeyPrefix upper bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix.
+   * @param toInclusive {@code true} if entries beginning with the upper bound
+   * are to be included.
+   * @return view of the entries between the bounds
+   * @throws IllegalArgumentException if either bound is not a valid
+   * composite-key prefix.
+   */
+  public OrderedSetRange<V> subSet(List<?> fromKeyPrefix, boolean fromInclusive,
+          List<?> toKeyPrefix, boolean toInclusive)
+          throws IllegalArgumentException {
+    return new OrderedSetRange<V>(topMapNodeSupplier(),
+            fromKeyPrefix, fromInclusive, toKeyPrefix, toInclusive);
+  }
+
+  /**
+   * Returns a read-only view of the entries of this snapshot whose
+   * composite-keys lie below the submitted composite-key prefix (see
+   * {@link OrderedSet#headSet(java.util.List, boolean)}).
+   *
+   * @param toKeyPrefix upper bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix.
+   * @param inclusive {@code true} if entries beginning with the bound are to
+   * be included.
+   * @return view of the entries below the bound
+   * @throws IllegalArgumentException if the bound is not a valid
+   * composite-key prefix.
+   */
+  public OrderedSetRange<V> headSet(List<?> toKeyPrefix, boolean inclusive)
+          throws IllegalArgumentException {
+    return new OrderedSetRange<V>(topMapNodeSupplier(),
+            null, false, toKeyPrefix, inclusive);
+  }
+
+  /**
+   * Returns a read-only view of the entries of this snapshot whose
+   * composite-keys lie above the submitted composite-key prefix (see
+   * {@link OrderedSet#tailSet(java.util.List, boolean)}).
+   *
+   * @param fromKeyPrefix lower bound: <i>keyComponent</i>-objects of a
+   * composite-key prefix.
+   * @param inclusive {@code true} if entries beginning with the bound are to
+   * be included.
+   * @return view of the entries above the bound
+   * @throws IllegalArgumentException if the bound is not a valid
+   * composite-key prefix.
+   */
+  public OrderedSetRange<V> tailSet(List<?> fromKeyPrefix, boolean inclusive)
+          throws IllegalArgumentException {
+    return new OrderedSetRange<V>(topMapNodeSupplier(),
+            fromKeyPrefix, inclusive, null, false);
+  }
+
+  private Supplier<MapNode<V>> topMapNodeSupplier() {
+    return new Supplier<MapNode<V>>() {
+      @Override
+      public MapNode<V> get() {
+        return topMapNode;
+      }
+    };
+  }
+
+  /**
+   * Returns a List of the values of this snapshot which share the submitted
+   * first-level <i>keyComponent</i>-object (see
+   * {@link OrderedSet#values(java.lang.Object)}).
+   *
+   * @param keyComponentObject Object of class equal to the
+   * <i>keyComponentClass</i> stipulated in the first
+   * {@link KeyComponentProfile}.
+   * @return A List of the values which share the submitted
+   * <i>keyComponent</i>-object as a common attribute.
+   * @throws IllegalArgumentException if keyComponentObject is not of the
+   * first <i>keyComponentClass</i>.
+   */
+  public List<V> values(Object keyComponentObject)
+          throws IllegalArgumentException {
+    return topMapNode.selectDistinct(keyComponentObject);
+  }
+
+  /**
+   * Returns a read-only iterator over the values of this snapshot, in
+   * composite-key order (see {@link OrderedSet#orderedIterator()}).
+   *
+   * @return iterator over values in composite-key order
+   */
+  public Iterator<V> orderedIterator() {
+    return topMapNode.valueIterator();
+  }
+
+  /**
+   * Returns the value at the specified position in composite-key order (see
+   * {@link OrderedSet#get(int)}).
+   *
+   * @param index position of the value in composite-key order.
+   * @return the value at the specified position in composite-key order.
+   * @throws IndexOutOfBoundsException if index is out of range
+   * ({@code index < 0 || index >= entrySet().size()}).
+   */
+  public V get(int index) {
+    return topMapNode.get(index);
+  }
+
+  /**
+   * Returns the list of {@link KeyComponentProfile}s of the <i>OrderedSet</i>
+   * from which this snapshot was taken.
+   *
+   * @return The list of {@link KeyComponentProfile}s of the
+   * <i>OrderedSet</i> from which this snapshot was taken.
+   */
+  public List<KeyComponentProfile<V>> getKeyComponentProfiles() {
+    return topMapNode.getKeyComponentProfileList();
+  }
+
+  /**
+   * Returns a List of the values of this snapshot in composite-key order,
+   * optionally with consecutive duplicates suppressed (see
+   * {@link OrderedSet#values(boolean)}).
+   *
+   * @param suppressConsecutiveDuplicates if {@code true}, consecutive
+   * duplicates are removed from the List before it is returned.
+   * @return values in composite-key order
+   */
+  public List<V> values(boolean suppressConsecutiveDuplicates) {
+    if (!suppressConsecutiveDuplicates) {
+      return values();
+    }
+    return OrderedSet.suppressConsecutiveDuplicates(orderedIterator());
+  }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe {@link OrderedSet} for read-mostly usage, guarded by a
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/locks/StampedLock.html">
+ * StampedLock</a>. Writes take the write lock. Readers never block one
+ * another, and the ordered queries perform no compare-and-set on the fast
+ * path:
+ * <ul>
+ * <li>The ordered queries ({@link #values()}, {@link #values(boolean)},
+ * {@link #values(java.lang.Object)}, {@link #entrySet()},
+ * {@link #compositeKeys()}, {@link #orderedIterator()} and
+ * {@link #get(int)}) are served, without any lock, from an immutable
+ * {@link OrderedSetSnapshot} published via a volatile field. The first such
+ * query after a write takes the snapshot (in constant time, see
+ * {@link OrderedSet#snapshot()}) under the read lock; every later query reads
+ * the published snapshot until the next write. A write following a snapshot
+ * copies the internal ordering structures along the path to the entries it
+ * modifies.</li>
+ * <li>The constant-time queries ({@link #size()} and
+ * {@link #contains(java.lang.Object)}) are performed as an <i>optimistic
+ * read</i> of the internal {@link OrderedSet}, which is then validated; if a
+ * write intervened (or the read failed on account of a concurrent write), the
+ * query is repeated under the read lock.</li>
+ * <li>The remaining queries ({@link #iterator()}, {@link #rank(java.lang.Object)}
+ * and {@link #keyComponentSet(org.commonvox.collections.KeyComponentProfile)
+ * keyComponentSet}) are not served by a snapshot, and so take the read lock
+ * (a compare-and-set) and copy their results.</li>
+ * </ul>
+ * Every result is either immutable or a copy, so results remain valid and
+ * iterable regardless of subsequent modification of the set, and reflect the
+ * state of the set at the time of the call. Null values are not accepted.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of objects contained
+ * and ordered by this <i>StampedOrderedSet</i>.
+ */
+public class StampedOrderedSet<V> extends AbstractSet<V> implements Serializable {
+
+  private final OrderedSet<V> orderedSet;
+  private transient StampedLock lock = new StampedLock();
+  /** snapshot of the current contents, or null if taken before a write */
+  private transient volatile OrderedSetSnapshot<V> snapshot = null;
+
+  /**
+   * Constructs an empty <i>StampedOrderedSet</i> configured for
+   * composite-key based ordering of its values as specified in the
+   * submitted vararg array of {@link KeyComponentProfile} parameters.
+   *
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>StampedOrderedSet</i>.
+   */
+  @SafeVarargs
+  public StampedOrderedSet(KeyComponentProfile<V>... keyComponentProfiles) {
+    this(new HashSet<V>(), false, keyComponentProfiles);
+  }
+
+  /**
+   * Constructs a <i>StampedOrderedSet</i> containing the values in the
+   * specified collection, with the values ordered according to the
+   * composite-key specified in the submitted vararg array of
+   * {@link KeyComponentProfile} parameters.
+   *
+   * @param collection Collection of <i>valueClass</i>-objects to be added to
+   * and ordered by the new <i>StampedOrderedSet</i>
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>StampedOrderedSet</i>.
+   */
+  @SafeVarargs
+  public StampedOrderedSet(Collection<? extends V> collection,
+          KeyComponentProfile<V>... keyComponentProfiles) {
+    this(collection, false, keyComponentProfiles);
+  }
+
+  /**
+   * Constructs a <i>StampedOrderedSet</i> containing the values in the
+   * specified collection, optionally retaining the
+   * <i>keyComponentClass</i>-objects of each value (see
+   * {@link OrderedSet#OrderedSet(boolean, org.commonvox.collections.KeyComponentProfile...)}).
+   *
+   * @param collection Collection of <i>valueClass</i>-objects to be added to
+   * and ordered by the new <i>StampedOrderedSet</i>
+   * @param retainKeyComponents if {@code true}, the
+   * <i>keyComponentClass</i>-objects of each value are retained for use in
+   * its removal (and {@link #update(java.lang.Object) update}).
+   * @param keyComponentProfiles An array of {@link KeyComponentProfile}
+   * objects which specifies the composite-key structure which orders the
+   * values in the <i>StampedOrderedSet</i>.
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs") // array is only read and copied, never exposed
+  public StampedOrderedSet(Collection<? extends V> collection,
+          boolean retainKeyComponents,
+          KeyComponentProfile<V>... keyComponentProfiles) {
+    this.orderedSet = new OrderedSet<V>(
+            collection, retainKeyComponents, keyComponentProfiles);
+  }
+
+  /**
+   * Performs the submitted constant-time query as an optimistic read, falling
+   * back to the read lock if the optimistic read cannot be validated. The
+   * query must return a result which is independent of the internal
+   * OrderedSet, since a result produced during a concurrent write is
+   * discarded; any failure (including an Error) is likewise discarded unless
+   * the read is validated.
+   */
+  private <T> T optimisticRead(Supplier<T> query) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      try {
+        T result = query.get();
+        if (lock.validate(stamp)) {
+          return result;
+        }
+      } catch (Throwable e) {
+        if (lock.validate(stamp)) {
+          throw e; // not caused by a concurrent write
+        }
+      }
+    }
+    return read(query);
+  }
+
+  /**
+   * Performs the submitted query under the read lock. The query must return
+   * a result which is independent of the internal OrderedSet (i.e., a copy).
+   */
+  private <T> T read(Supplier<T> query) {
+    long stamp = lock.readLock();
+    try {
+      return query.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private <T> T write(Supplier<T> modification) {
+    long stamp = lock.writeLock();
+    try {
+      return modification.get();
+    } finally {
+      snapshot = null;
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Returns the published snapshot of the current contents, first taking
+   * and publishing it (under the read lock) if a write has intervened since
+   * it was last taken. Concurrent readers may each take a snapshot of the
+   * same contents; any of them may be published.
+   */
+  private OrderedSetSnapshot<V> snapshot() {
+    OrderedSetSnapshot<V> currentSnapshot = snapshot;
+    if (currentSnapshot != null) {
+      return currentSnapshot;
+    }
+    long stamp = lock.readLock();
+    try {
+      currentSnapshot = orderedSet.snapshot();
+      snapshot = currentSnapshot;
+      return currentSnapshot;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Adds the specified value to this set if it is not already present (see
+   * {@link OrderedSet#add(java.lang.Object)}).
+   *
+   * @param value Value to be added to and ordered by this set.
+   * @return {@code true} if this set did not already contain the specified
+   * value.
+   */
+  @Override
+  public boolean add(final V value) {
+    return write(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        return orderedSet.add(value);
+      }
+    });
+  }
+
+  @Override
+  public boolean addAll(final Collection<? extends V> collection) {
+    return write(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        return orderedSet.addAll(collection);
+      }
+    });
+  }
+
+  @Override
+  public boolean remove(final Object o) {
+    return write(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        return orderedSet.remove(o);
+      }
+    });
+  }
+
+  @Override
+  public boolean removeAll(final Collection<?> collection) {
+    return write(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        return orderedSet.removeAll(collection);
+      }
+    });
+  }
+
+  /**
+   * Re-indexes the specified value after modification of its attributes (see
+   * {@link OrderedSet#update(java.lang.Object)}).
+   *
+   * @param value Value to be re-indexed.
+   * @return {@code true} if this set contains the specified value.
+   * @throws IllegalStateException if this <i>StampedOrderedSet</i> does not
+   * retain keyComponents.
+   */
+  public boolean update(final V value) {
+    return write(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        return orderedSet.update(value);
+      }
+    });
+  }
+
+  @Override
+  public void clear() {
+    write(new Supplier<Void>() {
+      @Override
+      public Void get() {
+        orderedSet.clear();
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    return optimisticRead(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        return orderedSet.contains(o);
+      }
+    });
+  }
+
+  @Override
+  public int size() {
+    return optimisticRead(new Supplier<Integer>() {
+      @Override
+      public Integer get() {
+        return orderedSet.size();
+      }
+    });
+  }
+
+  /**
+   * Returns an iterator over a copy of the values in this set, in no
+   * particular order; the iterator's remove method removes the value from
+   * this set.
+   *
+   * @return an iterator over the values in this set
+   */
+  @Override
+  public Iterator<V> iterator() {
+    final Iterator<V> valueIterator = read(new Supplier<List<V>>() {
+      @Override
+      public List<V> get() {
+        return new ArrayList<V>(orderedSet);
+      }
+    }).iterator();
+    return new Iterator<V>() {
+      V currentValue;
+
+      @Override
+      public boolean hasNext() {
+        return valueIterator.hasNext();
+      }
+
+      @Override
+      public V next() {
+        return currentValue = valueIterator.next();
+      }
+
+      @Override
+      public void remove() {
+        if (currentValue == null) {
+          throw new IllegalStateException();
+        }
+        StampedOrderedSet.this.remove(currentValue);
+        currentValue = null;
+      }
+    };
+  }
+
+  /**
+   * Returns the composite-key ordered entries of this set (see
+   * {@link OrderedSet#entrySet()}), as a read-only view of a snapshot.
+   *
+   * @return Entry set in composite-key order.
+   */
+  public Set<Map.Entry<List<Object>,V>> entrySet() {
+    return snapshot().entrySet();
+  }
+
+  /**
+   * Returns the composite-keys of this set, in composite-key order (see
+   * {@link OrderedSet#compositeKeys()}), as a read-only view of a snapshot.
+   *
+   * @return Set consisting of <i>keyComponentClass</i>-object Lists.
+   */
+  public Set<List<Object>> compositeKeys() {
+    return snapshot().compositeKeys();
+  }
+
+  /**
+   * Returns a List of the values of this set in composite-key order (see
+   * {@link OrderedSet#values()}).
+   *
+   * @return values in composite-key order
+   */
+  public List<V> values() {
+    return snapshot().values();
+  }
+
+  /**
+   * Returns a List of the values of this set in composite-key order,
+   * optionally with consecutive duplicates suppressed (see
+   * {@link OrderedSet#values(boolean)}).
+   *
+   * @param suppressConsecutiveDuplicates if {@code true}, consecutive
+   * duplicates are removed from the List before it is returned.
+   * @return values in composite-key order
+   */
+  public List<V> values(boolean suppressConsecutiveDuplicates) {
+    return snapshot().values(suppressConsecutiveDuplicates);
+  }
+
+  /**
+   * Returns a List of the values of this set which share the submitted
+   * first-level <i>keyComponent</i>-object (see
+   * {@link OrderedSet#values(java.lang.Object)}).
+   *
+   * @param keyComponentObject Object of class equal to the
+   * <i>keyComponentClass</i> stipulated in the first
+   * {@link KeyComponentProfile}.
+   * @return A List of the values which share the submitted
+   * <i>keyComponent</i>-object as a common attribute.
+   * @throws IllegalArgumentException if keyComponentObject is not of the
+   * first <i>keyComponentClass</i>.
+   */
+  public List<V> values(Object keyComponentObject)
+          throws IllegalArgumentException {
+    return snapshot().values(keyComponentObject);
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the values of this set, in
+   * composite-key order. The {@code remove} method of the returned iterator
+   * is not supported.
+   *
+   * @return iterator over values in composite-key order
+   */
+  public Iterator<V> orderedIterator() {
+    return snapshot().orderedIterator();
+  }
+
+  /**
+   * Returns the value at the specified position in composite-key order (see
+   * {@link OrderedSet#get(int)}).
+   *
+   * @param index position of the value in composite-key order.
+   * @return the value at the specified position in composite-key order.
+   * @throws IndexOutOfBoundsException if index is out of range.
+   */
+  public V get(int index) {
+    return snapshot().get(index);
+  }
+
+  /**
+   * Returns the position of the first occurrence of the specified value in
+   * composite-key order (see {@link OrderedSet#rank(java.lang.Object)}).
+   *
+   * @param value Value to be located in composite-key order.
+   * @return the position of the first occurrence of the value in
+   * composite-key order, or -1 if this set does not contain the value.
+   */
+  public int rank(final V value) {
+    return read(new Supplier<Integer>() {
+      @Override
+      public Integer get() {
+        return orderedSet.rank(value);
+      }
+    });
+  }
+
+  /**
+   * Returns a read-only copy of the
+   * <a href="OrderedSet.html#keyComponentSetDescription"><i>keyComponentSet</i></a>
+   * related to the submitted {@link KeyComponentProfile} (see
+   * {@link OrderedSet#keyComponentSet(org.commonvox.collections.KeyComponentProfile)}).
+   *
+   * @param keyComponentProfile One of the {@link KeyComponentProfile} objects
+   * that was submitted in the constructor of this <i>StampedOrderedSet</i>.
+   * @return Set of <i>keyComponentClass</i>-objects related to the submitted
+   * <i>KeyComponentProfile</i>.
+   * @throws IllegalArgumentException if submitted keyComponentProfile not
+   * found in this <i>StampedOrderedSet</i>.
+   */
+  @SuppressWarnings("unchecked")
+  public Set<Object> keyComponentSet(
+          final KeyComponentProfile<V> keyComponentProfile)
+          throws IllegalArgumentException {
+    return read(new Supplier<Set<Object>>() {
+      @Override
+      public Set<Object> get() {
+        NavigableSet<Object> keyComponentSetCopy = new TreeSet<Object>(
+                (SortedSet<Object>)orderedSet.keyComponentSet(keyComponentProfile));
+        return Collections.unmodifiableNavigableSet(keyComponentSetCopy);
+      }
+    });
+  }
+
+  /**
+   * Returns the read-only list of {@link KeyComponentProfile}s with which
+   * this <i>StampedOrderedSet</i> was constructed.
+   *
+   * @return The list of {@link KeyComponentProfile}s with which this
+   * <i>StampedOrderedSet</i> was constructed.
+   */
+  public List<KeyComponentProfile<V>> getKeyComponentProfiles() {
+    return orderedSet.getKeyComponentProfiles();
+  }
+
+  private void readObject(ObjectInputStream in)
+          throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    lock = new StampedLock();
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    long stamp = lock.readLock();
+    try {
+      out.defaultWriteObject();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A <i>StripedMapNode</i> is a top-level {@link ConcurrentMapNode} in which
+ * only the first level is a
+ * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/concurrent/ConcurrentSkipListMap.html">
+ * ConcurrentSkipListMap</a>: beneath each first-level keyComponent-object is
+ * an ordinary {@link MapNode} subtree (a <i>stripe</i>), guarded by a
+ * read/write lock of its own. Writes to different stripes therefore never
+ * contend, and throughput scales with the number of distinct first-level
+ * keyComponent-objects. Ordered traversals copy the contents of one stripe at
+ * a time under its read lock, and are weakly consistent across stripes.
+ * A stripe emptied by removals is retired and dropped from the first level.
+ *
+ * @author Daniel Vimont
+ * @param <V> The <i>valueClass</i>, i.e. the class of elements contained in
+ * the {@link ConcurrentOrderedSet} to which the <i>StripedMapNode</i>
+ * belongs.
+ */
+class StripedMapNode<V> extends ConcurrentMapNode<V> {
+
+  private final KeyComponentProfile<V> topLevelKeyComponentProfile;
+  /** never populated; serves as the parent (and LevelPlan) of each stripe */
+  private final MapNode<V> stripeParentMapNode;
+  private volatile ConcurrentNavigableMap<Object, Stripe<V>> stripes = null;
+
+  /**
+   * Constructs a <i>StripedMapNode</i>.
+   *
+   * @param keyComponentProfiles KeyComponentProfiles establishing the
+   * ordering, as completed by
+   * {@link MapNode#completeKeyComponentProfiles(org.commonvox.collections.KeyComponentProfile[])};
+   * at least two are required.
+   */
+  StripedMapNode(KeyComponentProfile<V>[] keyComponentProfiles) {
+    super(keyComponentProfiles);
+    this.topLevelKeyComponentProfile = keyComponentProfiles[0];
+    this.stripeParentMapNode = new MapNode<V>(null, keyComponentProfiles);
+  }
+
+  @Override
+  void putOrRemove(Object[][] keyComponents, V value, boolean removeValue) {
+    for (Object[] levelKeyComponents : keyComponents) {
+      if (levelKeyComponents.length == 0) {
+        return;
+      }
+    }
+    for (Object keyComponent : keyComponents[0]) {
+      if (removeValue) {
+        removeFromStripe(keyComponent, keyComponents, value);
+      } else {
+        putIntoStripe(keyComponent, keyComponents, value);
+      }
+    }
+  }
+
+  private void putIntoStripe(Object keyComponent, Object[][] keyComponents,
+          V value) {
+    ConcurrentNavigableMap<Object, Stripe<V>> stripeMap = stripes(keyComponent);
+    while (true) {
+      Stripe<V> stripe = stripeMap.get(keyComponent);
+      if (stripe == null) {
+        checkKeyComponentClass(keyComponent);
+        Stripe<V> newStripe
+                = new Stripe<V>(stripeParentMapNode.newDetachedLowerMapNode());
+        stripe = stripeMap.putIfAbsent(keyComponent, newStripe);
+        if (stripe == null) {
+          stripe = newStripe;
+        }
+      }
+      stripe.lock.writeLock().lock();
+      try {
+        if (stripe.retired) {
+          continue; // emptied and dropped by a concurrent removal; retry
+        }
+        stripe.mapNode.autoMap(value, keyComponents, false);
+        return;
+      } finally {
+        stripe.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private void removeFromStripe(Object keyComponent, Object[][] keyComponents,
+          V value) {
+    ConcurrentNavigableMap<Object, Stripe<V>> stripeMap = stripes;
+    Stripe<V> stripe = (stripeMap == null) ? null : stripeMap.get(keyComponent);
+    if (stripe == null) {
+      return;
+    }
+    stripe.lock.writeLock().lock();
+    try {
+      if (stripe.retired) {
+        return;
+      }
+      stripe.mapNode.autoMap(value, keyComponents, true);
+      if (stripe.mapNode.size() == 0) {
+        stripe.retired = true;
+        stripeMap.remove(keyComponent, stripe);
+      }
+    } finally {
+      stripe.lock.writeLock().unlock();
+    }
+  }
+
+  private ConcurrentNavigableMap<Object, Stripe<V>> stripes(
+          Object sampleKeyComponent) {
+    ConcurrentNavigableMap<Object, Stripe<V>> stripeMap = stripes;
+    if (stripeMap == null) {
+      synchronized (this) {
+        stripeMap = stripes;
+        if (stripeMap == null) {
+          stripes = stripeMap = new ConcurrentSkipListMap<Object, Stripe<V>>(
+                  MapNode.nodeMapComparator(
+                          topLevelKeyComponentProfile, sampleKeyComponent));
+        }
+      }
+    }
+    return stripeMap;
+  }
+
+  @Override
+  boolean isEmpty() {
+    ConcurrentNavigableMap<Object, Stripe<V>> stripeMap = stripes;
+    return stripeMap == null || stripeMap.isEmpty();
+  }
+
+  @Override
+  Iterator<V> valueIterator() {
+    return new StripeWalker<V>() {
+      @Override
+      void copyStripe(Object topLevelKeyComponent, MapNode<V> stripeMapNode,
+              List<V> elements) {
+        elements.addAll(stripeMapNode.selectAll());
+      }
+    };
+  }
+
+  @Override
+  Iterator<Map.Entry<List<Object>,V>> entryIterator() {
+    return new StripeWalker<Map.Entry<List<Object>,V>>() {
+      @Override
+      void copyStripe(Object topLevelKeyComponent, MapNode<V> stripeMapNode,
+              List<Map.Entry<List<Object>,V>> elements) {
+        Iterator<Map.Entry<List<Object>,V>> entryIterator
+                = stripeMapNode.entryIterator();
+        while (entryIterator.hasNext()) {
+          Map.Entry<List<Object>,V> entry = entryIterator.next();
+          elements.add(new AbstractMap.SimpleImmutableEntry<List<Object>,V>(
+                  prefixedKeyComponentList(topLevelKeyComponent, entry.getKey()),
+                  entry.getValue()));
+        }
+      }
+    };
+  }
+
+  @Override
+  Iterator<List<Object>> keyComponentListIterator() {
+    return new StripeWalker<List<Object>>() {
+      @Override
+      void copyStripe(Object topLevelKeyComponent, MapNode<V> stripeMapNode,
+              List<List<Object>> elements) {
+        Iterator<List<Object>> keyComponentListIterator
+                = stripeMapNode.keyComponentListIterator();
+        while (keyComponentListIterator.hasNext()) {
+          elements.add(prefixedKeyComponentList(
+                  topLevelKeyComponent, keyComponentListIterator.next()));
+        }
+      }
+    };
+  }
+
+  private static List<Object> prefixedKeyComponentList(
+          Object topLevelKeyComponent, List<Object> lowerKeyComponentList) {
+    List<Object> keyComponentList
+            = new ArrayList<Object>(lowerKeyComponentList.size() + 1);
+    keyComponentList.add(topLevelKeyComponent);
+    keyComponentList.addAll(lowerKeyComponentList);
+    return keyComponentList;
+  }
+
+  /**
+   * A first-level subtree and the lock which guards it.
+   */
+  private static final class Stripe<V> implements Serializable {
+
+    private final MapNode<V> mapNode;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** set (under the write lock) once the stripe is emptied and dropped */
+    private boolean retired = false;
+
+    Stripe(MapNode<V> mapNode) {
+      this.mapNode = mapNode;
+    }
+  }
+
+  /**
+   * Walks the stripes in first-level order, copying the elements of each
+   * stripe under its read lock as the walk reaches it.
+   */
+  private abstract class StripeWalker<E> implements Iterator<E> {
+
+    private final Iterator<Map.Entry<Object, Stripe<V>>> stripeIterator;
+    private Iterator<E> stripeElementIterator = Collections.<E>emptyIterator();
+
+    StripeWalker() {
+      ConcurrentNavigableMap<Object, Stripe<V>> stripeMap = stripes;
+      stripeIterator = (stripeMap == null)
+              ? Collections.<Map.Entry<Object, Stripe<V>>>emptyIterator()
+              : stripeMap.entrySet().iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!stripeElementIterator.hasNext()) {
+        if (!stripeIterator.hasNext()) {
+          return false;
+        }
+        Map.Entry<Object, Stripe<V>> stripeEntry = stripeIterator.next();
+        Stripe<V> stripe = stripeEntry.getValue();
+        List<E> elements = new ArrayList<E>();
+        stripe.lock.readLock().lock();
+        try {
+          if (!stripe.retired) {
+            copyStripe(stripeEntry.getKey(), stripe.mapNode, elements);
+          }
+        } finally {
+          stripe.lock.readLock().unlock();
+        }
+        stripeElementIterator = elements.iterator();
+      }
+      return true;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return stripeElementIterator.next();
+    }
+
+    abstract void copyStripe(Object topLevelKeyComponent,
+            MapNode<V> stripeMapNode, List<E> elements);
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Entries may not be removed "
+              + "via an ordered iterator.");
+    }
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Daniel Vimont
+ */
+public class TestConcurrentOrderedSet {
+
+  private static final int THREAD_COUNT = 8;
+  private static final int VALUES_PER_THREAD = 2000;
+
+  @Test
+  public void testEquivalenceWithOrderedSet() throws NoSuchMethodException {
+    testEquivalenceWithOrderedSet(false);
+  }
+
+  @Test
+  public void testEquivalenceWithOrderedSetWhenStriped()
+          throws NoSuchMethodException {
+    testEquivalenceWithOrderedSet(true);
+  }
+
+  private void testEquivalenceWithOrderedSet(boolean striped)
+          throws NoSuchMethodException {
+    String failureMsg = "FAILURE in ConcurrentOrderedSet/OrderedSet equivalence"
+            + (striped ? " (striped)" : "");
+    KeyComponentProfile<Book> genreKeyComponent
+            = new KeyComponentProfile<Book>(Book.class, Genre.class,
+                    Book.class.getDeclaredMethod("getGenres"));
+    KeyComponentProfile<Book> authorKeyComponent
+            = new KeyComponentProfile<Book>(Book.class, Author.class,
+                    Book.class.getDeclaredMethod("getAuthors"));
+    KeyComponentProfile<Book> titleKeyComponent
+            = new KeyComponentProfile<Book>(Book.class, Book.Title.class,
+                    Book.class.getDeclaredMethod("getTitle"),
+                    Book.class.getDeclaredMethod("getSubTitle"));
+    List<Book> bookList = getBookList();
+    OrderedSet<Book> orderedSet = new OrderedSet<Book>(bookList,
+            genreKeyComponent, authorKeyComponent, titleKeyComponent);
+    ConcurrentOrderedSet<Book> concurrentOrderedSet
+            = new ConcurrentOrderedSet<Book>(bookList, striped,
+                    genreKeyComponent, authorKeyComponent, titleKeyComponent);
+
+    assertEquals(failureMsg, orderedSet.size(), concurrentOrderedSet.size());
+    assertTrue(failureMsg, !concurrentOrderedSet.add(bookList.get(0)));
+    assertEquals(failureMsg, orderedSet.values(), concurrentOrderedSet.values());
+    assertEquals(failureMsg,
+            new ArrayList<List<Object>>(orderedSet.compositeKeys()),
+            new ArrayList<List<Object>>(concurrentOrderedSet.compositeKeys()));
+    assertEquals(failureMsg, orderedSet.entrySet().size(),
+            concurrentOrderedSet.entrySet().size());
+    assertEquals(failureMsg,
+            new ArrayList<Object>(orderedSet.keyComponentSet(genreKeyComponent)),
+            new ArrayList<Object>(
+                    concurrentOrderedSet.keyComponentSet(genreKeyComponent)));
+
+    // removal via both remove methods
+    orderedSet.remove(bookList.get(1));
+    assertTrue(failureMsg, concurrentOrderedSet.remove(bookList.get(1)));
+    assertTrue(failureMsg, !concurrentOrderedSet.remove(bookList.get(1)));
+    Iterator<Book> iterator = concurrentOrderedSet.iterator();
+    Book removedBook = iterator.next();
+    iterator.remove();
+    orderedSet.remove(removedBook);
+    assertTrue(failureMsg, !concurrentOrderedSet.contains(removedBook));
+    assertEquals(failureMsg, orderedSet.size(), concurrentOrderedSet.size());
+    assertEquals(failureMsg, orderedSet.values(), concurrentOrderedSet.values());
+    assertEquals(failureMsg,
+            new ArrayList<Object>(orderedSet.keyComponentSet(authorKeyComponent)),
+            new ArrayList<Object>(
+                    concurrentOrderedSet.keyComponentSet(authorKeyComponent)));
+
+    concurrentOrderedSet.clear();
+    assertTrue(failureMsg, concurrentOrderedSet.isEmpty());
+    assertTrue(failureMsg, concurrentOrderedSet.values().isEmpty());
+    assertTrue(failureMsg,
+            concurrentOrderedSet.keyComponentSet(titleKeyComponent).isEmpty());
+  }
+
+  @Test
+  public void testConcurrentAddAndRemove() throws Exception {
+    testConcurrentAddAndRemove(false);
+  }
+
+  @Test
+  public void testConcurrentAddAndRemoveWhenStriped() throws Exception {
+    testConcurrentAddAndRemove(true);
+  }
+
+  private void testConcurrentAddAndRemove(boolean striped) throws Exception {
+    final String failureMsg = "FAILURE in ConcurrentOrderedSet multi-thread validation"
+            + (striped ? " (striped)" : "");
+    final KeyComponentProfile<Integer> moduloKeyComponent
+            = KeyComponentProfile.fromFunction(Integer.class, Integer.class,
+                    new Function<Integer, Integer>() {
+                      @Override
+                      public Integer apply(Integer value) {
+                        return value % 10;
+                      }
+                    });
+    final ConcurrentOrderedSet<Integer> concurrentOrderedSet
+            = new ConcurrentOrderedSet<Integer>(striped, moduloKeyComponent);
+    final CountDownLatch startingGate = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (int t = 0; t < THREAD_COUNT; t++) {
+      final int threadNumber = t;
+      futures.add(executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            startingGate.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (int i = 0; i < VALUES_PER_THREAD; i++) {
+            int value = i * THREAD_COUNT + threadNumber;
+            concurrentOrderedSet.add(value);
+            // values never removed are also contended across threads
+            concurrentOrderedSet.add(i * 3 + 1);
+            if (value % 3 == 0) {
+              concurrentOrderedSet.remove(value);
+            }
+            // ordered reads proceed during modification
+            if (i % 500 == 0) {
+              concurrentOrderedSet.values();
+            }
+          }
+        }
+      }));
+    }
+    startingGate.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+    assertTrue(failureMsg, executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+    TreeSet<Integer> expectedValues = new TreeSet<Integer>();
+    for (int value = 0; value < THREAD_COUNT * VALUES_PER_THREAD; value++) {
+      if (value % 3 != 0) {
+        expectedValues.add(value);
+      }
+    }
+    assertEquals(failureMsg, expectedValues.size(), concurrentOrderedSet.size());
+    assertEquals(failureMsg, expectedValues, new TreeSet<Integer>(concurrentOrderedSet));
+    List<Integer> orderedValues = concurrentOrderedSet.values();
+    assertEquals(failureMsg, expectedValues.size(), orderedValues.size());
+    for (int i = 1; i < orderedValues.size(); i++) {
+      int previous = orderedValues.get(i - 1);
+      int current = orderedValues.get(i);
+      assertTrue(failureMsg, previous % 10 < current % 10
+              || (previous % 10 == current % 10 && previous < current));
+    }
+    Set<Object> moduloSet = concurrentOrderedSet.keyComponentSet(moduloKeyComponent);
+    assertEquals(failureMsg, 10, moduloSet.size());
+  }
+
+  @Test
+  public void testPruningOfEmptiedMapNodes() throws Exception {
+    testPruningOfEmptiedMapNodes(false);
+  }
+
+  @Test
+  public void testPruningOfEmptiedMapNodesWhenStriped() throws Exception {
+    testPruningOfEmptiedMapNodes(true);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void testPruningOfEmptiedMapNodes(boolean striped) throws Exception {
+    final String failureMsg = "FAILURE in ConcurrentMapNode pruning"
+            + (striped ? " (striped)" : "");
+    KeyComponentProfile<Integer> moduloKeyComponent
+            = KeyComponentProfile.fromFunction(Integer.class, Integer.class,
+                    new Function<Integer, Integer>() {
+                      @Override
+                      public Integer apply(Integer value) {
+                        return value % 50;
+                      }
+                    });
+    KeyComponentProfile<Integer> parityKeyComponent
+            = KeyComponentProfile.fromFunction(Integer.class, Boolean.class,
+                    new Function<Integer, Boolean>() {
+                      @Override
+                      public Boolean apply(Integer value) {
+                        return value % 2 == 0;
+                      }
+                    });
+    KeyComponentProfile<Integer>[] completedProfiles
+            = MapNode.completeKeyComponentProfiles(new KeyComponentProfile[]{
+                    moduloKeyComponent, parityKeyComponent});
+    final ConcurrentMapNode<Integer> mapNode = striped
+            ? new StripedMapNode<Integer>(completedProfiles)
+            : new ConcurrentMapNode<Integer>(completedProfiles);
+    final CountDownLatch startingGate = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (int t = 0; t < THREAD_COUNT; t++) {
+      final int threadNumber = t;
+      futures.add(executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            startingGate.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          // each value is put and then removed, except every tenth, so that
+          // lower nodes are repeatedly emptied while others are put into them
+          for (int i = 0; i < VALUES_PER_THREAD; i++) {
+            Integer value = i * THREAD_COUNT + threadNumber;
+            Object[][] keyComponents = mapNode.extractKeyComponents(value);
+            mapNode.putOrRemove(keyComponents, value, false);
+            if (i % 10 != 0) {
+              mapNode.putOrRemove(keyComponents, value, true);
+            }
+          }
+        }
+      }));
+    }
+    startingGate.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+    assertTrue(failureMsg, executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+    // no put was lost to a concurrently retired node
+    TreeSet<Integer> expectedValues = new TreeSet<Integer>();
+    for (int value = 0; value < THREAD_COUNT * VALUES_PER_THREAD; value++) {
+      if ((value / THREAD_COUNT) % 10 == 0) {
+        expectedValues.add(value);
+      }
+    }
+    TreeSet<Integer> retainedValues = new TreeSet<Integer>();
+    Iterator<Integer> valueIterator = mapNode.valueIterator();
+    while (valueIterator.hasNext()) {
+      assertTrue(failureMsg, retainedValues.add(valueIterator.next()));
+    }
+    assertEquals(failureMsg, expectedValues, retainedValues);
+
+    for (Integer value : expectedValues) {
+      mapNode.putOrRemove(mapNode.extractKeyComponents(value), value, true);
+    }
+    assertTrue(failureMsg, mapNode.isEmpty());
+  }
+
+  private List<Book> getBookList() {
+    return new ArrayList<Book>(Arrays.asList(
+            new Book("Adventures of Huckleberry Finn", "Life on the Mississippi",
+                    Arrays.asList(new Genre("Fiction"), new Genre("Adventure")),
+                    Arrays.asList(new Author("Twain", "Mark"))),
+            new Book("Merriam-Webster Dictionary", null,
+                    Arrays.asList(new Genre("Nonfiction"), new Genre("Reference")),
+                    Arrays.asList(new Author("Webster", "Noah"),
+                            new Author("Merriam", "George"))),
+            new Book("Through the Brazilian Wilderness", "vvv",
+                    Arrays.asList(new Genre("Nonfiction"), new Genre("Adventure")),
+                    Arrays.asList(new Author("Roosevelt", "Theodore"))),
+            new Book("Advice to Youth", "vvvv",
+                    Arrays.asList(new Genre("Nonfiction"), new Genre("Satire")),
+                    Arrays.asList(new Author("Twain", "Mark"))),
+            new Book("Slaughterhouse-Five", "vvvvv",
+                    Arrays.asList(new Genre("Fiction"),
+                            new Genre("Science Fiction"), new Genre("Satire")),
+                    Arrays.asList(new Author("Vonnegut", "Kurt")))));
+  }
+}
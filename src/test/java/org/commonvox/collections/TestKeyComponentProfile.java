@@ -16,10 +16,21 @@
  */
 package org.commonvox.collections;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.function.Function;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 
 /**
@@ -55,6 +66,8 @@ public class TestKeyComponentProfile {
             = "Failure of get/set keyComponentGetMethods";
   private static final String KEY_COMPONENT_BASIS_FAILURE
             = "Failure of get/set keyComponentBasis";
+  private static final String KEY_COMPONENT_EXTRACTION_FAILURE
+            = "Failure of keyComponent extraction";
 
   @Test
   public void testKeyComponentProfileConstructors ()
@@ -177,6 +190,37 @@ public class TestKeyComponentProfile {
             identityComponent2.getKeyComponentBasis());
   }
 
+  @Test
+  public void testKeyComponentExtraction() {
+    Author webster = new Author("Webster", "Noah");
+    Author merriam = new Author("Merriam", "George");
+    Book dictionary = new Book("Merriam-Webster Dictionary", null, null,
+            Arrays.asList(webster, merriam));
+
+    Object[] authors = new KeyComponentProfile<Book>(Book.class, Author.class)
+            .getKeyComponents(dictionary);
+    assertEquals(KEY_COMPONENT_EXTRACTION_FAILURE, 2, authors.length);
+    assertTrue(KEY_COMPONENT_EXTRACTION_FAILURE,
+            Arrays.asList(authors).containsAll(Arrays.asList(webster, merriam)));
+
+    // null subTitle is skipped; only the title is retrieved
+    Object[] titles = new KeyComponentProfile<Book>(Book.class, Book.Title.class)
+            .getKeyComponents(dictionary);
+    assertEquals(KEY_COMPONENT_EXTRACTION_FAILURE, 1, titles.length);
+    assertEquals(KEY_COMPONENT_EXTRACTION_FAILURE,
+            dictionary.getTitle(), titles[0]);
+
+    // null collection yields no keyComponents
+    assertEquals(KEY_COMPONENT_EXTRACTION_FAILURE, 0,
+            new KeyComponentProfile<Book>(Book.class, Genre.class)
+                    .getKeyComponents(dictionary).length);
+
+    Object[] identity = new KeyComponentProfile<Book>()
+            .getKeyComponents(dictionary);
+    assertEquals(KEY_COMPONENT_EXTRACTION_FAILURE, 1, identity.length);
+    assertTrue(KEY_COMPONENT_EXTRACTION_FAILURE, dictionary == identity[0]);
+  }
+
   @Test(expected=IllegalArgumentException.class)
   public void testWithInaccessibleAttribute() {
     KeyComponentProfile simpleClassComponent
@@ -191,6 +235,108 @@ public class TestKeyComponentProfile {
                     NONCOMPARABLE_GET_METHOD);
   }
 
+  @Test
+  public void testSerializationOfFunctionBasedProfiles()
+          throws IOException, ClassNotFoundException {
+    Author webster = new Author("Webster", "Noah");
+    Author merriam = new Author("Merriam", "George");
+    Book dictionary = new Book("Merriam-Webster Dictionary", null, null,
+            Arrays.asList(webster, merriam));
+
+    KeyComponentProfile<Book> serializableFunctionComponent
+            = KeyComponentProfile.fromCollectionFunction(
+                    Book.class, Author.class, new SerializableAuthorsFunction());
+    @SuppressWarnings("unchecked")
+    KeyComponentProfile<Book> deserializedComponent
+            = (KeyComponentProfile<Book>)deserialize(
+                    serialize(serializableFunctionComponent));
+    assertEquals(KEY_COMPONENT_BASIS_FAILURE, serializableFunctionComponent,
+            deserializedComponent);
+    assertTrue(KEY_COMPONENT_EXTRACTION_FAILURE,
+            Arrays.asList(deserializedComponent.getKeyComponents(dictionary))
+                    .containsAll(Arrays.asList(webster, merriam)));
+
+    KeyComponentProfile<Book> nonserializableFunctionComponent
+            = KeyComponentProfile.fromCollectionFunction(Book.class, Author.class,
+                    new Function<Book, Collection<Author>>() {
+                      @Override
+                      public Collection<Author> apply(Book book) {
+                        return book.getAuthors();
+                      }
+                    });
+    try {
+      serialize(nonserializableFunctionComponent);
+      fail("Failure of KeyComponentProfile serialization");
+    } catch (NotSerializableException e) {
+    }
+  }
+
+  @Test
+  public void testSerializationOfOrderedSets()
+          throws IOException, ClassNotFoundException {
+    OrderedSet<Integer> orderedSet = new OrderedSet<Integer>(
+            Arrays.asList(5, 2, 8, 1, 4, 7),
+            KeyComponentProfile.fromFunction(
+                    Integer.class, Boolean.class, new SerializableParityFunction()));
+    @SuppressWarnings("unchecked")
+    OrderedSet<Integer> deserializedOrderedSet
+            = (OrderedSet<Integer>)deserialize(serialize(orderedSet));
+    assertEquals("Failure of OrderedSet serialization",
+            orderedSet.values(), deserializedOrderedSet.values());
+    deserializedOrderedSet.add(6);
+    deserializedOrderedSet.add(3);
+    assertEquals("Failure of OrderedSet serialization",
+            Arrays.asList(1, 3, 5, 7, 2, 4, 6, 8),
+            deserializedOrderedSet.values());
+
+    KeyComponentProfile<Book> methodComponent
+            = new KeyComponentProfile<Book>(
+                    Book.class, Author.class, AUTHOR_GET_METHOD);
+    @SuppressWarnings("unchecked")
+    KeyComponentProfile<Book> deserializedMethodComponent
+            = (KeyComponentProfile<Book>)deserialize(serialize(methodComponent));
+    assertEquals(KEY_COMPONENT_BASIS_FAILURE, methodComponent,
+            deserializedMethodComponent);
+    assertEquals(KEY_COMPONENT_BASIS_FAILURE,
+            methodComponent.getKeyComponentGetMethods(),
+            deserializedMethodComponent.getKeyComponentGetMethods());
+  }
+
+  private static byte[] serialize(Object object) throws IOException {
+    ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(byteStream);
+    out.writeObject(object);
+    out.close();
+    return byteStream.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes)
+          throws IOException, ClassNotFoundException {
+    ObjectInputStream in
+            = new ObjectInputStream(new ByteArrayInputStream(bytes));
+    try {
+      return in.readObject();
+    } finally {
+      in.close();
+    }
+  }
+
+  static class SerializableParityFunction
+          implements Function<Integer, Boolean>, Serializable {
+    @Override
+    public Boolean apply(Integer value) {
+      return value % 2 == 0;
+    }
+  }
+
+  static class SerializableAuthorsFunction
+          implements Function<Book, Collection<Author>>, Serializable {
+    @Override
+    public Collection<Author> apply(Book book) {
+      return book.getAuthors();
+    }
+  }
+
   class FirstNameComparator implements Comparator<Author> {
     @Override
     public int compare(Author o1, Author o2) {
@@ -19,16 +19,24 @@ package org.commonvox.collections;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 
 /**
@@ -735,6 +743,11 @@ public class TestOrderedSet {
       verifyEntrySet(authorOrderSet);
       verifyEntrySet(authorFirstNameOrderSet);
       verifyEntrySet(genreOrderSet);
+      verifyOrderedAccess(bookOrderSet);
+      verifyOrderedAccess(titleOrderSet);
+      verifyOrderedAccess(authorOrderSet);
+      verifyOrderedAccess(authorFirstNameOrderSet);
+      verifyOrderedAccess(genreOrderSet);
 
       // test HashSet equivalency
       failureMsg = "Failure in HashSet equivalency testing for fully populated "
@@ -790,6 +803,9 @@ public class TestOrderedSet {
       assertTrue(failureMsg, !book.equals(bookToRemove));
     }
     verifyEntrySet(orderedSet);
+    verifyOrderedAccess(orderedSet);
+    assertEquals(failureMsg, -1, orderedSet.rank(bookToRemove));
+    verifyKeyComponentSets(orderedSet);
 
     List<Book> bookListToRemove = new ArrayList<Book>();
     bookListToRemove.add(orderedSet.values().get(2));
@@ -802,6 +818,973 @@ public class TestOrderedSet {
       assertTrue(failureMsg, !book.equals(bookListToRemove.get(1)));
     }
     verifyEntrySet(orderedSet);
+    verifyOrderedAccess(orderedSet);
+    verifyKeyComponentSets(orderedSet);
+  }
+
+  private void verifyKeyComponentSets(OrderedSet<Book> orderedSet) {
+    failureMsg = "FAILURE in OrderedSet #keyComponentSet validation";
+    for (KeyComponentProfile<Book> keyComponentProfile :
+            orderedSet.getKeyComponentProfiles()) {
+      if (keyComponentProfile.getKeyComponentBasis().equals(
+              KeyComponentProfile.KeyComponentBasis.IDENTITY)) {
+        continue;
+      }
+      SortedSet<Object> keyComponentSet
+              = (SortedSet<Object>)orderedSet.keyComponentSet(keyComponentProfile);
+      Set<Object> expectedKeyComponentSet
+              = new TreeSet<Object>(keyComponentSet.comparator());
+      for (Book book : orderedSet) {
+        expectedKeyComponentSet.addAll(
+                Arrays.asList(keyComponentProfile.getKeyComponents(book)));
+      }
+      assertEquals(failureMsg, new ArrayList<Object>(expectedKeyComponentSet),
+              new ArrayList<Object>(keyComponentSet));
+    }
+  }
+
+  @Test
+  public void testFunctionBasedKeyComponentProfiles() {
+    failureMsg = "FAILURE in function-based KeyComponentProfile validation";
+    constructKeyComponentProfiles(1);
+    List<Book> bookList = getRandomOrderBookList(false);
+    OrderedSet<Book> methodBasedSet = new OrderedSet<Book>(bookList,
+            GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+
+    KeyComponentProfile<Book> genreFunctionKeyComponent
+            = KeyComponentProfile.fromCollectionFunction(Book.class, Genre.class,
+                    new Function<Book, List<Genre>>() {
+                      @Override
+                      public List<Genre> apply(Book book) {
+                        return book.genres;
+                      }
+                    });
+    KeyComponentProfile<Book> authorFunctionKeyComponent
+            = KeyComponentProfile.fromCollectionFunction(Book.class, Author.class,
+                    new Function<Book, List<Author>>() {
+                      @Override
+                      public List<Author> apply(Book book) {
+                        return book.getAuthors();
+                      }
+                    });
+    KeyComponentProfile<Book> titleFunctionKeyComponent
+            = KeyComponentProfile.fromCollectionFunction(
+                    Book.class, Book.Title.class,
+                    new Function<Book, List<Book.Title>>() {
+                      @Override
+                      public List<Book.Title> apply(Book book) {
+                        return Arrays.asList(book.title, book.subTitle);
+                      }
+                    });
+    OrderedSet<Book> functionBasedSet = new OrderedSet<Book>(bookList,
+            genreFunctionKeyComponent, authorFunctionKeyComponent,
+            titleFunctionKeyComponent);
+    assertEquals(failureMsg, methodBasedSet.values(), functionBasedSet.values());
+    assertEquals(failureMsg,
+            new ArrayList<Object>(methodBasedSet.keyComponentSet(GENRE_KEY_COMPONENT)),
+            new ArrayList<Object>(
+                    functionBasedSet.keyComponentSet(genreFunctionKeyComponent)));
+    verifyOrderedAccess(functionBasedSet);
+
+    // single-valued function with Comparator: order by reversed title
+    OrderedSet<Book> reverseTitleSet = new OrderedSet<Book>(bookList,
+            KeyComponentProfile.fromFunction(Book.class, String.class,
+                    Collections.<String>reverseOrder(),
+                    new Function<Book, String>() {
+                      @Override
+                      public String apply(Book book) {
+                        return book.getTitle().toString();
+                      }
+                    }));
+    List<Book> reverseTitleValues = reverseTitleSet.values();
+    assertEquals(failureMsg, bookList.size(), reverseTitleValues.size());
+    for (int i = 1; i < reverseTitleValues.size(); i++) {
+      assertTrue(failureMsg,
+              reverseTitleValues.get(i - 1).getTitle().toString().compareTo(
+                      reverseTitleValues.get(i).getTitle().toString()) >= 0);
+    }
+    verifyOrderedAccess(reverseTitleSet);
+  }
+
+  @Test
+  public void testSingleKeyComponentExtractionPerAdd() {
+    failureMsg = "FAILURE in single-pass keyComponent extraction";
+    final int[] invocationCount = new int[1];
+    KeyComponentProfile<Book> countingAuthorKeyComponent
+            = KeyComponentProfile.fromCollectionFunction(Book.class, Author.class,
+                    new Function<Book, List<Author>>() {
+                      @Override
+                      public List<Author> apply(Book book) {
+                        invocationCount[0]++;
+                        return book.getAuthors();
+                      }
+                    });
+    List<Book> bookList = getRandomOrderBookList(false);
+    OrderedSet<Book> countingSet
+            = new OrderedSet<Book>(bookList, countingAuthorKeyComponent);
+    assertEquals(failureMsg, bookList.size(), invocationCount[0]);
+    assertEquals(failureMsg, countingSet.values().size(),
+            countingSet.entrySet().size());
+  }
+
+  @Test
+  public void testRemovalOfModifiedValueWithRetainedKeyComponents() {
+    failureMsg = "FAILURE in removal via retained keyComponents";
+    constructKeyComponentProfiles(1);
+    List<Book> bookList = getRandomOrderBookList(false);
+    OrderedSet<Book> retainingSet = new OrderedSet<Book>(bookList, true,
+            GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+    int entryCount = retainingSet.entrySet().size();
+
+    Book modifiedBook = bookList.get(0);
+    int modifiedBookEntryCount = 0;
+    for (Map.Entry<List<Object>,Book> entry : retainingSet.entrySet()) {
+      if (entry.getValue() == modifiedBook) {
+        modifiedBookEntryCount++;
+      }
+    }
+    Author replacedAuthor = modifiedBook.authors.get(0);
+    modifiedBook.authors = Arrays.asList(new Author("Newcomer", "Nancy"));
+
+    assertTrue(failureMsg, retainingSet.remove(modifiedBook));
+    assertEquals(failureMsg, entryCount - modifiedBookEntryCount,
+            retainingSet.entrySet().size());
+    for (Map.Entry<List<Object>,Book> entry : retainingSet.entrySet()) {
+      assertTrue(failureMsg, entry.getValue() != modifiedBook);
+    }
+    boolean replacedAuthorIsShared = false;
+    for (Book book : retainingSet) {
+      replacedAuthorIsShared |= book.getAuthors().contains(replacedAuthor);
+    }
+    assertEquals(failureMsg, replacedAuthorIsShared,
+            retainingSet.keyComponentSet(AUTHOR_KEY_COMPONENT)
+                    .contains(replacedAuthor));
+    verifyOrderedAccess(retainingSet);
+    verifyKeyComponentSets(retainingSet);
+
+    assertTrue(failureMsg, retainingSet.add(modifiedBook));
+    assertTrue(failureMsg, retainingSet.keyComponentSet(AUTHOR_KEY_COMPONENT)
+            .contains(modifiedBook.authors.get(0)));
+    verifyOrderedAccess(retainingSet);
+    verifyKeyComponentSets(retainingSet);
+  }
+
+  @Test
+  public void testUpdateOfModifiedValues() {
+    failureMsg = "FAILURE in OrderedSet #update validation";
+    constructKeyComponentProfiles(1);
+    List<Book> bookList = getRandomOrderBookList(false);
+    OrderedSet<Book> retainingSet = new OrderedSet<Book>(bookList, true,
+            GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+
+    Book bookWithNewAuthor = bookList.get(1);
+    bookWithNewAuthor.authors = new ArrayList<Author>(bookWithNewAuthor.authors);
+    bookWithNewAuthor.authors.add(new Author("Newcomer", "Nancy"));
+    assertTrue(failureMsg, retainingSet.update(bookWithNewAuthor));
+
+    Book bookWithNewGenres = bookList.get(2);
+    bookWithNewGenres.genres = Arrays.asList(new Genre("Reference"),
+            bookWithNewGenres.genres.get(0), new Genre("Biography"));
+    assertTrue(failureMsg, retainingSet.update(bookWithNewGenres));
+
+    Book bookWithoutGenres = bookList.get(3);
+    bookWithoutGenres.genres = null;
+    assertTrue(failureMsg, retainingSet.update(bookWithoutGenres));
+    assertTrue(failureMsg, retainingSet.update(bookList.get(4)));
+
+    OrderedSet<Book> rebuiltSet = new OrderedSet<Book>(bookList,
+            GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+    assertEquals(failureMsg, new ArrayList<List<Object>>(rebuiltSet.compositeKeys()),
+            new ArrayList<List<Object>>(retainingSet.compositeKeys()));
+    assertEquals(failureMsg, rebuiltSet.values(), retainingSet.values());
+    verifyOrderedAccess(retainingSet);
+    verifyKeyComponentSets(retainingSet);
+
+    assertTrue(failureMsg, !retainingSet.update(new Book("Unlisted", null,
+            null, null)));
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testUpdateWithoutRetainedKeyComponents() {
+    constructKeyComponentProfiles(1);
+    List<Book> bookList = getRandomOrderBookList(false);
+    new OrderedSet<Book>(bookList, AUTHOR_KEY_COMPONENT).update(bookList.get(0));
+  }
+
+  @Test
+  public void testBulkLoadMatchesSequentialInsertion() {
+    failureMsg = "FAILURE in OrderedSet bulk-load validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      List<Book> bookList = getRandomOrderBookList(runType == 2);
+      bookList.add(bookList.get(0)); // duplicate value is ignored
+      OrderedSet<Book> bulkLoadedSet = new OrderedSet<Book>(bookList,
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      OrderedSet<Book> sequentiallyLoadedSet = new OrderedSet<Book>(
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      for (Book book : bookList) {
+        sequentiallyLoadedSet.add(book);
+      }
+      assertEquals(failureMsg, sequentiallyLoadedSet.size(), bulkLoadedSet.size());
+      assertEquals(failureMsg,
+              new ArrayList<List<Object>>(sequentiallyLoadedSet.compositeKeys()),
+              new ArrayList<List<Object>>(bulkLoadedSet.compositeKeys()));
+      assertEquals(failureMsg, sequentiallyLoadedSet.values(),
+              bulkLoadedSet.values());
+      verifyOrderedAccess(bulkLoadedSet);
+      verifyKeyComponentSets(bulkLoadedSet);
+
+      // subsequent sequential insertion into a bulk-loaded set
+      Book addedBook = new Book("Zuleika Dobson", null,
+              Arrays.asList(new Genre("Satire")),
+              Arrays.asList(new Author("Beerbohm", "Max")));
+      assertTrue(failureMsg, bulkLoadedSet.add(addedBook));
+      assertTrue(failureMsg, sequentiallyLoadedSet.add(addedBook));
+      assertEquals(failureMsg, sequentiallyLoadedSet.values(),
+              bulkLoadedSet.values());
+      verifyOrderedAccess(bulkLoadedSet);
+    }
+  }
+
+  @Test
+  public void testParallelAddAll() {
+    failureMsg = "FAILURE in OrderedSet #parallelAddAll validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      List<Book> bookList = getRandomOrderBookList(runType == 2);
+      OrderedSet<Book> sequentiallyLoadedSet = new OrderedSet<Book>(
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      OrderedSet<Book> parallelLoadedSet = new OrderedSet<Book>(
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      List<Book> firstHalf = bookList.subList(0, bookList.size() / 2);
+      for (Book book : firstHalf) {
+        sequentiallyLoadedSet.add(book);
+      }
+      assertTrue(failureMsg, parallelLoadedSet.parallelAddAll(firstHalf));
+      assertEquals(failureMsg, sequentiallyLoadedSet.values(),
+              parallelLoadedSet.values());
+
+      // parallel load into a non-empty set, with duplicates
+      for (Book book : bookList) {
+        sequentiallyLoadedSet.add(book);
+      }
+      assertTrue(failureMsg, parallelLoadedSet.parallelAddAll(bookList));
+      assertTrue(failureMsg, !parallelLoadedSet.parallelAddAll(firstHalf));
+      assertEquals(failureMsg, sequentiallyLoadedSet.size(),
+              parallelLoadedSet.size());
+      assertEquals(failureMsg,
+              new ArrayList<List<Object>>(sequentiallyLoadedSet.compositeKeys()),
+              new ArrayList<List<Object>>(parallelLoadedSet.compositeKeys()));
+      assertEquals(failureMsg, sequentiallyLoadedSet.values(),
+              parallelLoadedSet.values());
+      verifyOrderedAccess(parallelLoadedSet);
+      verifyKeyComponentSets(parallelLoadedSet);
+    }
+  }
+
+  @Test
+  public void testSnapshotIsUnaffectedByModification() {
+    failureMsg = "FAILURE in OrderedSet #snapshot validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      List<Book> bookList = getRandomOrderBookList(runType == 2);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(bookList, true,
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      List<Book> valuesBeforeModification = orderedSet.values();
+      List<List<Object>> compositeKeysBeforeModification
+              = new ArrayList<List<Object>>(orderedSet.compositeKeys());
+      OrderedSetSnapshot<Book> snapshot = orderedSet.snapshot();
+
+      // sequential, bulk and in-place modifications after the snapshot
+      Book addedBook = new Book("Zuleika Dobson", null,
+              Arrays.asList(new Genre("Satire")),
+              Arrays.asList(new Author("Beerbohm", "Max")));
+      orderedSet.add(addedBook);
+      orderedSet.remove(bookList.get(0));
+      Book updatedBook = bookList.get(1);
+      updatedBook.genres = Arrays.asList(new Genre("Satire"));
+      orderedSet.update(updatedBook);
+      OrderedSetSnapshot<Book> secondSnapshot = orderedSet.snapshot();
+      orderedSet.remove(addedBook);
+      orderedSet.parallelAddAll(Arrays.asList(addedBook, bookList.get(0)));
+
+      assertEquals(failureMsg, valuesBeforeModification, snapshot.values());
+      assertEquals(failureMsg, compositeKeysBeforeModification,
+              new ArrayList<List<Object>>(snapshot.compositeKeys()));
+      assertEquals(failureMsg, valuesBeforeModification.size(),
+              snapshot.entrySet().size());
+      for (int i = 0; i < valuesBeforeModification.size(); i++) {
+        assertEquals(failureMsg, valuesBeforeModification.get(i),
+                snapshot.get(i));
+      }
+      assertTrue(failureMsg, secondSnapshot.values().contains(addedBook));
+      assertTrue(failureMsg, !secondSnapshot.values().contains(bookList.get(0)));
+      assertTrue(failureMsg,
+              secondSnapshot.values(new Genre("Satire")).contains(updatedBook));
+
+      // the modified set matches one built from scratch
+      OrderedSet<Book> rebuiltSet = new OrderedSet<Book>(orderedSet,
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      assertEquals(failureMsg, rebuiltSet.values(), orderedSet.values());
+      verifyOrderedAccess(orderedSet);
+      verifyKeyComponentSets(orderedSet);
+
+      orderedSet.clear();
+      assertEquals(failureMsg, valuesBeforeModification, snapshot.values());
+    }
+  }
+
+  @Test
+  public void testOrderedSpliteratorAndStreams() {
+    failureMsg = "FAILURE in OrderedSet ordered Spliterator/Stream validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(
+              getRandomOrderBookList(runType == 2),
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      List<Book> expectedValues = orderedSet.values();
+
+      assertEquals(failureMsg, expectedValues,
+              orderedSet.orderedStream().collect(Collectors.<Book>toList()));
+      assertEquals(failureMsg, expectedValues, orderedSet.parallelOrderedStream()
+              .collect(Collectors.<Book>toList()));
+      Spliterator<Book> spliterator = orderedSet.orderedSpliterator();
+      assertTrue(failureMsg, spliterator.hasCharacteristics(
+              Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED));
+      List<Book> splitValues = new ArrayList<Book>();
+      splitExhaustively(spliterator, splitValues);
+      assertEquals(failureMsg, expectedValues, splitValues);
+
+      // a partially consumed Spliterator splits off its remaining prefix
+      spliterator = orderedSet.orderedSpliterator();
+      splitValues.clear();
+      Consumer<Book> collector = collectInto(splitValues);
+      spliterator.tryAdvance(collector);
+      Spliterator<Book> prefix = spliterator.trySplit();
+      if (prefix != null) {
+        splitExhaustively(prefix, splitValues);
+      }
+      splitExhaustively(spliterator, splitValues);
+      assertEquals(failureMsg, expectedValues, splitValues);
+
+      // a level with a single keyComponent-object does not prevent splitting
+      List<Book> singleGenreBookList = new ArrayList<Book>();
+      for (int i = 0; i < 100; i++) {
+        singleGenreBookList.add(new Book("Title " + i, null,
+                Arrays.asList(new Genre("Satire")),
+                Arrays.asList(new Author("Author " + (i % 2), "Anonymous"))));
+      }
+      OrderedSet<Book> singleGenreSet = new OrderedSet<Book>(
+              singleGenreBookList, GENRE_KEY_COMPONENT);
+      spliterator = singleGenreSet.orderedSpliterator();
+      prefix = spliterator.trySplit();
+      assertTrue(failureMsg, prefix != null);
+      assertEquals(failureMsg, singleGenreSet.size(),
+              prefix.estimateSize() + spliterator.estimateSize());
+      singleGenreSet = new OrderedSet<Book>(singleGenreBookList,
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT);
+      assertTrue(failureMsg,
+              singleGenreSet.orderedSpliterator().trySplit() != null);
+
+      // prefix streams match a filtering of the ordered entries
+      for (Object genre : orderedSet.keyComponentSet(GENRE_KEY_COMPONENT)) {
+        List<Book> genreValues = new ArrayList<Book>();
+        Map<Object, List<Book>> genreAuthorValues = new TreeMap<Object, List<Book>>(
+                new MapNode.HashCodeComparator());
+        for (Map.Entry<List<Object>, Book> entry : orderedSet.entrySet()) {
+          if (entry.getKey().get(0).equals(genre)) {
+            genreValues.add(entry.getValue());
+            Object author = entry.getKey().get(1);
+            if (!genreAuthorValues.containsKey(author)) {
+              genreAuthorValues.put(author, new ArrayList<Book>());
+            }
+            genreAuthorValues.get(author).add(entry.getValue());
+          }
+        }
+        assertEquals(failureMsg, genreValues, orderedSet.orderedStream(genre)
+                .collect(Collectors.<Book>toList()));
+        assertEquals(failureMsg, genreValues, orderedSet.orderedStream(genre)
+                .parallel().collect(Collectors.<Book>toList()));
+        for (Map.Entry<Object, List<Book>> authorEntry
+                : genreAuthorValues.entrySet()) {
+          assertEquals(failureMsg, authorEntry.getValue(),
+                  orderedSet.orderedStream(genre, authorEntry.getKey())
+                          .collect(Collectors.<Book>toList()));
+        }
+      }
+      assertEquals(failureMsg, 0,
+              orderedSet.orderedStream(new Genre("Nonexistent")).count());
+      try {
+        orderedSet.orderedStream(new Author("Twain", "Mark"));
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+    }
+    OrderedSet<Book> emptySet = new OrderedSet<Book>(GENRE_KEY_COMPONENT);
+    assertEquals(failureMsg, 0, emptySet.orderedStream().count());
+    assertTrue(failureMsg, emptySet.orderedSpliterator().trySplit() == null);
+  }
+
+  @Test
+  public void testRangeViews() {
+    failureMsg = "FAILURE in OrderedSet #subSet/#headSet/#tailSet validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(
+              getRandomOrderBookList(runType == 2),
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      Set<List<Object>> keyPrefixes = new LinkedHashSet<List<Object>>();
+      for (List<Object> compositeKey : orderedSet.compositeKeys()) {
+        keyPrefixes.add(compositeKey.subList(0, 1));
+        keyPrefixes.add(compositeKey.subList(0, 2));
+      }
+      keyPrefixes.add(new ArrayList<Object>());
+      for (List<Object> fromKeyPrefix : keyPrefixes) {
+        for (List<Object> toKeyPrefix : keyPrefixes) {
+          for (int inclusiveMask = 0; inclusiveMask < 4; inclusiveMask++) {
+            boolean fromInclusive = (inclusiveMask & 1) != 0;
+            boolean toInclusive = (inclusiveMask & 2) != 0;
+            OrderedSetRange<Book> range = orderedSet.subSet(fromKeyPrefix,
+                    fromInclusive, toKeyPrefix, toInclusive);
+            List<Map.Entry<List<Object>, Book>> expectedEntries
+                    = filterEntriesByRange(orderedSet, fromKeyPrefix,
+                            fromInclusive, toKeyPrefix, toInclusive);
+            assertEquals(failureMsg, expectedEntries,
+                    new ArrayList<Map.Entry<List<Object>, Book>>(range.entrySet()));
+            assertEquals(failureMsg, expectedEntries.size(),
+                    range.entrySet().size());
+          }
+        }
+        for (boolean inclusive : new boolean[]{true, false}) {
+          assertEquals(failureMsg,
+                  filterEntriesByRange(orderedSet, null, false, fromKeyPrefix, inclusive),
+                  new ArrayList<Map.Entry<List<Object>, Book>>(
+                          orderedSet.headSet(fromKeyPrefix, inclusive).entrySet()));
+          List<Book> expectedValues = new ArrayList<Book>();
+          for (Map.Entry<List<Object>, Book> entry : filterEntriesByRange(
+                  orderedSet, fromKeyPrefix, inclusive, null, false)) {
+            expectedValues.add(entry.getValue());
+          }
+          OrderedSetRange<Book> tailRange = orderedSet.tailSet(fromKeyPrefix, inclusive);
+          assertEquals(failureMsg, expectedValues, tailRange.values());
+          assertEquals(failureMsg, expectedValues, tailRange.orderedStream()
+                  .parallel().collect(Collectors.<Book>toList()));
+        }
+      }
+
+      // ranges from the set are live; ranges from a snapshot are not
+      List<Object> satirePrefix = Arrays.<Object>asList(new Genre("Satire"));
+      OrderedSetRange<Book> liveRange
+              = orderedSet.subSet(satirePrefix, true, satirePrefix, true);
+      OrderedSetRange<Book> snapshotRange
+              = orderedSet.snapshot().subSet(satirePrefix, true, satirePrefix, true);
+      List<Book> satireValues = liveRange.values();
+      Book addedBook = new Book("Zuleika Dobson", null,
+              Arrays.asList(new Genre("Satire")),
+              Arrays.asList(new Author("Beerbohm", "Max")));
+      orderedSet.add(addedBook);
+      assertTrue(failureMsg, liveRange.values().contains(addedBook));
+      assertEquals(failureMsg, satireValues.size() + 1, liveRange.values().size());
+      assertEquals(failureMsg, satireValues, snapshotRange.values());
+      try {
+        orderedSet.headSet(Arrays.<Object>asList(new Author("Twain", "Mark")), true);
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testEntryNavigation() {
+    failureMsg = "FAILURE in OrderedSet entry navigation validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(
+              getRandomOrderBookList(runType == 2),
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      List<KeyComponentProfile<Book>> keyComponentProfiles
+              = orderedSet.getKeyComponentProfiles();
+      List<Map.Entry<List<Object>, Book>> entries
+              = new ArrayList<Map.Entry<List<Object>, Book>>(orderedSet.entrySet());
+      assertEquals(failureMsg, entries.get(0), orderedSet.firstEntry());
+      assertEquals(failureMsg, entries.get(entries.size() - 1),
+              orderedSet.lastEntry());
+
+      // cursor-style traversal in both directions
+      List<Map.Entry<List<Object>, Book>> traversedEntries
+              = new ArrayList<Map.Entry<List<Object>, Book>>();
+      for (Map.Entry<List<Object>, Book> entry = orderedSet.firstEntry();
+              entry != null; entry = orderedSet.higherEntry(entry.getKey().toArray())) {
+        traversedEntries.add(entry);
+      }
+      assertEquals(failureMsg, entries, traversedEntries);
+      traversedEntries.clear();
+      for (Map.Entry<List<Object>, Book> entry = orderedSet.lastEntry();
+              entry != null; entry = orderedSet.lowerEntry(entry.getKey().toArray())) {
+        traversedEntries.add(0, entry);
+      }
+      assertEquals(failureMsg, entries, traversedEntries);
+
+      // complete and partial composite-keys, each compared with a scan
+      for (Map.Entry<List<Object>, Book> keyEntry : entries) {
+        for (int prefixLength = 0; prefixLength <= keyComponentProfiles.size();
+                prefixLength++) {
+          List<Object> keyPrefix = keyEntry.getKey().subList(0, prefixLength);
+          Map.Entry<List<Object>, Book> ceilingEntry = null;
+          Map.Entry<List<Object>, Book> higherEntry = null;
+          Map.Entry<List<Object>, Book> floorEntry = null;
+          Map.Entry<List<Object>, Book> lowerEntry = null;
+          for (Map.Entry<List<Object>, Book> entry : entries) {
+            int comparison = compareWithKeyPrefix(keyComponentProfiles,
+                    entry.getKey(), keyPrefix);
+            if (comparison >= 0 && ceilingEntry == null) {
+              ceilingEntry = entry;
+            }
+            if (comparison > 0 && higherEntry == null) {
+              higherEntry = entry;
+            }
+            if (comparison <= 0) {
+              floorEntry = entry;
+            }
+            if (comparison < 0) {
+              lowerEntry = entry;
+            }
+          }
+          Object[] keyPrefixArray = keyPrefix.toArray();
+          assertEquals(failureMsg, ceilingEntry,
+                  orderedSet.ceilingEntry(keyPrefixArray));
+          assertEquals(failureMsg, higherEntry,
+                  orderedSet.higherEntry(keyPrefixArray));
+          assertEquals(failureMsg, floorEntry,
+                  orderedSet.floorEntry(keyPrefixArray));
+          assertEquals(failureMsg, lowerEntry,
+                  orderedSet.lowerEntry(keyPrefixArray));
+        }
+      }
+      assertTrue(failureMsg,
+              orderedSet.ceilingEntry(new Genre("\uffff")) == null);
+      assertEquals(failureMsg, entries.get(0),
+              orderedSet.higherEntry(new Genre("")));
+      try {
+        orderedSet.ceilingEntry(new Author("Twain", "Mark"));
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+    }
+    OrderedSet<Book> emptySet = new OrderedSet<Book>(GENRE_KEY_COMPONENT);
+    assertTrue(failureMsg, emptySet.firstEntry() == null);
+    assertTrue(failureMsg, emptySet.lastEntry() == null);
+    assertTrue(failureMsg, emptySet.higherEntry(new Genre("Satire")) == null);
+  }
+
+  @Test
+  public void testKeysetPagination() {
+    failureMsg = "FAILURE in OrderedSet #page validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(
+              getRandomOrderBookList(runType == 2),
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      for (int limit = 1; limit <= 7; limit++) {
+        List<Book> pagedValues = new ArrayList<Book>();
+        OrderedSetPage<Book> page = orderedSet.page(null, limit);
+        pagedValues.addAll(page.values());
+        while (page.hasNext()) {
+          assertEquals(failureMsg, limit, page.values().size());
+          page = orderedSet.page(page.nextCursor(), limit);
+          pagedValues.addAll(page.values());
+        }
+        assertEquals(failureMsg, orderedSet.values(), pagedValues);
+      }
+
+      // modification between pages, including removal of the cursor's value
+      OrderedSetPage<Book> firstPage = orderedSet.page(null, 5);
+      Book cursorBook = firstPage.values().get(4);
+      orderedSet.remove(cursorBook);
+      orderedSet.add(new Book("Zuleika Dobson", null,
+              Arrays.asList(new Genre("Satire"), new Genre("Adventure")),
+              Arrays.asList(new Author("Beerbohm", "Max"))));
+      List<Book> expectedValues = new ArrayList<Book>();
+      List<Object> cursorKey = Arrays.asList(
+              firstPage.nextCursor().getCompositeKey());
+      for (Map.Entry<List<Object>, Book> entry : orderedSet.entrySet()) {
+        if (compareWithKeyPrefix(orderedSet.getKeyComponentProfiles(),
+                entry.getKey(), cursorKey) > 0) {
+          expectedValues.add(entry.getValue());
+        }
+      }
+      OrderedSetPage<Book> remainingPage
+              = orderedSet.page(firstPage.nextCursor(), Integer.MAX_VALUE);
+      assertEquals(failureMsg, expectedValues, remainingPage.values());
+      assertTrue(failureMsg, !remainingPage.hasNext());
+      try {
+        orderedSet.page(null, 0);
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+    }
+    OrderedSetPage<Book> emptyPage
+            = new OrderedSet<Book>(GENRE_KEY_COMPONENT).page(null, 10);
+    assertTrue(failureMsg, emptyPage.values().isEmpty());
+    assertTrue(failureMsg, emptyPage.nextCursor() == null);
+  }
+
+  @Test
+  public void testKeyComponentCounts() {
+    failureMsg = "FAILURE in OrderedSet #keyComponentCounts validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      List<Book> bookList = getRandomOrderBookList(runType == 2);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(bookList,
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      Map<Object, Integer> authorCounts
+              = orderedSet.keyComponentCounts(AUTHOR_KEY_COMPONENT);
+      assertEquals(failureMsg,
+              new ArrayList<Object>(orderedSet.keyComponentSet(AUTHOR_KEY_COMPONENT)),
+              new ArrayList<Object>(authorCounts.keySet()));
+      for (Object author : authorCounts.keySet()) {
+        assertEquals(failureMsg, (Integer)orderedSet.countDistinct(null, author),
+                authorCounts.get(author));
+      }
+
+      // counts within each Genre
+      for (Object genre : orderedSet.keyComponentSet(GENRE_KEY_COMPONENT)) {
+        Map<Object, Integer> genreAuthorCounts
+                = orderedSet.keyComponentCounts(AUTHOR_KEY_COMPONENT, genre);
+        Set<Object> genreAuthors = new LinkedHashSet<Object>();
+        for (List<Object> compositeKey : orderedSet.compositeKeys()) {
+          if (keyComponentsMatch(GENRE_KEY_COMPONENT, genre, compositeKey.get(0))) {
+            genreAuthors.add(compositeKey.get(1));
+          }
+        }
+        assertEquals(failureMsg, new ArrayList<Object>(genreAuthors),
+                new ArrayList<Object>(genreAuthorCounts.keySet()));
+        for (Map.Entry<Object, Integer> countEntry : genreAuthorCounts.entrySet()) {
+          assertEquals(failureMsg,
+                  orderedSet.countDistinct(genre, countEntry.getKey()),
+                  (int)countEntry.getValue());
+        }
+      }
+
+      // the unrestricted counts are maintained as values are added and removed
+      Author beerbohm = new Author("Beerbohm", "Max");
+      Book addedBook = new Book("Zuleika Dobson", null,
+              Arrays.asList(new Genre("Satire")), Arrays.asList(beerbohm));
+      Book secondBook = new Book("Seven Men", null,
+              Arrays.asList(new Genre("Satire")), Arrays.asList(beerbohm));
+      orderedSet.addAll(Arrays.asList(addedBook, secondBook));
+      assertEquals(failureMsg, (Integer)2, authorCounts.get(beerbohm));
+      orderedSet.remove(addedBook);
+      assertEquals(failureMsg, (Integer)1, authorCounts.get(beerbohm));
+      orderedSet.remove(secondBook);
+      assertTrue(failureMsg, !authorCounts.containsKey(beerbohm));
+      orderedSet.clear();
+      assertTrue(failureMsg, authorCounts.isEmpty());
+      try {
+        orderedSet.keyComponentCounts(AUTHOR_FIRST_NAME_KEY_COMPONENT);
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testKeyPatternValues() {
+    failureMsg = "FAILURE in OrderedSet #valuesMatching/#count/#exists validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(
+              getRandomOrderBookList(runType == 2),
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      int patternLength = orderedSet.getKeyComponentProfiles().size() - 1;
+      // every combination of wildcards over the components of every composite-key
+      for (List<Object> compositeKey : orderedSet.compositeKeys()) {
+        for (int wildcardMask = 0; wildcardMask < (1 << patternLength);
+                wildcardMask++) {
+          Object[] keyPattern = new Object[patternLength];
+          for (int i = 0; i < patternLength; i++) {
+            keyPattern[i] = ((wildcardMask & (1 << i)) != 0)
+                    ? null : compositeKey.get(i);
+          }
+          Set<Book> expectedValues = new LinkedHashSet<Book>();
+          int expectedCount = 0;
+          entries:
+          for (Map.Entry<List<Object>, Book> entry : orderedSet.entrySet()) {
+            for (int i = 0; i < patternLength; i++) {
+              if (keyPattern[i] != null && !keyComponentsMatch(
+                      orderedSet.getKeyComponentProfiles().get(i),
+                      keyPattern[i], entry.getKey().get(i))) {
+                continue entries;
+              }
+            }
+            expectedValues.add(entry.getValue());
+            expectedCount++;
+          }
+          assertEquals(failureMsg, new ArrayList<Book>(expectedValues),
+                  orderedSet.valuesMatching(keyPattern));
+          assertEquals(failureMsg, expectedCount, orderedSet.count(keyPattern));
+          assertEquals(failureMsg, expectedValues.size(),
+                  orderedSet.countDistinct(keyPattern));
+          assertEquals(failureMsg, expectedCount > 0, orderedSet.exists(keyPattern));
+        }
+      }
+      Object firstGenre = orderedSet.compositeKeys().iterator().next().get(0);
+      assertEquals(failureMsg, orderedSet.values(firstGenre),
+              orderedSet.valuesMatching(firstGenre, null));
+      assertEquals(failureMsg,
+              new ArrayList<Book>(new LinkedHashSet<Book>(orderedSet.values())),
+              orderedSet.valuesMatching(null, null));
+      assertTrue(failureMsg,
+              orderedSet.valuesMatching(new Genre("Nonexistent"), null).isEmpty());
+      assertEquals(failureMsg, orderedSet.values().size(), orderedSet.count());
+      assertEquals(failureMsg, orderedSet.values(firstGenre).size(),
+              orderedSet.countDistinct(firstGenre));
+      assertTrue(failureMsg, !orderedSet.exists(new Genre("Nonexistent")));
+      try {
+        orderedSet.count(new Author("Twain", "Mark"));
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+      try {
+        orderedSet.valuesMatching(null, new Genre("Satire"));
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+      try {
+        orderedSet.valuesMatching(null, null, null, null);
+        fail(failureMsg);
+      } catch (IllegalArgumentException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testKeyPatternValuesOfModifiedValues() {
+    failureMsg = "FAILURE in OrderedSet pattern queries of modified values";
+    for (boolean retainKeyComponents : new boolean[]{true, false}) {
+      constructKeyComponentProfiles(1);
+      List<Book> bookList = getRandomOrderBookList(false);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(bookList,
+              retainKeyComponents,
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      // values modified without #update remain indexed by their old keys
+      for (int i = 0; i < bookList.size(); i += 2) {
+        bookList.get(i).authors = Arrays.asList(new Author("Aardvark", "Al"));
+        bookList.get(i).genres = Arrays.asList(new Genre("Zoology"));
+      }
+      List<Book> expectedValues
+              = new ArrayList<Book>(new LinkedHashSet<Book>(orderedSet.values()));
+      assertEquals(failureMsg, bookList.size(), expectedValues.size());
+      if (retainKeyComponents) {
+        for (Book book : bookList) {
+          assertEquals(failureMsg, orderedSet.values().indexOf(book),
+                  orderedSet.rank(book));
+        }
+      }
+      assertEquals(failureMsg, expectedValues,
+              orderedSet.valuesMatching(null, null));
+      assertEquals(failureMsg, expectedValues.size(),
+              orderedSet.countDistinct(null, null));
+      for (Object genre : orderedSet.keyComponentSet(GENRE_KEY_COMPONENT)) {
+        List<Book> expectedGenreValues = new ArrayList<Book>(
+                new LinkedHashSet<Book>(orderedSet.values(genre)));
+        assertEquals(failureMsg, expectedGenreValues,
+                orderedSet.valuesMatching(genre, null));
+        assertEquals(failureMsg, expectedGenreValues.size(),
+                orderedSet.countDistinct(genre, null));
+        for (Map.Entry<Object, Integer> countEntry : orderedSet.keyComponentCounts(
+                AUTHOR_KEY_COMPONENT, genre).entrySet()) {
+          assertEquals(failureMsg,
+                  orderedSet.countDistinct(genre, countEntry.getKey()),
+                  (int)countEntry.getValue());
+        }
+      }
+      // pattern-restricted counts agree with the (indexed) unrestricted counts
+      Map<Object, Integer> authorCounts
+              = orderedSet.keyComponentCounts(AUTHOR_KEY_COMPONENT);
+      assertEquals(failureMsg, authorCounts,
+              orderedSet.keyComponentCounts(AUTHOR_KEY_COMPONENT, (Object)null));
+      for (Object author : orderedSet.keyComponentSet(AUTHOR_KEY_COMPONENT)) {
+        assertEquals(failureMsg, authorCounts.get(author),
+                orderedSet.keyComponentCounts(
+                        AUTHOR_KEY_COMPONENT, null, author).get(author));
+      }
+    }
+  }
+
+  private static boolean keyComponentsMatch(
+          KeyComponentProfile<Book> keyComponentProfile, Object keyComponent,
+          Object otherKeyComponent) {
+    return compareKeyComponents(keyComponentProfile, keyComponent,
+            otherKeyComponent) == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compareKeyComponents(
+          KeyComponentProfile<Book> keyComponentProfile, Object keyComponent,
+          Object otherKeyComponent) {
+    Comparator<Object> comparator
+            = MapNode.nodeMapComparator(keyComponentProfile, keyComponent);
+    return (comparator == null)
+            ? ((Comparable<Object>)keyComponent).compareTo(otherKeyComponent)
+            : comparator.compare(keyComponent, otherKeyComponent);
+  }
+
+  private static int compareWithKeyPrefix(
+          List<KeyComponentProfile<Book>> keyComponentProfiles,
+          List<Object> compositeKey, List<Object> keyPrefix) {
+    for (int i = 0; i < keyPrefix.size(); i++) {
+      int comparison = compareKeyComponents(keyComponentProfiles.get(i),
+              compositeKey.get(i), keyPrefix.get(i));
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return 0;
+  }
+
+  private static List<Map.Entry<List<Object>, Book>> filterEntriesByRange(
+          OrderedSet<Book> orderedSet, List<Object> fromKeyPrefix,
+          boolean fromInclusive, List<Object> toKeyPrefix, boolean toInclusive) {
+    List<KeyComponentProfile<Book>> keyComponentProfiles
+            = orderedSet.getKeyComponentProfiles();
+    List<Map.Entry<List<Object>, Book>> entriesInRange
+            = new ArrayList<Map.Entry<List<Object>, Book>>();
+    for (Map.Entry<List<Object>, Book> entry : orderedSet.entrySet()) {
+      if (fromKeyPrefix != null) {
+        int comparison = compareWithKeyPrefix(keyComponentProfiles,
+                entry.getKey(), fromKeyPrefix);
+        if (comparison < 0 || (comparison == 0 && !fromInclusive)) {
+          continue;
+        }
+      }
+      if (toKeyPrefix != null) {
+        int comparison = compareWithKeyPrefix(keyComponentProfiles,
+                entry.getKey(), toKeyPrefix);
+        if (comparison > 0 || (comparison == 0 && !toInclusive)) {
+          continue;
+        }
+      }
+      entriesInRange.add(entry);
+    }
+    return entriesInRange;
+  }
+
+  private void splitExhaustively(Spliterator<Book> spliterator,
+          List<Book> values) {
+    long expectedSize = spliterator.estimateSize();
+    int startingSize = values.size();
+    Spliterator<Book> prefix = spliterator.trySplit();
+    if (prefix != null) {
+      assertEquals(failureMsg, expectedSize,
+              prefix.estimateSize() + spliterator.estimateSize());
+      splitExhaustively(prefix, values);
+      splitExhaustively(spliterator, values);
+    } else {
+      spliterator.forEachRemaining(collectInto(values));
+    }
+    assertEquals(failureMsg, expectedSize, values.size() - startingSize);
+  }
+
+  private static Consumer<Book> collectInto(final List<Book> values) {
+    return new Consumer<Book>() {
+      @Override
+      public void accept(Book book) {
+        values.add(book);
+      }
+    };
+  }
+
+  @Test
+  public void testFreezeMatchesOrderedSet() {
+    failureMsg = "FAILURE in OrderedSet #freeze validation";
+    for (int runType = 1; runType <= 3; runType++) {
+      constructKeyComponentProfiles(runType);
+      List<Book> bookList = getRandomOrderBookList(runType == 2);
+      OrderedSet<Book> orderedSet = new OrderedSet<Book>(bookList,
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      FrozenOrderedSet<Book> frozenSet = orderedSet.freeze();
+
+      assertEquals(failureMsg, orderedSet.size(), frozenSet.size());
+      assertEquals(failureMsg, orderedSet, frozenSet);
+      assertEquals(failureMsg, orderedSet.values(), frozenSet.values());
+      assertEquals(failureMsg, orderedSet.values(true), frozenSet.values(true));
+      assertEquals(failureMsg,
+              new ArrayList<Map.Entry<List<Object>,Book>>(orderedSet.entrySet()),
+              new ArrayList<Map.Entry<List<Object>,Book>>(frozenSet.entrySet()));
+      assertEquals(failureMsg,
+              new ArrayList<List<Object>>(orderedSet.compositeKeys()),
+              new ArrayList<List<Object>>(frozenSet.compositeKeys()));
+      for (int i = 0; i < orderedSet.values().size(); i++) {
+        assertEquals(failureMsg, orderedSet.get(i), frozenSet.get(i));
+      }
+      for (Book book : bookList) {
+        assertTrue(failureMsg, frozenSet.contains(book));
+        assertEquals(failureMsg, orderedSet.rank(book), frozenSet.rank(book));
+      }
+      for (Object genre : orderedSet.keyComponentSet(GENRE_KEY_COMPONENT)) {
+        assertEquals(failureMsg, orderedSet.values(genre),
+                frozenSet.values(genre));
+      }
+      assertTrue(failureMsg, frozenSet.values(new Genre("Nonexistent")).isEmpty());
+      assertEquals(failureMsg,
+              new ArrayList<Object>(orderedSet.keyComponentSet(AUTHOR_KEY_COMPONENT)),
+              new ArrayList<Object>(frozenSet.keyComponentSet(AUTHOR_KEY_COMPONENT)));
+      Book absentBook = new Book("Zuleika Dobson", null,
+              Arrays.asList(new Genre("Satire")),
+              Arrays.asList(new Author("Beerbohm", "Max")));
+      assertTrue(failureMsg, !frozenSet.contains(absentBook));
+      assertEquals(failureMsg, -1, frozenSet.rank(absentBook));
+      try {
+        frozenSet.add(absentBook);
+        fail(failureMsg);
+      } catch (UnsupportedOperationException e) {
+      }
+    }
+    FrozenOrderedSet<Book> emptyFrozenSet = new OrderedSet<Book>(
+            GENRE_KEY_COMPONENT, TITLE_KEY_COMPONENT).freeze();
+    assertTrue(failureMsg, emptyFrozenSet.isEmpty());
+    assertTrue(failureMsg, emptyFrozenSet.values().isEmpty());
+    assertTrue(failureMsg, emptyFrozenSet.entrySet().isEmpty());
+    assertTrue(failureMsg, emptyFrozenSet.values(new Genre("Satire")).isEmpty());
+  }
+
+  @Test(expected=IndexOutOfBoundsException.class)
+  public void testPositionalAccessOutOfRange() {
+      constructKeyComponentProfiles(1);
+      genreOrderSet = new OrderedSet<Book>(getRandomOrderBookList(false),
+              GENRE_KEY_COMPONENT, AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+      genreOrderSet.get(genreOrderSet.values().size());
+  }
+
+  private void verifyOrderedAccess (OrderedSet<Book> orderedSet) {
+    failureMsg = "FAILURE in OrderedSet #orderedIterator/#get(int)/#rank validation";
+    List<Book> values = orderedSet.values();
+    assertEquals(failureMsg, values.size(), orderedSet.entrySet().size());
+    Iterator<Book> orderedIterator = orderedSet.orderedIterator();
+    for (Book book : values) {
+      assertTrue(failureMsg, orderedIterator.hasNext());
+      assertEquals(failureMsg, book, orderedIterator.next());
+    }
+    assertTrue(failureMsg, !orderedIterator.hasNext());
+    Iterator<List<Object>> compositeKeyIterator
+            = orderedSet.compositeKeys().iterator();
+    int entryIndex = 0;
+    for (Map.Entry<List<Object>,Book> entry : orderedSet.entrySet()) {
+      assertEquals(failureMsg, values.get(entryIndex++), entry.getValue());
+      assertEquals(failureMsg, orderedSet.getKeyComponentProfiles().size(),
+              entry.getKey().size());
+      assertEquals(failureMsg, entry.getValue(),
+              entry.getKey().get(entry.getKey().size() - 1));
+      assertEquals(failureMsg, entry.getKey(), compositeKeyIterator.next());
+    }
+    assertTrue(failureMsg, !compositeKeyIterator.hasNext());
+    for (int i = 0; i < values.size(); i++) {
+      assertEquals(failureMsg, values.get(i), orderedSet.get(i));
+    }
+    for (Book book : orderedSet) {
+      assertEquals(failureMsg, values.indexOf(book), orderedSet.rank(book));
+    }
   }
 
   @Test(expected=IllegalArgumentException.class)
@@ -812,6 +1795,26 @@ public class TestOrderedSet {
       authorOrderSet.add(null);
   }
 
+  @Test
+  public void testAddAllWithNullValue() {
+    failureMsg = "FAILURE in OrderedSet #addAll of null value";
+    constructKeyComponentProfiles(1);
+    OrderedSet<Book> orderedSet = new OrderedSet<Book>(
+            getRandomOrderBookList(false),
+            AUTHOR_KEY_COMPONENT, TITLE_KEY_COMPONENT);
+    List<Book> valuesBeforeAddAll = orderedSet.values();
+    Book addedBook = new Book("Zuleika Dobson", null,
+            Arrays.asList(new Genre("Satire")),
+            Arrays.asList(new Author("Beerbohm", "Max")));
+    try {
+      orderedSet.addAll(Arrays.asList(addedBook, null));
+      fail(failureMsg);
+    } catch (IllegalArgumentException e) {
+    }
+    assertTrue(failureMsg, !orderedSet.contains(addedBook));
+    assertEquals(failureMsg, valuesBeforeAddAll, orderedSet.values());
+  }
+
   private void verifyEntrySet (OrderedSet<Book> orderedSet) {
     failureMsg = "FAILURE in OrderedSet #entrySet validation";
 //    printEntrySet(orderedSet);
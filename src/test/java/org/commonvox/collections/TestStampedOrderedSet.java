@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 Daniel Vimont
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.commonvox.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Daniel Vimont
+ */
+public class TestStampedOrderedSet {
+
+  private static final int READER_COUNT = 6;
+  private static final int WRITE_COUNT = 600;
+  private static final int READS_PER_READER = 400;
+
+  @Test
+  public void testEquivalenceWithOrderedSet() throws NoSuchMethodException {
+    String failureMsg = "FAILURE in StampedOrderedSet/OrderedSet equivalence";
+    KeyComponentProfile<Book> genreKeyComponent
+            = new KeyComponentProfile<Book>(Book.class, Genre.class,
+                    Book.class.getDeclaredMethod("getGenres"));
+    KeyComponentProfile<Book> titleKeyComponent
+            = new KeyComponentProfile<Book>(Book.class, Book.Title.class,
+                    Book.class.getDeclaredMethod("getTitle"));
+    List<Book> bookList = Arrays.asList(
+            new Book("Adventures of Huckleberry Finn", null,
+                    Arrays.asList(new Genre("Fiction"), new Genre("Adventure")),
+                    Arrays.asList(new Author("Twain", "Mark"))),
+            new Book("Advice to Youth", null,
+                    Arrays.asList(new Genre("Nonfiction"), new Genre("Satire")),
+                    Arrays.asList(new Author("Twain", "Mark"))),
+            new Book("Slaughterhouse-Five", null,
+                    Arrays.asList(new Genre("Fiction"), new Genre("Satire")),
+                    Arrays.asList(new Author("Vonnegut", "Kurt"))));
+    OrderedSet<Book> orderedSet = new OrderedSet<Book>(bookList,
+            genreKeyComponent, titleKeyComponent);
+    StampedOrderedSet<Book> stampedOrderedSet = new StampedOrderedSet<Book>(
+            bookList, genreKeyComponent, titleKeyComponent);
+
+    assertEquals(failureMsg, orderedSet.size(), stampedOrderedSet.size());
+    assertEquals(failureMsg, orderedSet.values(), stampedOrderedSet.values());
+    assertEquals(failureMsg, orderedSet.values(true),
+            stampedOrderedSet.values(true));
+    assertEquals(failureMsg, orderedSet.values(new Genre("Satire")),
+            stampedOrderedSet.values(new Genre("Satire")));
+    assertEquals(failureMsg, orderedSet.get(3), stampedOrderedSet.get(3));
+    assertEquals(failureMsg, orderedSet.rank(bookList.get(2)),
+            stampedOrderedSet.rank(bookList.get(2)));
+    assertEquals(failureMsg,
+            new ArrayList<Map.Entry<List<Object>,Book>>(orderedSet.entrySet()),
+            new ArrayList<Map.Entry<List<Object>,Book>>(stampedOrderedSet.entrySet()));
+    assertEquals(failureMsg,
+            new ArrayList<List<Object>>(orderedSet.compositeKeys()),
+            new ArrayList<List<Object>>(stampedOrderedSet.compositeKeys()));
+    Set<Object> genreSet = stampedOrderedSet.keyComponentSet(genreKeyComponent);
+    assertEquals(failureMsg,
+            new ArrayList<Object>(orderedSet.keyComponentSet(genreKeyComponent)),
+            new ArrayList<Object>(genreSet));
+
+    // results are copies, unaffected by subsequent modification
+    assertTrue(failureMsg, stampedOrderedSet.remove(bookList.get(0)));
+    assertEquals(failureMsg, 4, genreSet.size());
+    assertEquals(failureMsg, 3,
+            stampedOrderedSet.keyComponentSet(genreKeyComponent).size());
+    assertTrue(failureMsg, !stampedOrderedSet.contains(bookList.get(0)));
+    stampedOrderedSet.clear();
+    assertTrue(failureMsg, stampedOrderedSet.isEmpty());
+  }
+
+  @Test
+  public void testReadsDuringWrites() throws Exception {
+    final String failureMsg = "FAILURE in StampedOrderedSet concurrent read validation";
+    final KeyComponentProfile<Integer> moduloKeyComponent
+            = KeyComponentProfile.fromFunction(Integer.class, Integer.class,
+                    new Function<Integer, Integer>() {
+                      @Override
+                      public Integer apply(Integer value) {
+                        return value % 7;
+                      }
+                    });
+    final StampedOrderedSet<Integer> stampedOrderedSet
+            = new StampedOrderedSet<Integer>(moduloKeyComponent);
+    final AtomicBoolean writesComplete = new AtomicBoolean(false);
+    final CountDownLatch startingGate = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newFixedThreadPool(READER_COUNT);
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (int r = 0; r < READER_COUNT; r++) {
+      futures.add(executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            startingGate.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (int read = 0; read < READS_PER_READER && !writesComplete.get();
+                  read++) {
+            // every value is added (and removed) along with its successor, so
+            // that any consistent read sees an even number of values
+            assertEquals(failureMsg, 0, stampedOrderedSet.size() % 2);
+            // pairs not removed (i % 3 != 0) are never removed once added
+            int i = 3 * (read % (WRITE_COUNT / 3)) + 1;
+            if (stampedOrderedSet.contains(2 * i + 1)) {
+              assertTrue(failureMsg, stampedOrderedSet.contains(2 * i));
+            }
+            if (read % 20 == 0) {
+              List<Integer> values = stampedOrderedSet.values();
+              assertEquals(failureMsg, 0, values.size() % 2);
+              for (int v = 1; v < values.size(); v++) {
+                assertTrue(failureMsg,
+                        values.get(v - 1) % 7 <= values.get(v) % 7);
+              }
+              assertEquals(failureMsg, 0,
+                      stampedOrderedSet.entrySet().size() % 2);
+              stampedOrderedSet.values(3);
+              stampedOrderedSet.keyComponentSet(moduloKeyComponent);
+            }
+          }
+        }
+      }));
+    }
+    startingGate.countDown();
+    for (int i = 0; i < WRITE_COUNT; i++) {
+      stampedOrderedSet.addAll(Arrays.asList(2 * i, 2 * i + 1));
+      if (i % 3 == 0) {
+        stampedOrderedSet.removeAll(Arrays.asList(2 * i, 2 * i + 1));
+      }
+    }
+    writesComplete.set(true);
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+    assertTrue(failureMsg, executorService.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(failureMsg, 2 * (WRITE_COUNT - (WRITE_COUNT + 2) / 3),
+            stampedOrderedSet.size());
+  }
+}